@@ -0,0 +1,113 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.benchmarks;
+
+import com.wynntils.mc.utils.CodedComponent;
+import com.wynntils.mc.utils.ComponentUtils;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.locale.Language;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.ComponentContents;
+import net.minecraft.network.chat.Style;
+import net.minecraft.util.FormattedCharSequence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Encoding chat components to coded strings.
+ *
+ * Mixins are not applied here, so plain components don't cache their coded string and {@link #getCoded} is the
+ * baseline of a full encode. {@link #getCodedCached} uses components that cache it like the mixin does, to measure
+ * a repeated lookup of the same message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ComponentUtilsBenchmark {
+    private List<Component> components;
+    private List<Component> cachingComponents;
+    private List<String> codedMessages;
+
+    @Setup
+    public void setup() {
+        Payloads.bootstrapMinecraft();
+
+        components = Payloads.readLines("chat_components.txt").stream()
+                .<Component>map(Component.Serializer::fromJson)
+                .toList();
+        cachingComponents = components.stream().<Component>map(CachingComponent::new).toList();
+        codedMessages = Payloads.readLines("chat_coded.txt");
+    }
+
+    @Benchmark
+    public void getCoded(Blackhole blackhole) {
+        for (Component component : components) {
+            blackhole.consume(ComponentUtils.getCoded(component));
+        }
+    }
+
+    @Benchmark
+    public void getCodedCached(Blackhole blackhole) {
+        for (Component component : cachingComponents) {
+            blackhole.consume(ComponentUtils.getCoded(component));
+        }
+    }
+
+    @Benchmark
+    public void stripFormatting(Blackhole blackhole) {
+        for (String codedMessage : codedMessages) {
+            blackhole.consume(ComponentUtils.stripFormatting(codedMessage));
+        }
+    }
+
+    // Caches its coded string the same way MutableComponentMixin does
+    private static final class CachingComponent implements Component, CodedComponent {
+        private final Component component;
+        private String cachedCoded;
+        private Language cachedCodedLanguage;
+
+        private CachingComponent(Component component) {
+            this.component = component;
+        }
+
+        @Override
+        public String getCachedCoded(Language language) {
+            return language == cachedCodedLanguage ? cachedCoded : null;
+        }
+
+        @Override
+        public void setCachedCoded(String coded, Language language) {
+            cachedCoded = coded;
+            cachedCodedLanguage = language;
+        }
+
+        @Override
+        public Style getStyle() {
+            return component.getStyle();
+        }
+
+        @Override
+        public ComponentContents getContents() {
+            return component.getContents();
+        }
+
+        @Override
+        public List<Component> getSiblings() {
+            return component.getSiblings();
+        }
+
+        @Override
+        public FormattedCharSequence getVisualOrderText() {
+            return component.getVisualOrderText();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.benchmarks;
+
+import com.wynntils.wynn.objects.profiles.item.IdentificationModifier;
+import com.wynntils.wynn.objects.profiles.item.IdentificationProfile;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Calculating reidentification chances for every possible roll of an identification, as item tooltips do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IdentificationProfileBenchmark {
+    @Param({"12", "-45", "230"})
+    public int baseValue;
+
+    private IdentificationProfile profile;
+
+    @Setup
+    public void setup() {
+        profile = new IdentificationProfile(IdentificationModifier.INTEGER, baseValue, false);
+        profile.calculateMinMax("rawHealth");
+    }
+
+    @Benchmark
+    public void getChances(Blackhole blackhole) {
+        for (int value = profile.getMin(); value <= profile.getMax(); value++) {
+            for (int stars = 0; stars <= 3; stars++) {
+                blackhole.consume(profile.getChances(value, stars));
+            }
+        }
+    }
+}
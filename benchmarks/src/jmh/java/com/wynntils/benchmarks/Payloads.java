@@ -0,0 +1,44 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+
+/**
+ * Loads the sample payloads the benchmarks are fed with, from src/jmh/resources/payloads.
+ *
+ * Each payload file has one sample per line. To benchmark against other data, such as lines logged from a real game
+ * session, replace or extend these files; no code changes are needed.
+ */
+public final class Payloads {
+    private Payloads() {}
+
+    public static List<String> readLines(String name) {
+        try (InputStream inputStream = Payloads.class.getResourceAsStream("/payloads/" + name)) {
+            if (inputStream == null) {
+                throw new IllegalStateException("Missing benchmark payload " + name);
+            }
+
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8)
+                    .lines()
+                    .filter(line -> !line.isEmpty())
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Needed before using anything that touches the registries, like component deserialization
+    public static void bootstrapMinecraft() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.benchmarks;
+
+import com.wynntils.utils.StringUtils;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Fuzzy searching item names, as the guide and search screens do on every key press.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StringUtilsBenchmark {
+    @Param({"c", "gra", "warp", "boreal aegis"})
+    public String searchTerm;
+
+    private List<String> itemNames;
+
+    @Setup
+    public void setup() {
+        itemNames = Payloads.readLines("item_names.txt");
+    }
+
+    @Benchmark
+    public void partialMatch(Blackhole blackhole) {
+        for (String itemName : itemNames) {
+            blackhole.consume(StringUtils.partialMatch(itemName, searchTerm));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.handlers.chat;
+
+import com.wynntils.benchmarks.Payloads;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Finding the recipient type patterns that match each chat line, through the pattern index and by running every
+ * pattern in turn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChatPatternIndexBenchmark {
+    private final ChatPatternIndex index = new ChatPatternIndex();
+    private final List<Pattern> patterns = new ArrayList<>();
+    private List<String> codedMessages;
+
+    @Setup
+    public void setup() {
+        for (RecipientType recipientType : RecipientType.values()) {
+            for (MessageType messageType : MessageType.values()) {
+                Pattern pattern = recipientType.getPattern(messageType);
+                if (pattern == null) continue;
+
+                patterns.add(pattern);
+                index.register(pattern);
+            }
+        }
+
+        codedMessages = Payloads.readLines("chat_coded.txt");
+    }
+
+    @Benchmark
+    public void indexed(Blackhole blackhole) {
+        for (String codedMessage : codedMessages) {
+            ChatMatches matches = index.classify(codedMessage);
+            for (Pattern pattern : patterns) {
+                blackhole.consume(matches.find(pattern));
+            }
+        }
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) {
+        for (String codedMessage : codedMessages) {
+            for (Pattern pattern : patterns) {
+                blackhole.consume(pattern.matcher(codedMessage).find());
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.handlers.scoreboard;
+
+import com.wynntils.benchmarks.Payloads;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Splitting the scoreboard into segments, all at once and for a single segment whose content changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SegmentParserBenchmark {
+    private List<String> lines;
+    private Segment lastSegment;
+
+    @Setup
+    public void setup() {
+        lines = Payloads.readLines("scoreboard.txt");
+
+        List<Segment> segments = SegmentParser.parse(lines);
+        lastSegment = segments.get(segments.size() - 1);
+    }
+
+    @Benchmark
+    public List<Segment> parse() {
+        return SegmentParser.parse(lines);
+    }
+
+    @Benchmark
+    public Segment reparse() {
+        return SegmentParser.reparse(lastSegment, lines);
+    }
+
+    @Benchmark
+    public boolean isBoundary() {
+        return SegmentParser.isBoundary(lines.get(lines.size() - 1));
+    }
+}
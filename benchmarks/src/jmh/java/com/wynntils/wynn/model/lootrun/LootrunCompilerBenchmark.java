@@ -0,0 +1,63 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.wynn.model.lootrun;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.world.phys.Vec3;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compiling a recorded lootrun path into the per-chunk paths that are rendered.
+ *
+ * The path is a seeded random walk with roughly the point spacing of a recording, including an occasional teleport.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LootrunCompilerBenchmark {
+    @Param({"1000", "20000"})
+    public int pointCount;
+
+    @Param({"true", "false"})
+    public boolean rainbow;
+
+    private List<Vec3> points;
+    private LootrunCompiler.PathStyle style;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        points = new ArrayList<>(pointCount);
+
+        Vec3 position = new Vec3(-1500, 60, -1600);
+        double direction = 0;
+        for (int i = 0; i < pointCount; i++) {
+            if (random.nextInt(500) == 0) {
+                position = position.add(100, 0, 100);
+            }
+
+            direction += random.nextGaussian() * 0.3;
+            position = position.add(Math.cos(direction), random.nextGaussian() * 0.2, Math.sin(direction));
+            points.add(position);
+        }
+
+        style = new LootrunCompiler.PathStyle(rainbow, 20, 0xff00ffff);
+    }
+
+    @Benchmark
+    public Object compile() {
+        return LootrunCompiler.compile(points, style);
+    }
+}
@@ -16,7 +16,7 @@ import com.wynntils.core.components.Models;
 import com.wynntils.gui.screens.WynntilsLootrunsScreen;
 import com.wynntils.mc.utils.McUtils;
 import com.wynntils.utils.Delay;
-import com.wynntils.wynn.model.LootrunModel;
+import com.wynntils.wynn.model.lootrun.LootrunModel;
 import java.io.File;
 import java.util.List;
 import java.util.stream.Stream;
@@ -13,15 +13,18 @@ import com.wynntils.core.events.EventBusWrapper;
 import com.wynntils.core.features.Feature;
 import com.wynntils.core.features.FeatureRegistry;
 import com.wynntils.core.features.UserFeature;
+import com.wynntils.gui.render.FontRenderer;
 import com.wynntils.mc.event.ClientsideMessageEvent;
 import com.wynntils.mc.utils.McUtils;
 import java.io.File;
 import java.io.InputStream;
 import java.util.Optional;
+import java.util.function.Consumer;
 import net.minecraft.ChatFormatting;
 import net.minecraft.client.Minecraft;
 import net.minecraft.network.chat.Component;
 import net.minecraftforge.eventbus.api.Event;
+import net.minecraftforge.eventbus.api.EventPriority;
 import net.minecraftforge.eventbus.api.IEventBus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +56,10 @@ public final class WynntilsMod {
         eventBus.register(object);
     }
 
+    public static <T extends Event> void registerEventListener(Class<T> eventType, Consumer<T> listener) {
+        eventBus.addListener(EventPriority.LOWEST, true, eventType, listener);
+    }
+
     public static boolean postEvent(Event event) {
         try {
             return eventBus.post(event);
@@ -156,7 +163,11 @@ public final class WynntilsMod {
 
     // Ran when resources (including I18n) are available
     public static void onResourcesFinishedLoading() {
-        if (FeatureRegistry.isInitCompleted()) return;
+        if (FeatureRegistry.isInitCompleted()) {
+            // A resource pack may have changed the font, so text has to be laid out again
+            FontRenderer.getInstance().clearLayoutCache();
+            return;
+        }
 
         try {
             initFeatures();
@@ -12,7 +12,6 @@ import com.wynntils.wynn.model.BombBellModel;
 import com.wynntils.wynn.model.ChatItemModel;
 import com.wynntils.wynn.model.CompassModel;
 import com.wynntils.wynn.model.LootChestModel;
-import com.wynntils.wynn.model.LootrunModel;
 import com.wynntils.wynn.model.PlayerInventoryModel;
 import com.wynntils.wynn.model.PlayerRelationsModel;
 import com.wynntils.wynn.model.RemoteWynntilsUserInfoModel;
@@ -48,6 +47,7 @@ import com.wynntils.wynn.model.item.PropertyModel.ServerCountPropertyModel;
 import com.wynntils.wynn.model.item.PropertyModel.SkillIconPropertyModel;
 import com.wynntils.wynn.model.item.PropertyModel.SkillPointPropertyModel;
 import com.wynntils.wynn.model.item.PropertyModel.TeleportScrollPropertyModel;
+import com.wynntils.wynn.model.lootrun.LootrunModel;
 import com.wynntils.wynn.model.map.MapModel;
 import com.wynntils.wynn.model.scoreboard.ScoreboardModel;
 
@@ -20,6 +20,7 @@ import com.wynntils.core.features.overlays.Overlay;
 import com.wynntils.mc.objects.CustomColor;
 import com.wynntils.mc.utils.McUtils;
 import com.wynntils.utils.FileUtils;
+import com.wynntils.utils.TaskUtils;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -29,12 +30,17 @@ import java.io.OutputStreamWriter;
 import java.lang.reflect.Field;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
 
@@ -49,6 +55,18 @@ public final class ConfigManager extends Manager {
             .create();
     private static final List<ConfigHolder> CONFIG_HOLDERS = new ArrayList<>();
 
+    // Changes often come in bursts, like for every item in a loot chest, so they are saved together after this delay
+    private static final long SAVE_DELAY_MILLIS = 1000;
+
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+    private volatile boolean configDirty = false;
+
+    // Snapshots are numbered, so an older snapshot never overwrites a newer one on disk
+    private long snapshotCount = 0;
+    private long lastSavedSnapshot = 0;
+    // The newest snapshot that actually made it to disk
+    private long writtenSnapshot = 0;
+
     private File userConfig;
     private JsonObject configObject;
 
@@ -60,8 +78,11 @@ public final class ConfigManager extends Manager {
 
         // Now, we have to apply upfixers, before any config loading happens
         if (upfixer.runUpfixers(configObject)) {
-            saveConfigToDisk(configObject);
+            saveConfigToDisk(configObject, nextSnapshot());
         }
+
+        // Don't lose changes that are still waiting to be saved
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flushConfig));
     }
 
     public void registerFeature(Feature feature) {
@@ -147,12 +168,41 @@ public final class ConfigManager extends Manager {
         }
     }
 
+    /**
+     * Saves the config options set by the user. The save happens shortly afterwards, in the background, so this can
+     * be called as often as needed.
+     */
     public void saveConfig() {
-        // create file if necessary
-        if (!userConfig.exists()) {
-            FileUtils.createNewFile(userConfig);
+        configDirty = true;
+
+        if (saveScheduled.compareAndSet(false, true)) {
+            TaskUtils.runAsyncLater(
+                    () -> McUtils.mc().execute(this::saveConfigInBackground),
+                    SAVE_DELAY_MILLIS,
+                    TimeUnit.MILLISECONDS);
         }
+    }
+
+    // Called on the main thread, so the config options don't change while they are copied
+    private void saveConfigInBackground() {
+        saveScheduled.set(false);
+        if (!configDirty) return;
+
+        configDirty = false;
+        JsonObject snapshot = createConfigSnapshot();
+        long snapshotNumber = nextSnapshot();
+        TaskUtils.runAsync(() -> saveConfigToDisk(snapshot, snapshotNumber));
+    }
+
+    private void flushConfig() {
+        // A snapshot can still be waiting in the background queue, which won't run anymore at exit
+        if (!configDirty && !hasUnwrittenSnapshot()) return;
+
+        configDirty = false;
+        saveConfigToDisk(createConfigSnapshot(), nextSnapshot());
+    }
 
+    private JsonObject createConfigSnapshot() {
         // create json object, with entry for each option of each container
         JsonObject holderJson = new JsonObject();
         for (ConfigHolder holder : CONFIG_HOLDERS) {
@@ -168,17 +218,41 @@ public final class ConfigManager extends Manager {
                 Managers.ConfigUpfixer.UPFIXER_JSON_MEMBER_NAME,
                 configObject.get(Managers.ConfigUpfixer.UPFIXER_JSON_MEMBER_NAME));
 
-        saveConfigToDisk(holderJson);
+        return holderJson;
     }
 
-    private void saveConfigToDisk(JsonObject configObject) {
+    private synchronized long nextSnapshot() {
+        return ++snapshotCount;
+    }
+
+    private synchronized boolean hasUnwrittenSnapshot() {
+        return writtenSnapshot < snapshotCount;
+    }
+
+    private synchronized void saveConfigToDisk(JsonObject configObject, long snapshotNumber) {
+        if (snapshotNumber < lastSavedSnapshot) return;
+
+        lastSavedSnapshot = snapshotNumber;
+
+        // Write to a temporary file first, so a crash while saving can't leave a broken config behind
+        File tempFile = new File(CONFIGS, userConfig.getName() + ".tmp");
         try {
-            // write json to file
-            OutputStreamWriter fileWriter =
-                    new OutputStreamWriter(new FileOutputStream(userConfig), StandardCharsets.UTF_8);
+            try (OutputStreamWriter fileWriter =
+                    new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+                CONFIG_GSON.toJson(configObject, fileWriter);
+            }
 
-            CONFIG_GSON.toJson(configObject, fileWriter);
-            fileWriter.close();
+            try {
+                Files.move(
+                        tempFile.toPath(),
+                        userConfig.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), userConfig.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            writtenSnapshot = snapshotNumber;
         } catch (IOException e) {
             WynntilsMod.error("Failed to save user config file!", e);
         }
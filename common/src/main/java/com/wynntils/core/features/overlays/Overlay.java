@@ -43,6 +43,13 @@ public abstract class Overlay extends AbstractConfigurable implements Translatab
     @Config(key = "overlay.wynntils.overlay.verticalAlignmentOverride", visible = false)
     protected VerticalAlignment verticalAlignmentOverride = null;
 
+    // Where a retained overlay was when it was last drawn, and whether it changed since
+    private boolean dirty = true;
+    private float drawnX;
+    private float drawnY;
+    private float drawnWidth;
+    private float drawnHeight;
+
     protected Overlay(OverlayPosition position, float width, float height) {
         this.position = position;
         this.size = new GuiScaledOverlaySize(width, height);
@@ -70,8 +77,48 @@ public abstract class Overlay extends AbstractConfigurable implements Translatab
         this.render(poseStack, partialTicks, window);
     }
 
+    /**
+     * Retained overlays are not rendered every frame. Their last output is kept offscreen and shown again, until they
+     * are marked dirty, moved or resized. Overlays whose content only changes at known times can opt in, as long as
+     * they call {@link #markDirty()} whenever it does.
+     */
+    public boolean isRetained() {
+        return false;
+    }
+
+    /**
+     * Called every frame for retained overlays, before it is decided whether they are rendered again. Overlays can
+     * check their data here, and mark themselves dirty if it changed.
+     */
+    public void refresh() {}
+
+    /**
+     * Makes a retained overlay render again the next frame
+     */
+    public void markDirty() {
+        dirty = true;
+    }
+
+    boolean needsRedraw() {
+        return dirty
+                || drawnX != getRenderX()
+                || drawnY != getRenderY()
+                || drawnWidth != getWidth()
+                || drawnHeight != getHeight();
+    }
+
+    void markDrawn() {
+        dirty = false;
+        drawnX = getRenderX();
+        drawnY = getRenderY();
+        drawnWidth = getWidth();
+        drawnHeight = getHeight();
+    }
+
     @Override
     public final void updateConfigOption(ConfigHolder configHolder) {
+        markDirty();
+
         // if user toggle was changed, enable/disable feature accordingly
         if (configHolder.getFieldName().equals("userEnabled")) {
             // This is done so all state checks run in order
@@ -152,6 +199,7 @@ public abstract class Overlay extends AbstractConfigurable implements Translatab
 
     public void setPosition(OverlayPosition position) {
         this.position = position;
+        markDirty();
     }
 
     // Return the X where the overlay should be rendered
@@ -0,0 +1,108 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.core.features.overlays;
+
+import com.mojang.blaze3d.pipeline.RenderTarget;
+import com.mojang.blaze3d.pipeline.TextureTarget;
+import com.mojang.blaze3d.platform.GlStateManager;
+import com.mojang.blaze3d.platform.Window;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.wynntils.gui.render.BatchRenderer;
+import com.wynntils.mc.utils.McUtils;
+import java.util.ArrayList;
+import java.util.List;
+import net.minecraft.client.Minecraft;
+
+/**
+ * The last output of retained overlays that are rendered one after another, kept in an offscreen target and drawn to
+ * the screen every frame until one of them needs to be drawn again.
+ */
+final class OverlayLayer {
+    private RenderTarget target;
+    private List<Overlay> drawnOverlays = List.of();
+    private double drawnGuiScale;
+
+    boolean needsRedraw(List<Overlay> overlays) {
+        if (target == null || !overlays.equals(drawnOverlays)) return true;
+
+        // Changing the gui scale keeps the window size, but everything is drawn at a different size
+        Window window = McUtils.window();
+        if (target.width != window.getWidth() || target.height != window.getHeight()) return true;
+        if (window.getGuiScale() != drawnGuiScale) return true;
+
+        for (Overlay overlay : overlays) {
+            if (overlay.needsRedraw()) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Clears the layer and makes everything drawn from now on go to it
+     */
+    void beginDraw() {
+        // Anything batched so far belongs on the screen, not in the layer
+        BatchRenderer.flush();
+
+        Window window = McUtils.window();
+        if (target == null) {
+            target = new TextureTarget(window.getWidth(), window.getHeight(), true, Minecraft.ON_OSX);
+        } else if (target.width != window.getWidth() || target.height != window.getHeight()) {
+            target.resize(window.getWidth(), window.getHeight(), Minecraft.ON_OSX);
+        }
+
+        target.setClearColor(0f, 0f, 0f, 0f);
+        target.clear(Minecraft.ON_OSX);
+        target.bindWrite(true);
+
+        // The layer starts out transparent, so the alpha of everything drawn into it has to be blended as well
+        BatchRenderer.setLayerBlending(true);
+        RenderSystem.blendFuncSeparate(
+                GlStateManager.SourceFactor.SRC_ALPHA,
+                GlStateManager.DestFactor.ONE_MINUS_SRC_ALPHA,
+                GlStateManager.SourceFactor.ONE,
+                GlStateManager.DestFactor.ONE_MINUS_SRC_ALPHA);
+    }
+
+    void endDraw(List<Overlay> overlays) {
+        BatchRenderer.setLayerBlending(false);
+        RenderSystem.defaultBlendFunc();
+        McUtils.mc().getMainRenderTarget().bindWrite(true);
+
+        drawnOverlays = new ArrayList<>(overlays);
+        drawnGuiScale = McUtils.window().getGuiScale();
+    }
+
+    /**
+     * Frees the offscreen target. The layer can still be used afterwards, it is then drawn again from scratch.
+     */
+    void close() {
+        if (target == null) return;
+
+        target.destroyBuffers();
+        target = null;
+        drawnOverlays = List.of();
+    }
+
+    void drawToScreen() {
+        if (target == null) return;
+
+        BatchRenderer.flush();
+
+        // Everything in the layer was blended onto transparent black, so its colors are premultiplied by alpha
+        RenderSystem.enableBlend();
+        RenderSystem.blendFunc(GlStateManager.SourceFactor.ONE, GlStateManager.DestFactor.ONE_MINUS_SRC_ALPHA);
+
+        // Blitting sets up a projection in window pixels, which would break everything drawn after it in this frame
+        RenderSystem.backupProjectionMatrix();
+        Window window = McUtils.window();
+        target.blitToScreen(window.getWidth(), window.getHeight(), false);
+        RenderSystem.restoreProjectionMatrix();
+
+        RenderSystem.defaultBlendFunc();
+        RenderSystem.disableBlend();
+        RenderSystem.enableDepthTest();
+    }
+}
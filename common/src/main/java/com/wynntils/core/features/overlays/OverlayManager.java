@@ -11,6 +11,7 @@ import com.wynntils.core.components.Managers;
 import com.wynntils.core.features.Feature;
 import com.wynntils.core.features.overlays.annotations.OverlayInfo;
 import com.wynntils.core.mod.CrashReportManager;
+import com.wynntils.gui.render.BatchRenderer;
 import com.wynntils.gui.screens.overlays.OverlayManagementScreen;
 import com.wynntils.mc.event.DisplayResizeEvent;
 import com.wynntils.mc.event.RenderEvent;
@@ -33,6 +34,8 @@ public final class OverlayManager extends Manager {
 
     private final Set<Overlay> enabledOverlays = new HashSet<>();
 
+    private final Map<RenderPass, OverlayLayer> retainedLayers = new HashMap<>();
+
     private final List<SectionCoordinates> sections = new ArrayList<>(9);
 
     public OverlayManager(CrashReportManager crashReportManager) {
@@ -84,7 +87,7 @@ public final class OverlayManager extends Manager {
             shouldRender = false;
         }
 
-        List<Overlay> crashedOverlays = new LinkedList<>();
+        List<Overlay> overlays = new ArrayList<>();
         for (Overlay overlay : enabledOverlays) {
             OverlayInfo annotation = overlayInfoMap.get(overlay);
 
@@ -103,22 +106,49 @@ public final class OverlayManager extends Manager {
                 }
             }
 
+            overlays.add(overlay);
+        }
+
+        // The longest run of retained overlays that follow each other shares a single layer, which is drawn where the
+        // run is in the order. Other retained overlays are rendered every frame, so the order stays as it was, and
+        // there is never more than one window-sized layer per render pass.
+        RenderPass renderPass = new RenderPass(event.getType(), renderState);
+        List<Overlay> retainedRun = testMode || !shouldRender ? List.of() : findRetainedRun(overlays);
+        List<Overlay> crashedOverlays = new LinkedList<>();
+
+        // Overlays draw lots of small primitives, so the ones that follow each other are drawn together
+        BatchRenderer.beginBatch();
+        for (int i = 0; i < overlays.size(); i++) {
+            Overlay overlay = overlays.get(i);
+
+            if (!retainedRun.isEmpty() && overlay == retainedRun.get(0)) {
+                renderRetainedOverlays(event, renderPass, retainedRun, crashedOverlays);
+                i += retainedRun.size() - 1;
+                continue;
+            }
+
             try {
                 if (testMode) {
                     overlay.renderPreview(event.getPoseStack(), event.getPartialTicks(), event.getWindow());
                 } else {
                     if (shouldRender) {
+                        if (overlay.isRetained()) {
+                            overlay.refresh();
+                        }
                         overlay.render(event.getPoseStack(), event.getPartialTicks(), event.getWindow());
                     }
                 }
             } catch (Throwable t) {
-                WynntilsMod.error("Exception when rendering overlay " + overlay.getTranslatedName(), t);
-                WynntilsMod.warn("This overlay will be disabled");
-                McUtils.sendMessageToClient(Component.literal("Wynntils error: Overlay '" + overlay.getTranslatedName()
-                                + "' has crashed and will be disabled")
-                        .withStyle(ChatFormatting.RED));
-                // We can't disable it right away since that will cause ConcurrentModificationException
-                crashedOverlays.add(overlay);
+                onOverlayCrash(overlay, t, crashedOverlays);
+            }
+        }
+        BatchRenderer.endBatch();
+
+        // Don't hold on to a layer that is not shown
+        if (retainedRun.isEmpty()) {
+            OverlayLayer layer = retainedLayers.remove(renderPass);
+            if (layer != null) {
+                layer.close();
             }
         }
 
@@ -128,6 +158,61 @@ public final class OverlayManager extends Manager {
         }
     }
 
+    private static List<Overlay> findRetainedRun(List<Overlay> overlays) {
+        int runStart = 0;
+        int runLength = 0;
+
+        int start = 0;
+        for (int i = 0; i <= overlays.size(); i++) {
+            if (i < overlays.size() && overlays.get(i).isRetained()) continue;
+
+            if (i - start > runLength) {
+                runStart = start;
+                runLength = i - start;
+            }
+            start = i + 1;
+        }
+
+        return overlays.subList(runStart, runStart + runLength);
+    }
+
+    private void renderRetainedOverlays(
+            RenderEvent event, RenderPass renderPass, List<Overlay> overlays, List<Overlay> crashedOverlays) {
+        for (Overlay overlay : overlays) {
+            try {
+                overlay.refresh();
+            } catch (Throwable t) {
+                onOverlayCrash(overlay, t, crashedOverlays);
+            }
+        }
+
+        OverlayLayer layer = retainedLayers.computeIfAbsent(renderPass, pass -> new OverlayLayer());
+        if (layer.needsRedraw(overlays)) {
+            layer.beginDraw();
+            for (Overlay overlay : overlays) {
+                try {
+                    overlay.render(event.getPoseStack(), event.getPartialTicks(), event.getWindow());
+                } catch (Throwable t) {
+                    onOverlayCrash(overlay, t, crashedOverlays);
+                }
+                overlay.markDrawn();
+            }
+            layer.endDraw(overlays);
+        }
+
+        layer.drawToScreen();
+    }
+
+    private void onOverlayCrash(Overlay overlay, Throwable t, List<Overlay> crashedOverlays) {
+        WynntilsMod.error("Exception when rendering overlay " + overlay.getTranslatedName(), t);
+        WynntilsMod.warn("This overlay will be disabled");
+        McUtils.sendMessageToClient(Component.literal("Wynntils error: Overlay '" + overlay.getTranslatedName()
+                        + "' has crashed and will be disabled")
+                .withStyle(ChatFormatting.RED));
+        // We can't disable it right away since that will cause ConcurrentModificationException
+        crashedOverlays.add(overlay);
+    }
+
     private void addCrashCallbacks() {
         Managers.CrashReport.registerCrashContext("Loaded Overlays", () -> {
             StringBuilder result = new StringBuilder();
@@ -190,4 +275,6 @@ public final class OverlayManager extends Manager {
     public boolean isEnabled(Overlay overlay) {
         return enabledOverlays.contains(overlay);
     }
+
+    private record RenderPass(RenderEvent.ElementType type, OverlayInfo.RenderState renderState) {}
 }
@@ -8,6 +8,7 @@ import com.google.common.base.CaseFormat;
 import com.wynntils.core.features.Translatable;
 import java.util.List;
 import net.minecraft.client.resources.language.I18n;
+import net.minecraftforge.eventbus.api.Event;
 
 public abstract class Function<T> implements Translatable {
     private final String name;
@@ -29,6 +30,14 @@ public abstract class Function<T> implements Translatable {
         return List.of();
     }
 
+    /**
+     * The events after which the value of this function may have changed. Functions that declare none can change at
+     * any time, so they are checked every tick while they are being watched.
+     */
+    public List<Class<? extends Event>> getUpdateEvents() {
+        return List.of();
+    }
+
     @Override
     public String getTranslatedName() {
         return getTranslation("name");
@@ -13,30 +13,60 @@ import com.wynntils.functions.HorseFunctions;
 import com.wynntils.functions.LootrunFunctions;
 import com.wynntils.functions.MinecraftFunctions;
 import com.wynntils.functions.WorldFunction;
+import com.wynntils.mc.event.ClientTickEvent;
 import com.wynntils.mc.utils.McUtils;
 import com.wynntils.wynn.objects.EmeraldSymbols;
+import com.wynntils.wynn.utils.WynnUtils;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.minecraft.ChatFormatting;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.MutableComponent;
+import net.minecraftforge.eventbus.api.Event;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
 
 /** Manage all built-in {@link Function}s */
 public final class FunctionManager extends Manager {
     private static final Pattern INFO_VARIABLE_PATTERN =
             Pattern.compile("%([a-zA-Z_]+|%)%|\\\\([\\\\n%§EBLMH]|x[\\dA-Fa-f]{2}|u[\\dA-Fa-f]{4}|U[\\dA-Fa-f]{8})");
 
+    private static final int MAX_CACHED_TEMPLATES = 64;
+    private static final int WATCH_TIMEOUT_TICKS = 20;
+
     private final List<Function<?>> functions = new ArrayList<>();
+    private final Map<String, Function<?>> functionsByName = new HashMap<>();
     private final Set<ActiveFunction<?>> enabledFunctions = new HashSet<>();
     private final Set<Function<?>> crashedFunctions = new HashSet<>();
 
+    // Several templates often reference the same functions, so each value is only calculated once per tick
+    private final Map<Function<?>, String> tickValues = new HashMap<>();
+
+    // Values that something is waiting to change, updated at the end of every tick
+    private final Map<Function<?>, WatchedValue> watchedValues = new HashMap<>();
+    private final Set<Class<? extends Event>> listenedEvents = new HashSet<>();
+    // Events can be posted from other threads, so they are only collected here and handled on the next tick
+    private final Set<Class<? extends Event>> postedEvents = ConcurrentHashMap.newKeySet();
+    private long currentTick = 0;
+
+    private final Map<String, FunctionTemplate> templateCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FunctionTemplate> eldest) {
+            return size() > MAX_CACHED_TEMPLATES;
+        }
+    };
+
     public FunctionManager() {
         super(List.of());
         registerAllFunctions();
@@ -89,21 +119,7 @@ public final class FunctionManager extends Manager {
     }
 
     public Optional<Function<?>> forName(String functionName) {
-        for (Function<?> function : getFunctions()) {
-            if (hasName(function, functionName)) {
-                return Optional.of(function);
-            }
-        }
-
-        return Optional.empty();
-    }
-
-    private boolean hasName(Function<?> function, String name) {
-        if (function.getName().equalsIgnoreCase(name)) return true;
-        for (String alias : function.getAliases()) {
-            if (alias.equalsIgnoreCase(name)) return true;
-        }
-        return false;
+        return Optional.ofNullable(functionsByName.get(functionName.toLowerCase(Locale.ROOT)));
     }
 
     private Optional<Object> getFunctionValueSafely(Function<?> function, String argument) {
@@ -156,21 +172,90 @@ public final class FunctionManager extends Manager {
         return value.toString();
     }
 
+    private String getTickValueString(Function<?> function) {
+        // Use the same value that changes are detected with, so a template never misses one
+        WatchedValue watchedValue = watchedValues.get(function);
+        if (watchedValue != null) return watchedValue.value;
+
+        String value = tickValues.get(function);
+        if (value == null) {
+            value = getRawValueString(function, "");
+            tickValues.put(function, value);
+        }
+        return value;
+    }
+
     /**
      * Return a string, based on the template, with values filled in from the referenced
      * functions.
      */
     public Component getStringFromTemplate(String template) {
-        // FIXME: implement template parser
-        return Component.literal(template);
+        return Component.literal(fillTemplate(getTemplate(template)));
     }
 
     /**
      * Return a list of all functions referenced in a template string
      */
     public List<Function<?>> getFunctionsInTemplate(String template) {
-        // FIXME: implement template parser
-        return List.of();
+        return getTemplate(template).getFunctions();
+    }
+
+    /**
+     * Returns whether the values of the functions in a template have changed since it was last filled in.
+     *
+     * Asking starts watching these functions. Functions that declare their update events are then only recalculated
+     * after one of those, others once every poll interval. Functions that are not asked about for a second are no
+     * longer watched.
+     *
+     * @param pollIntervalTicks how often to recalculate functions that don't declare their update events
+     */
+    public boolean isOutdated(FunctionTemplate template, int pollIntervalTicks) {
+        boolean outdated = template.getFilledTick() == -1;
+
+        for (Function<?> function : template.getFunctions()) {
+            WatchedValue watchedValue = watchedValues.get(function);
+            if (watchedValue == null) {
+                watchedValue = watch(function);
+
+                // We don't know which value the template was filled in with
+                outdated = true;
+            }
+
+            // When several templates watch a function, it is polled as often as the most eager one asks for
+            if (watchedValue.lastWatchedTick == currentTick) {
+                watchedValue.pollIntervalTicks = Math.min(watchedValue.pollIntervalTicks, pollIntervalTicks);
+            } else {
+                watchedValue.pollIntervalTicks = pollIntervalTicks;
+            }
+
+            watchedValue.lastWatchedTick = currentTick;
+            if (watchedValue.changedTick > template.getFilledTick()) {
+                outdated = true;
+            }
+        }
+
+        return outdated;
+    }
+
+    private WatchedValue watch(Function<?> function) {
+        for (Class<? extends Event> eventType : function.getUpdateEvents()) {
+            if (listenedEvents.add(eventType)) {
+                WynntilsMod.registerEventListener(eventType, event -> postedEvents.add(eventType));
+            }
+        }
+
+        WatchedValue watchedValue = new WatchedValue(getRawValueString(function, ""), currentTick);
+        watchedValues.put(function, watchedValue);
+        return watchedValue;
+    }
+
+    private FunctionTemplate getTemplate(String template) {
+        FunctionTemplate compiledTemplate = templateCache.get(template);
+        if (compiledTemplate == null) {
+            compiledTemplate = compileLegacyTemplate(template);
+            templateCache.put(template, compiledTemplate);
+        }
+        return compiledTemplate;
     }
 
     public <T> void doFormat(
@@ -216,43 +301,76 @@ public final class FunctionManager extends Manager {
     // region Legacy formatting
 
     public List<Function<?>> getDependenciesFromStringLegacy(String renderableText) {
-        List<Function<?>> dependencies = new ArrayList<>();
+        return getTemplate(renderableText).getFunctions();
+    }
 
-        Matcher m = INFO_VARIABLE_PATTERN.matcher(renderableText);
-        while (m.find()) {
-            if (m.group(1) != null && forName(m.group(1)).isPresent()) {
-                // %variable%
-                Function<?> function = forName(m.group(1)).get();
-                dependencies.add(function);
-            }
-        }
+    public String[] getLinesFromLegacyTemplate(String renderableText) {
+        return getLinesFromLegacyTemplate(getTemplate(renderableText));
+    }
 
-        return dependencies;
+    public String[] getLinesFromLegacyTemplate(FunctionTemplate template) {
+        return fillTemplate(template).split("\n");
     }
 
-    public String[] getLinesFromLegacyTemplate(String renderableText) {
-        StringBuilder builder = new StringBuilder(renderableText.length() + 10);
+    /**
+     * Parses a template once, so it can be filled in again and again without going through the text
+     */
+    public FunctionTemplate compileLegacyTemplate(String renderableText) {
+        List<FunctionTemplate.Part> parts = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+
         Matcher m = INFO_VARIABLE_PATTERN.matcher(renderableText);
+        int textStart = 0;
         while (m.find()) {
-            String replacement = null;
-            if (m.group(1) != null && forName(m.group(1)).isPresent()) {
+            text.append(renderableText, textStart, m.start());
+            textStart = m.end();
+
+            Optional<Function<?>> function = m.group(1) != null ? forName(m.group(1)) : Optional.empty();
+            if (function.isPresent()) {
                 // %variable%
-                Function<?> function = forName(m.group(1)).get();
+                addTextPart(parts, text);
+                parts.add(new FunctionTemplate.Part(null, function.get()));
+                continue;
+            }
 
-                replacement = getRawValueString(function, "");
-            } else if (m.group(2) != null) {
+            String replacement = null;
+            if (m.group(2) != null) {
                 // \escape
                 replacement = doEscapeFormat(m.group(2));
             }
             if (replacement == null) {
-                replacement = m.group(0);
+                // Unsupported escapes lose their backslash, unknown variables are kept as they are
+                replacement = m.group(1) != null ? m.group(0) : m.group(0).substring(1);
+            }
+            text.append(replacement);
+        }
+        text.append(renderableText, textStart, renderableText.length());
+        addTextPart(parts, text);
+
+        return new FunctionTemplate(parts, renderableText.length());
+    }
+
+    private void addTextPart(List<FunctionTemplate.Part> parts, StringBuilder text) {
+        if (text.isEmpty()) return;
+
+        parts.add(new FunctionTemplate.Part(parseColorCodes(text.toString()), null));
+        text.setLength(0);
+    }
+
+    private String fillTemplate(FunctionTemplate template) {
+        StringBuilder builder = template.getBuffer();
+        for (FunctionTemplate.Part part : template.getParts()) {
+            if (part.function() == null) {
+                builder.append(part.text());
+                continue;
             }
 
-            m.appendReplacement(builder, replacement);
+            String value = getTickValueString(part.function());
+            builder.append(value.indexOf('&') == -1 ? value : parseColorCodes(value));
         }
-        m.appendTail(builder);
 
-        return parseColorCodes(builder.toString()).split("\n");
+        template.setFilledTick(currentTick);
+        return builder.toString();
     }
 
     private String parseColorCodes(String toProcess) {
@@ -277,7 +395,7 @@ public final class FunctionManager extends Manager {
 
     private String doEscapeFormat(String escaped) {
         return switch (escaped) {
-            case "\\" -> "\\\\";
+            case "\\" -> "\\";
             case "n" -> "\n";
             case "%" -> "%";
             case "§" -> "&";
@@ -291,8 +409,63 @@ public final class FunctionManager extends Manager {
     }
     // endregion
 
+    @SubscribeEvent
+    public void onTick(ClientTickEvent.Start event) {
+        tickValues.clear();
+    }
+
+    @SubscribeEvent
+    public void onTickEnd(ClientTickEvent.End event) {
+        currentTick++;
+
+        Set<Class<? extends Event>> events = new HashSet<>();
+        Iterator<Class<? extends Event>> eventIterator = postedEvents.iterator();
+        while (eventIterator.hasNext()) {
+            events.add(eventIterator.next());
+            eventIterator.remove();
+        }
+
+        // Most functions only make sense in a world, and nothing shows their values elsewhere
+        if (!WynnUtils.onWorld()) {
+            watchedValues.clear();
+            return;
+        }
+
+        Iterator<Map.Entry<Function<?>, WatchedValue>> iterator = watchedValues.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Function<?>, WatchedValue> entry = iterator.next();
+            Function<?> function = entry.getKey();
+            WatchedValue watchedValue = entry.getValue();
+
+            if (currentTick - watchedValue.lastWatchedTick > WATCH_TIMEOUT_TICKS) {
+                iterator.remove();
+                continue;
+            }
+
+            List<Class<? extends Event>> updateEvents = function.getUpdateEvents();
+            if (updateEvents.isEmpty()) {
+                if (currentTick - watchedValue.polledTick < watchedValue.pollIntervalTicks) continue;
+            } else if (updateEvents.stream().noneMatch(events::contains)) {
+                continue;
+            }
+
+            watchedValue.polledTick = currentTick;
+            String value = getRawValueString(function, "");
+            if (!value.equals(watchedValue.value)) {
+                watchedValue.value = value;
+                watchedValue.changedTick = currentTick;
+            }
+        }
+    }
+
     private void registerFunction(Function<?> function) {
         functions.add(function);
+
+        // Names are looked up in the order the functions were registered
+        functionsByName.putIfAbsent(function.getName().toLowerCase(Locale.ROOT), function);
+        for (String alias : function.getAliases()) {
+            functionsByName.putIfAbsent(alias.toLowerCase(Locale.ROOT), function);
+        }
     }
 
     private void registerAllFunctions() {
@@ -358,4 +531,19 @@ public final class FunctionManager extends Manager {
         registerFunction(new MinecraftFunctions.YFunction());
         registerFunction(new MinecraftFunctions.ZFunction());
     }
+
+    private static final class WatchedValue {
+        private String value;
+        private long changedTick;
+        private long lastWatchedTick;
+        private long polledTick;
+        private int pollIntervalTicks = 1;
+
+        private WatchedValue(String value, long changedTick) {
+            this.value = value;
+            this.changedTick = changedTick;
+            this.lastWatchedTick = changedTick;
+            this.polledTick = changedTick;
+        }
+    }
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.core.functions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A template that has been parsed once by the {@link FunctionManager}, so filling it in only needs to look up the
+ * values of the functions it references.
+ */
+public final class FunctionTemplate {
+    private final List<Part> parts;
+    private final List<Function<?>> functions;
+
+    // Templates are filled in on the render thread, so the same buffer can be used every time
+    private final StringBuilder buffer;
+    private long filledTick = -1;
+
+    FunctionTemplate(List<Part> parts, int length) {
+        this.parts = List.copyOf(parts);
+        this.buffer = new StringBuilder(length + 16);
+
+        List<Function<?>> functions = new ArrayList<>();
+        for (Part part : parts) {
+            if (part.function() != null) {
+                functions.add(part.function());
+            }
+        }
+        this.functions = List.copyOf(functions);
+    }
+
+    /**
+     * Returns all functions referenced in this template, in order
+     */
+    public List<Function<?>> getFunctions() {
+        return functions;
+    }
+
+    List<Part> getParts() {
+        return parts;
+    }
+
+    long getFilledTick() {
+        return filledTick;
+    }
+
+    void setFilledTick(long filledTick) {
+        this.filledTick = filledTick;
+    }
+
+    StringBuilder getBuffer() {
+        buffer.setLength(0);
+        return buffer;
+    }
+
+    /**
+     * Either text, with its escapes and color codes already resolved, or a function to fill in
+     */
+    record Part(String text, Function<?> function) {}
+}
@@ -4,23 +4,36 @@
  */
 package com.wynntils.core.net;
 
-import com.wynntils.core.components.Managers;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.concurrent.CompletableFuture;
 
 public class ApiResponse extends NetResult {
-    public ApiResponse(HttpRequest request) {
-        super(request);
+    // Identifies the request, so identical requests in flight at the same time can share a response
+    private final String requestKey;
+
+    public ApiResponse(HttpRequest request, String requestKey) {
+        super(request, RequestPriority.USER_INITIATED);
+        this.requestKey = requestKey;
+    }
+
+    public ApiResponse withPriority(RequestPriority priority) {
+        setPriority(priority);
+        return this;
     }
 
     @Override
     protected CompletableFuture<InputStream> getInputStreamFuture() {
-        CompletableFuture<InputStream> future = Managers.Net.HTTP_CLIENT
-                .sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
-                .thenApply(HttpResponse::body);
-
-        return future;
+        // The body is read into memory, so every caller sharing the response gets its own stream
+        RequestPriority priority = getPriority();
+        return NetManager.SCHEDULER
+                .deduplicate(
+                        requestKey,
+                        priority,
+                        () -> NetManager.SCHEDULER.send(
+                                request, HttpResponse.BodyHandlers.ofByteArray(), priority, requestKey))
+                .thenApply(response -> new ByteArrayInputStream(response.body()));
     }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.core.net;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.wynntils.core.WynntilsMod;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * The ETag and Last-Modified headers a cached download was served with. They are kept in a file next to the cached
+ * file, and sent back when downloading it again, so the server can answer "not modified" instead of sending it all.
+ */
+record CacheValidators(String etag, String lastModified) {
+    private static final String FILE_EXTENSION = ".validators";
+
+    static CacheValidators fromHeaders(HttpHeaders headers) {
+        return new CacheValidators(
+                headers.firstValue("ETag").orElse(null),
+                headers.firstValue("Last-Modified").orElse(null));
+    }
+
+    static CacheValidators read(File cachedFile) {
+        File file = getFile(cachedFile);
+        if (!file.exists()) return null;
+
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+            CacheValidators validators = new CacheValidators(
+                    json.has("etag") ? json.get("etag").getAsString() : null,
+                    json.has("lastModified") ? json.get("lastModified").getAsString() : null);
+            return validators.isEmpty() ? null : validators;
+        } catch (IOException | RuntimeException e) {
+            WynntilsMod.warn("Could not read cache validators " + file, e);
+            return null;
+        }
+    }
+
+    static void delete(File cachedFile) {
+        getFile(cachedFile).delete();
+    }
+
+    void write(File cachedFile) {
+        File file = getFile(cachedFile);
+        if (isEmpty()) {
+            file.delete();
+            return;
+        }
+
+        JsonObject json = new JsonObject();
+        if (etag != null) {
+            json.addProperty("etag", etag);
+        }
+        if (lastModified != null) {
+            json.addProperty("lastModified", lastModified);
+        }
+
+        try {
+            Files.writeString(file.toPath(), json.toString(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            WynntilsMod.warn("Could not write cache validators " + file, e);
+        }
+    }
+
+    HttpRequest addTo(HttpRequest request) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request, (name, value) -> true);
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            builder.header("If-Modified-Since", lastModified);
+        }
+        return builder.build();
+    }
+
+    private boolean isEmpty() {
+        return etag == null && lastModified == null;
+    }
+
+    private static File getFile(File cachedFile) {
+        return new File(cachedFile.getPath() + FILE_EXTENSION);
+    }
+}
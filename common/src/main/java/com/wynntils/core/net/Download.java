@@ -5,38 +5,67 @@
 package com.wynntils.core.net;
 
 import com.wynntils.core.WynntilsMod;
-import com.wynntils.core.components.Managers;
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.OptionalLong;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import org.apache.commons.io.FileUtils;
 
+/**
+ * A file downloaded to the local cache.
+ *
+ * The cached copy is only replaced once a new copy has been downloaded completely, and is used if downloading fails.
+ * Downloads send the validators of the cached copy, so unchanged files are not downloaded again. With
+ * {@link #revalidateInBackground()}, the cached copy is handled right away, and the new copy is handled as well if the
+ * file turns out to have changed.
+ */
 public class Download extends NetResult {
     private final File localFile;
+    private boolean revalidateInBackground = false;
+
+    // Completes with the new copy of the file after a background revalidation, or null if it was unchanged
+    private CompletableFuture<InputStream> revalidation = null;
 
     // Saved since we might need to get timestamps from the HttpResponse
     private CompletableFuture<HttpResponse<Path>> httpResponse = null;
 
     public Download(File localFile) {
-        super(null); // Only use cached file
+        super(null, RequestPriority.BACKGROUND); // Only use cached file
         this.localFile = localFile;
     }
 
     public Download(File localFile, HttpRequest request) {
-        super(request);
+        super(request, RequestPriority.BACKGROUND);
         this.localFile = localFile;
     }
 
+    public Download withPriority(RequestPriority priority) {
+        setPriority(priority);
+        return this;
+    }
+
+    /**
+     * Handle the cached copy, if there is one, without waiting for the download. Handlers are called a second time
+     * if the downloaded file is different, so this is only for handlers that replace what they loaded before.
+     */
+    public Download revalidateInBackground() {
+        revalidateInBackground = true;
+        return this;
+    }
+
     public long getResponseTimestamp() {
         if (httpResponse == null) {
             // We have either not yet made the request, or we have read from the cache
@@ -59,37 +88,109 @@ public class Download extends NetResult {
         if (request == null) {
             // File is already in downloaded, just read from the cache
             return CompletableFuture.supplyAsync(this::getFileInputStreamFromCache);
-        } else {
-            prepareForDownload();
-            return getDownloadInputStreamFuture().thenApply(response -> getFileInputStreamFromCache());
         }
+
+        if (revalidateInBackground && hasCachedCopy()) {
+            revalidation = downloadToCache().thenApply(changed -> changed ? getFileInputStreamFromCache() : null);
+            return CompletableFuture.supplyAsync(this::getFileInputStreamFromCache);
+        }
+
+        return downloadToCache().handle((changed, exception) -> {
+            if (exception != null) {
+                if (!hasCachedCopy()) throw new CompletionException(exception);
+
+                WynntilsMod.warn("Failed to download " + request.uri() + ", using cached copy", exception);
+            }
+
+            return getFileInputStreamFromCache();
+        });
     }
 
-    private CompletableFuture<HttpResponse<Path>> getDownloadInputStreamFuture() {
-        CompletableFuture<HttpResponse<Path>> future =
-                Managers.Net.HTTP_CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofFile(localFile.toPath()));
+    @Override
+    protected CompletableFuture<InputStream> getRevalidatedInputStreamFuture() {
+        return revalidation;
+    }
+
+    // Completes with whether the cached file was changed
+    private CompletableFuture<Boolean> downloadToCache() {
+        // Downloads of the same file at the same time would overwrite each other, so they share one request
+        String requestKey = "GET " + request.uri() + " > " + localFile.getAbsolutePath();
+        CompletableFuture<HttpResponse<Path>> future = NetManager.SCHEDULER.deduplicate(
+                requestKey, getPriority(), () -> sendConditionalRequest(requestKey));
 
         // We must save the response so we can get the timestamp
         this.httpResponse = future;
-        return future;
+
+        return future.thenApply(response -> response.statusCode() == 200);
     }
 
-    private InputStream getFileInputStreamFromCache() {
+    private CompletableFuture<HttpResponse<Path>> sendConditionalRequest(String requestKey) {
+        CacheValidators validators = hasCachedCopy() ? CacheValidators.read(localFile) : null;
+        HttpRequest conditionalRequest = validators != null ? validators.addTo(request) : request;
+
+        File tempFile;
         try {
-            return new FileInputStream(localFile);
-        } catch (FileNotFoundException e) {
-            // This should not happen; we have checked for the file
-            WynntilsMod.error("File went missing from cache", e);
-            return new ByteArrayInputStream(new byte[0]);
+            FileUtils.forceMkdirParent(localFile);
+            tempFile = File.createTempFile(localFile.getName(), ".part", localFile.getParentFile());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
         }
+
+        // Only successful responses are written to disk, so error pages never end up in the cache
+        HttpResponse.BodyHandler<Path> bodyHandler = responseInfo -> responseInfo.statusCode() == 200
+                ? HttpResponse.BodySubscribers.ofFile(
+                        tempFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                : HttpResponse.BodySubscribers.replacing(null);
+
+        return NetManager.SCHEDULER
+                .send(conditionalRequest, bodyHandler, getPriority(), requestKey)
+                .thenApply(response -> {
+                    if (response.statusCode() == 304 && validators != null) return response;
+
+                    if (response.statusCode() != 200) {
+                        throw new CompletionException(new IOException(
+                                "Unexpected status " + response.statusCode() + " for " + request.uri()));
+                    }
+
+                    replaceCachedCopy(tempFile, CacheValidators.fromHeaders(response.headers()));
+                    return response;
+                })
+                .whenComplete((response, exception) -> FileUtils.deleteQuietly(tempFile));
     }
 
-    private void prepareForDownload() {
-        FileUtils.deleteQuietly(localFile);
+    private void replaceCachedCopy(File newCopy, CacheValidators validators) {
+        // Remove the old validators first, so they are never paired with the wrong copy
+        CacheValidators.delete(localFile);
+
         try {
-            FileUtils.forceMkdirParent(localFile);
+            try {
+                Files.move(
+                        newCopy.toPath(),
+                        localFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(newCopy.toPath(), localFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        validators.write(localFile);
+    }
+
+    private boolean hasCachedCopy() {
+        return localFile.exists() && localFile.length() > 0;
+    }
+
+    private InputStream getFileInputStreamFromCache() {
+        try {
+            // Unlike FileInputStream, this allows the file to be replaced while it is read, also on Windows
+            return Files.newInputStream(localFile.toPath());
         } catch (IOException e) {
-            WynntilsMod.error("Failed to create directories needed for " + localFile, e);
+            // This should not happen; we have checked for the file
+            WynntilsMod.error("File went missing from cache", e);
+            return new ByteArrayInputStream(new byte[0]);
         }
     }
 }
@@ -23,6 +23,7 @@ import org.apache.commons.codec.digest.DigestUtils;
 
 public final class NetManager extends Manager {
     static final HttpClient HTTP_CLIENT = HttpClient.newHttpClient();
+    static final RequestScheduler SCHEDULER = new RequestScheduler(HTTP_CLIENT);
 
     private static final int REQUEST_TIMEOUT_MILLIS = 10000;
     private static final File CACHE_DIR = WynntilsMod.getModStorageDir("cache");
@@ -48,6 +49,13 @@ public final class NetManager extends Manager {
         return callApi(urlId, Map.of());
     }
 
+    /**
+     * Calls an API that is not in the url list, like a local stand-in for one that is
+     */
+    public ApiResponse callApi(UrlManager.UrlInfo urlInfo, Map<String, String> arguments) {
+        return createApiResponse(urlInfo, arguments);
+    }
+
     public Download download(URI uri, File file) {
         return new Download(file, createGetRequest(uri));
     }
@@ -57,6 +65,8 @@ public final class NetManager extends Manager {
             return new Download(file);
         }
 
+        // The cached copy is outdated or broken, so the server must not be allowed to tell us to keep it
+        CacheValidators.delete(file);
         return download(uri, file);
     }
 
@@ -120,7 +130,7 @@ public final class NetManager extends Manager {
         if (urlInfo.method() == UrlManager.Method.GET) {
             URI uri = URI.create(Managers.Url.buildUrl(urlInfo, arguments));
             HttpRequest request = createGetRequest(uri);
-            return new ApiResponse(request);
+            return new ApiResponse(request, "GET " + uri);
         } else {
             assert (urlInfo.method() == UrlManager.Method.POST);
 
@@ -129,7 +139,7 @@ public final class NetManager extends Manager {
 
             URI uri = URI.create(urlInfo.url());
             HttpRequest request = createPostRequest(uri, jsonArgs);
-            return new ApiResponse(request);
+            return new ApiResponse(request, "POST " + uri + " " + jsonArgs);
         }
     }
 
@@ -22,9 +22,11 @@ public abstract class NetResult {
             (exception) -> WynntilsMod.warn("Error while processing network request", exception);
 
     protected final HttpRequest request;
+    private RequestPriority priority;
 
-    protected NetResult(HttpRequest request) {
+    protected NetResult(HttpRequest request, RequestPriority priority) {
         this.request = request;
+        this.priority = priority;
     }
 
     public void handleInputStream(Consumer<InputStream> handler, Consumer<Throwable> onError) {
@@ -67,6 +69,22 @@ public abstract class NetResult {
                     onError.accept(e);
                     return null;
                 });
+
+        CompletableFuture<InputStream> revalidated = getRevalidatedInputStreamFuture();
+        if (revalidated == null) return;
+
+        // Only hand over the new result after the first one has been handled
+        future.thenCompose(ignored -> revalidated)
+                .thenAccept(inputStream -> {
+                    if (inputStream != null) {
+                        wrappingHandler(onCompletion).accept(inputStream);
+                    }
+                })
+                .exceptionally(e -> {
+                    // The handler already has a result, so this is not worth bothering it with
+                    WynntilsMod.warn("Error while revalidating network resource", e);
+                    return null;
+                });
     }
 
     private Consumer<InputStream> wrappingHandler(Consumer<InputStream> c) {
@@ -87,5 +105,21 @@ public abstract class NetResult {
         };
     }
 
+    protected RequestPriority getPriority() {
+        return priority;
+    }
+
+    protected void setPriority(RequestPriority priority) {
+        this.priority = priority;
+    }
+
     protected abstract CompletableFuture<InputStream> getInputStreamFuture();
+
+    /**
+     * Returns a future for a newer result, to be handled after the one from {@link #getInputStreamFuture()}, or null
+     * if there will be none. The future completes with null if the first result turns out to be up to date.
+     */
+    protected CompletableFuture<InputStream> getRevalidatedInputStreamFuture() {
+        return null;
+    }
 }
@@ -0,0 +1,15 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.core.net;
+
+/**
+ * When several requests to the same host are waiting, requests with a higher priority are sent first.
+ */
+public enum RequestPriority {
+    // Something the user is waiting for, like a lookup they asked for
+    USER_INITIATED,
+    // Loading or refreshing data in the background
+    BACKGROUND
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.core.net;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Sends all HTTP requests of the mod.
+ *
+ * Only a few requests are sent to each host at the same time; the rest wait in a queue ordered by
+ * {@link RequestPriority}. Requests that fail in a way that might go away by itself are retried with exponential
+ * backoff, and identical requests that are in flight at the same time can share a single response.
+ */
+final class RequestScheduler {
+    private static final int MAX_REQUESTS_PER_HOST = 4;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BASE_DELAY_MILLIS = 500;
+    private static final Set<Integer> RETRY_STATUS_CODES = Set.of(429, 502, 503, 504);
+
+    private final HttpClient httpClient;
+
+    // Both guarded by this
+    private final Map<String, HostQueue> hostQueues = new HashMap<>();
+    private final Map<String, InFlightRequest> inFlight = new HashMap<>();
+    private long nextSequence = 0;
+
+    RequestScheduler(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    <T> CompletableFuture<HttpResponse<T>> send(
+            HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, RequestPriority priority) {
+        return send(request, bodyHandler, priority, null);
+    }
+
+    /**
+     * Sends a request that was started by {@link #deduplicate}, so it is moved up the queue when a caller with a
+     * higher priority starts sharing it.
+     */
+    <T> CompletableFuture<HttpResponse<T>> send(
+            HttpRequest request,
+            HttpResponse.BodyHandler<T> bodyHandler,
+            RequestPriority priority,
+            String deduplicationKey) {
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        sendAttempt(request, bodyHandler, priority, deduplicationKey, 1, result);
+        return result;
+    }
+
+    /**
+     * Returns the future for the request with the given key if one is in flight, or starts it with the supplier.
+     * Callers sharing a future must not consume its result in ways that affect each other.
+     */
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<T> deduplicate(String key, RequestPriority priority, Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> shared;
+        synchronized (this) {
+            InFlightRequest existing = inFlight.get(key);
+            if (existing != null) {
+                if (priority.compareTo(existing.priority) < 0) {
+                    raisePriority(key, existing, priority);
+                }
+                return (CompletableFuture<T>) existing.future;
+            }
+
+            shared = new CompletableFuture<>();
+            inFlight.put(key, new InFlightRequest(shared, priority));
+        }
+
+        CompletableFuture<T> future;
+        try {
+            future = request.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        future.whenComplete((result, exception) -> {
+            // Removed first, so anyone reacting to the result can start a new request
+            removeInFlight(key, shared);
+
+            if (exception != null) {
+                shared.completeExceptionally(exception);
+            } else {
+                shared.complete(result);
+            }
+        });
+        return shared;
+    }
+
+    private synchronized void removeInFlight(String key, CompletableFuture<?> future) {
+        InFlightRequest request = inFlight.get(key);
+        if (request != null && request.future == future) {
+            inFlight.remove(key);
+        }
+    }
+
+    // Must hold the lock
+    private void raisePriority(String key, InFlightRequest request, RequestPriority priority) {
+        request.priority = priority;
+
+        for (HostQueue hostQueue : hostQueues.values()) {
+            List<QueuedRequest> raised = new ArrayList<>();
+            hostQueue.queue.removeIf(queued -> {
+                if (!key.equals(queued.deduplicationKey())) return false;
+
+                raised.add(new QueuedRequest(priority, queued.sequence(), key, queued.start()));
+                return true;
+            });
+            hostQueue.queue.addAll(raised);
+        }
+    }
+
+    private <T> void sendAttempt(
+            HttpRequest request,
+            HttpResponse.BodyHandler<T> bodyHandler,
+            RequestPriority priority,
+            String deduplicationKey,
+            int attempt,
+            CompletableFuture<HttpResponse<T>> result) {
+        String host = String.valueOf(request.uri().getHost());
+
+        enqueue(host, priority, deduplicationKey, () -> {
+            CompletableFuture<HttpResponse<T>> future;
+            try {
+                future = httpClient.sendAsync(request, bodyHandler);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+
+            future.whenComplete((response, exception) -> {
+                onRequestDone(host);
+
+                if (shouldRetry(request, response, exception) && attempt < MAX_ATTEMPTS) {
+                    long delay = RETRY_BASE_DELAY_MILLIS << (attempt - 1);
+                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                            .execute(() -> sendAttempt(
+                                    request, bodyHandler, priority, deduplicationKey, attempt + 1, result));
+                    return;
+                }
+
+                if (exception != null) {
+                    result.completeExceptionally(exception);
+                } else {
+                    result.complete(response);
+                }
+            });
+        });
+    }
+
+    private static boolean shouldRetry(HttpRequest request, HttpResponse<?> response, Throwable exception) {
+        // Requests with side effects might have gone through, so don't risk sending them twice
+        if (!request.method().equals("GET")) return false;
+
+        if (exception != null) {
+            Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+            return cause instanceof IOException;
+        }
+
+        return RETRY_STATUS_CODES.contains(response.statusCode());
+    }
+
+    private void enqueue(String host, RequestPriority priority, String deduplicationKey, Runnable start) {
+        synchronized (this) {
+            // A caller that joined while this was waiting for a retry may have raised its priority
+            InFlightRequest inFlightRequest = deduplicationKey != null ? inFlight.get(deduplicationKey) : null;
+            if (inFlightRequest != null && inFlightRequest.priority.compareTo(priority) < 0) {
+                priority = inFlightRequest.priority;
+            }
+
+            hostQueues
+                    .computeIfAbsent(host, k -> new HostQueue())
+                    .queue
+                    .add(new QueuedRequest(priority, nextSequence++, deduplicationKey, start));
+        }
+
+        startQueued(host);
+    }
+
+    private void onRequestDone(String host) {
+        synchronized (this) {
+            hostQueues.get(host).running--;
+        }
+
+        startQueued(host);
+    }
+
+    private void startQueued(String host) {
+        while (true) {
+            QueuedRequest next;
+            synchronized (this) {
+                HostQueue hostQueue = hostQueues.get(host);
+                if (hostQueue.running >= MAX_REQUESTS_PER_HOST || hostQueue.queue.isEmpty()) return;
+
+                next = hostQueue.queue.poll();
+                hostQueue.running++;
+            }
+
+            // Started outside the lock, as sending can complete right away and call back into the scheduler
+            next.start().run();
+        }
+    }
+
+    private record QueuedRequest(RequestPriority priority, long sequence, String deduplicationKey, Runnable start) {
+        private static final Comparator<QueuedRequest> ORDER =
+                Comparator.comparing(QueuedRequest::priority).thenComparingLong(QueuedRequest::sequence);
+    }
+
+    private static final class InFlightRequest {
+        private final CompletableFuture<?> future;
+        private RequestPriority priority;
+
+        private InFlightRequest(CompletableFuture<?> future, RequestPriority priority) {
+            this.future = future;
+            this.priority = priority;
+        }
+    }
+
+    private static final class HostQueue {
+        private final PriorityQueue<QueuedRequest> queue = new PriorityQueue<>(QueuedRequest.ORDER);
+        private int running = 0;
+    }
+}
@@ -19,6 +19,7 @@ public enum UrlId {
     API_ATHENA_AUTH_RESPONSE("apiAthenaAuthResponse"),
     API_ATHENA_UPDATE_CHECK("apiAthenaUpdateCheck"),
     API_ATHENA_USER_INFO("apiAthenaUserInfo"),
+    API_ATHENA_USER_INFO_BULK("apiAthenaUserInfoBulk"),
     API_GOOGLE_TRANSLATION("apiGoogleTranslation"),
     API_WIKI_DISCOVERY_QUERY("apiWikiDiscoveryQuery"),
     API_WIKI_QUEST_PAGE_QUERY("apiWikiQuestPageQuery"),
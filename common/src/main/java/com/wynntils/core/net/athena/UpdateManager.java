@@ -9,6 +9,7 @@ import com.wynntils.core.components.Manager;
 import com.wynntils.core.components.Managers;
 import com.wynntils.core.net.ApiResponse;
 import com.wynntils.core.net.NetManager;
+import com.wynntils.core.net.RequestPriority;
 import com.wynntils.core.net.UrlId;
 import com.wynntils.utils.FileUtils;
 import java.io.File;
@@ -33,7 +34,8 @@ public final class UpdateManager extends Manager {
     public CompletableFuture<String> getLatestBuild() {
         CompletableFuture<String> future = new CompletableFuture<>();
 
-        ApiResponse apiResponse = Managers.Net.callApi(UrlId.API_ATHENA_UPDATE_CHECK);
+        ApiResponse apiResponse =
+                Managers.Net.callApi(UrlId.API_ATHENA_UPDATE_CHECK).withPriority(RequestPriority.BACKGROUND);
         apiResponse.handleJsonObject(
                 json -> {
                     String version = json.getAsJsonPrimitive("version").getAsString();
@@ -0,0 +1,122 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.core.net.athena;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.wynntils.core.WynntilsMod;
+import com.wynntils.core.components.Managers;
+import com.wynntils.core.net.UrlId;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A local stand-in for Athena's bulk user lookup, for testing the batched lookups in development builds.
+ *
+ * It serves the bulk endpoint on localhost and answers it by looking every player up through the single user endpoint
+ * of Athena, so the result is the same as the real bulk lookup would give.
+ */
+public final class UserInfoStandIn {
+    private static final String PATH = "/user/getInfoBulk";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private HttpServer server;
+
+    /**
+     * Starts serving the bulk lookup, if it isn't served yet, and returns its URL
+     */
+    public synchronized String start() throws IOException {
+        if (server == null) {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.createContext(PATH, this::handleBulkLookup);
+            server.start();
+        }
+
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + PATH;
+    }
+
+    public synchronized void stop() {
+        if (server == null) return;
+
+        server.stop(0);
+        server = null;
+    }
+
+    private void handleBulkLookup(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            JsonObject response = new JsonObject();
+            int status = 200;
+
+            try (InputStream body = exchange.getRequestBody()) {
+                JsonObject request = JsonParser.parseReader(new InputStreamReader(body, StandardCharsets.UTF_8))
+                        .getAsJsonObject();
+                response.add("users", lookUpUsers(request.get("uuids").getAsString()));
+            } catch (RuntimeException e) {
+                WynntilsMod.warn("Stand-in user lookup failed", e);
+                status = 500;
+            }
+
+            byte[] responseBytes = response.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, responseBytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(responseBytes);
+            }
+        }
+    }
+
+    private JsonObject lookUpUsers(String uuidList) {
+        URI userInfoUri = URI.create(Managers.Url.getUrl(UrlId.API_ATHENA_USER_INFO));
+
+        // Look all players up at once, like the real bulk lookup would
+        List<String> uuids = new ArrayList<>();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (String uuid : uuidList.split(",")) {
+            if (uuid.isBlank()) continue;
+
+            JsonObject arguments = new JsonObject();
+            arguments.addProperty("uuid", uuid);
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(userInfoUri)
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(arguments.toString()))
+                    .build();
+
+            uuids.add(uuid);
+            responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+
+        JsonObject users = new JsonObject();
+        for (int i = 0; i < uuids.size(); i++) {
+            // Players without an account are left out, like the real bulk lookup does
+            JsonElement user = JsonParser.parseString(responses.get(i).join().body())
+                    .getAsJsonObject()
+                    .get("user");
+            if (user != null && user.isJsonObject()) {
+                users.add(uuids.get(i), user);
+            }
+        }
+
+        return users;
+    }
+}
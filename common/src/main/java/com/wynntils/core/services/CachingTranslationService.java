@@ -4,34 +4,31 @@
  */
 package com.wynntils.core.services;
 
-import com.google.gson.reflect.TypeToken;
 import com.wynntils.core.WynntilsMod;
 import com.wynntils.utils.TaskUtils;
 import java.io.File;
-import java.io.IOException;
-import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
-import org.apache.commons.io.FileUtils;
 
 public abstract class CachingTranslationService implements TranslationService {
     private static final File TRANSLATION_CACHE_ROOT = WynntilsMod.getModStorageDir("translationcache");
+    private static final int MAX_CACHED_TRANSLATIONS = 4096;
 
-    // Map language code (String) to a translation map (String -> String)
-    private static Map<String, ConcurrentHashMap<String, String>> translationCaches = new HashMap<>();
-    private static int counter;
+    private static final TranslationCache translationCache = new TranslationCache(
+            MAX_CACHED_TRANSLATIONS,
+            new File(TRANSLATION_CACHE_ROOT, "translations.log"),
+            new File(TRANSLATION_CACHE_ROOT, "translations.json"));
+
+    // Handlers waiting for a translation that has been requested, so the same message is only translated once
+    private static final Map<TranslationCache.Key, List<Consumer<String>>> pendingTranslations = new HashMap<>();
 
     protected abstract void translateNew(String message, String toLanguage, Consumer<String> handleTranslation);
 
     protected void saveTranslation(String toLanguage, String message, String translatedMessage) {
-        Map<String, String> translationCache = translationCaches.get(toLanguage);
-        translationCache.put(message, translatedMessage);
-        if (++counter % 16 == 0) {
-            // Persist translation cache in background
-            TaskUtils.runAsync(CachingTranslationService::saveTranslationCache);
-        }
+        translationCache.put(toLanguage, message, translatedMessage);
     }
 
     @Override
@@ -41,48 +38,60 @@ public abstract class CachingTranslationService implements TranslationService {
             return;
         }
 
-        Map<String, String> translationCache =
-                translationCaches.computeIfAbsent(toLanguage, k -> new ConcurrentHashMap<>());
-        String cachedTranslation = translationCache.get(message);
+        String cachedTranslation = translationCache.get(toLanguage, message);
         if (cachedTranslation != null) {
             TaskUtils.runAsync(() -> handleTranslation.accept(cachedTranslation));
             return;
         }
 
-        translateNew(message, toLanguage, handleTranslation);
-    }
+        TranslationCache.Key key = new TranslationCache.Key(toLanguage, message);
+        synchronized (pendingTranslations) {
+            List<Consumer<String>> waiting = pendingTranslations.get(key);
+            if (waiting != null) {
+                waiting.add(handleTranslation);
+                return;
+            }
+
+            waiting = new ArrayList<>();
+            waiting.add(handleTranslation);
+            pendingTranslations.put(key, waiting);
+        }
 
-    public static synchronized void saveTranslationCache() {
         try {
-            if (translationCaches == null) return;
+            translateNew(message, toLanguage, translatedMessage -> {
+                List<Consumer<String>> waiting;
+                synchronized (pendingTranslations) {
+                    waiting = pendingTranslations.remove(key);
+                }
 
-            File f = new File(TRANSLATION_CACHE_ROOT, "translations.json");
-            String json = WynntilsMod.GSON.toJson(translationCaches);
-            FileUtils.writeStringToFile(f, json, "UTF-8");
-        } catch (IOException e) {
-            WynntilsMod.error("Error when trying to save translation cache.", e);
-        }
-    }
+                // Only the first result is handed out, in case a service reports more than once
+                if (waiting == null) return;
 
-    public static synchronized void loadTranslationCache() {
-        File f = new File(TRANSLATION_CACHE_ROOT, "translations.json");
+                for (Consumer<String> handler : waiting) {
+                    handler.accept(translatedMessage);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Nothing else will answer the waiting handlers, and the message is translated again the next time
+            WynntilsMod.warn("Failed to translate message", e);
+            List<Consumer<String>> waiting;
+            synchronized (pendingTranslations) {
+                waiting = pendingTranslations.remove(key);
+            }
 
-        if (!f.exists()) {
-            translationCaches = new HashMap<>();
-            return;
-        }
+            if (waiting == null) return;
 
-        try {
-            String json = FileUtils.readFileToString(f, "UTF-8");
-
-            Type type = new TypeToken<HashMap<String, ConcurrentHashMap<String, String>>>() {}.getType();
-            translationCaches = WynntilsMod.GSON.fromJson(json, type);
-        } catch (IOException e) {
-            WynntilsMod.error("Error when trying to load translation cache.", e);
-        } finally {
-            if (translationCaches == null) {
-                translationCaches = new HashMap<>();
+            for (Consumer<String> handler : waiting) {
+                handler.accept(null);
             }
         }
     }
+
+    public static void saveTranslationCache() {
+        translationCache.compactNow();
+    }
+
+    public static void loadTranslationCache() {
+        translationCache.load();
+    }
 }
@@ -6,6 +6,7 @@ package com.wynntils.core.services;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 import com.wynntils.core.components.Managers;
 import com.wynntils.core.net.ApiResponse;
 import com.wynntils.core.net.UrlId;
@@ -31,17 +32,24 @@ public class GoogleApiTranslationService extends CachingTranslationService {
         arguments.put("text", message);
 
         ApiResponse apiResponse = Managers.Net.callApi(UrlId.API_GOOGLE_TRANSLATION, arguments);
-        apiResponse.handleJsonArray(
-                json -> {
-                    StringBuilder builder = new StringBuilder();
-                    JsonArray array = json.get(0).getAsJsonArray();
-                    for (JsonElement elem : array) {
-                        String part = elem.getAsJsonArray().get(0).getAsString();
-                        builder.append(part);
+        // The reply is parsed here, so a broken reply, like one when rate limited, still gets an answer to the handler
+        apiResponse.handleReader(
+                reader -> {
+                    String translatedMessage = null;
+                    try {
+                        JsonArray json = JsonParser.parseReader(reader).getAsJsonArray();
+                        StringBuilder builder = new StringBuilder();
+                        JsonArray array = json.get(0).getAsJsonArray();
+                        for (JsonElement elem : array) {
+                            String part = elem.getAsJsonArray().get(0).getAsString();
+                            builder.append(part);
+                        }
+                        translatedMessage = builder.toString();
+                        saveTranslation(toLanguage, message, translatedMessage);
+                    } finally {
+                        // Without a translation, the message is shown untranslated, like when the request fails
+                        handleTranslation.accept(translatedMessage);
                     }
-                    String translatedMessage = builder.toString();
-                    saveTranslation(toLanguage, message, translatedMessage);
-                    handleTranslation.accept(translatedMessage);
                 },
                 onError -> {
                     // If Google translate return no data ( 500 error ), display default lang
@@ -0,0 +1,285 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.core.services;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import com.wynntils.core.WynntilsMod;
+import com.wynntils.utils.TaskUtils;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * A size-bounded cache of translations, kept on disk as an append-only log.
+ *
+ * The least recently used translation is evicted to make room, but only for a translation that has been asked for at
+ * least as often, so lines that come up again and again, like NPC dialogue, are not pushed out by one-off chat
+ * messages. New translations are appended to the log as they come in; the log is rewritten with just the cached
+ * translations once it has grown well past them.
+ *
+ * All disk access happens on the {@link TaskUtils} thread, in the order it was requested, except for the final
+ * {@link #compactNow()} on shutdown.
+ */
+final class TranslationCache {
+    private final int capacity;
+    private final File logFile;
+    private final File legacyFile;
+
+    private final LinkedHashMap<Key, String> translations = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch frequencies;
+    private int loggedTranslations = 0;
+    private volatile boolean loaded = false;
+
+    // Held while writing to the log, so a write on shutdown can't interleave with one still running in the background
+    private final Object diskLock = new Object();
+
+    /**
+     * @param legacyFile the json file translations were saved to before, which is carried over into the log
+     */
+    TranslationCache(int capacity, File logFile, File legacyFile) {
+        this.capacity = capacity;
+        this.logFile = logFile;
+        this.legacyFile = legacyFile;
+        this.frequencies = new FrequencySketch(capacity);
+    }
+
+    synchronized String get(String language, String message) {
+        Key key = new Key(language, message);
+        frequencies.increment(key);
+        return translations.get(key);
+    }
+
+    synchronized void put(String language, String message, String translation) {
+        Key key = new Key(language, message);
+        if (!translations.containsKey(key) && translations.size() >= capacity) {
+            Key eldest = translations.keySet().iterator().next();
+            if (frequencies.get(key) < frequencies.get(eldest)) return;
+
+            translations.remove(eldest);
+        }
+
+        translations.put(key, translation);
+
+        String line = toLogLine(key, translation);
+        loggedTranslations++;
+        TaskUtils.runAsync(() -> appendToLog(line));
+
+        if (loggedTranslations > Math.max(capacity, translations.size() * 2)) {
+            compact();
+        }
+    }
+
+    void load() {
+        TaskUtils.runAsync(this::readFromDisk);
+    }
+
+    /**
+     * Rewrites the log with only the cached translations.
+     */
+    synchronized void compact() {
+        List<String> lines = getLogLines();
+        TaskUtils.runAsync(() -> writeLog(lines));
+    }
+
+    /**
+     * Rewrites the log with only the cached translations, right away. Used on shutdown, when queued background tasks
+     * might not run anymore.
+     */
+    void compactNow() {
+        // Before loading has finished, the log on disk still has translations that are not in memory yet
+        if (!loaded) return;
+
+        writeLog(getLogLines());
+    }
+
+    private synchronized List<String> getLogLines() {
+        List<String> lines = new ArrayList<>(translations.size());
+        translations.forEach((key, translation) -> lines.add(toLogLine(key, translation)));
+        loggedTranslations = lines.size();
+        return lines;
+    }
+
+    private void readFromDisk() {
+        Map<Key, String> loaded = new LinkedHashMap<>();
+
+        if (legacyFile.exists()) {
+            try {
+                String json = FileUtils.readFileToString(legacyFile, StandardCharsets.UTF_8);
+                Type type = new TypeToken<HashMap<String, HashMap<String, String>>>() {}.getType();
+                Map<String, Map<String, String>> legacyCaches = WynntilsMod.GSON.fromJson(json, type);
+                if (legacyCaches != null) {
+                    legacyCaches.forEach((language, cache) -> cache.forEach(
+                            (message, translation) -> loaded.put(new Key(language, message), translation)));
+                }
+            } catch (IOException | RuntimeException e) {
+                WynntilsMod.warn("Error when trying to load old translation cache.", e);
+            }
+        }
+
+        if (logFile.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(logFile.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) continue;
+
+                    try {
+                        JsonArray entry = JsonParser.parseString(line).getAsJsonArray();
+                        Key key = new Key(entry.get(0).getAsString(), entry.get(1).getAsString());
+
+                        // Later lines are newer, so they go to the most recently used end
+                        loaded.remove(key);
+                        loaded.put(key, entry.get(2).getAsString());
+                    } catch (RuntimeException e) {
+                        // A line cut short by a crash, skip it
+                    }
+                }
+            } catch (IOException e) {
+                WynntilsMod.error("Error when trying to load translation cache.", e);
+            }
+        }
+
+        synchronized (this) {
+            // Translations that came in while loading are newer than anything on disk
+            Map<Key, String> newer = new LinkedHashMap<>(translations);
+            translations.clear();
+
+            loaded.forEach(this::putLoaded);
+            newer.forEach(this::putLoaded);
+            loaded = true;
+        }
+
+        // This already runs on the disk thread, so the old cache is only deleted once it is in the log
+        writeLog(getLogLines());
+        FileUtils.deleteQuietly(legacyFile);
+    }
+
+    private void putLoaded(Key key, String translation) {
+        translations.remove(key);
+        translations.put(key, translation);
+
+        if (translations.size() > capacity) {
+            translations.remove(translations.keySet().iterator().next());
+        }
+    }
+
+    private void appendToLog(String line) {
+        synchronized (diskLock) {
+            try {
+                FileUtils.forceMkdirParent(logFile);
+                Files.writeString(
+                        logFile.toPath(),
+                        line + "\n",
+                        StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                WynntilsMod.warn("Error when trying to save translation.", e);
+            }
+        }
+    }
+
+    private void writeLog(List<String> lines) {
+        synchronized (diskLock) {
+            File tempFile = new File(logFile.getPath() + ".tmp");
+            try {
+                FileUtils.forceMkdirParent(logFile);
+                try (BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+                    for (String line : lines) {
+                        writer.write(line);
+                        writer.newLine();
+                    }
+                }
+
+                try {
+                    Files.move(
+                            tempFile.toPath(),
+                            logFile.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                WynntilsMod.error("Error when trying to save translation cache.", e);
+            }
+        }
+    }
+
+    private static String toLogLine(Key key, String translation) {
+        // Compact json, so every translation is on a single line
+        JsonArray entry = new JsonArray();
+        entry.add(key.language());
+        entry.add(key.message());
+        entry.add(translation);
+        return entry.toString();
+    }
+
+    record Key(String language, String message) {}
+
+    /**
+     * Approximately counts how often keys are asked for, in a fixed amount of memory. Counts are halved
+     * periodically, so keys that were popular a long time ago don't stay ahead forever.
+     */
+    private static final class FrequencySketch {
+        private static final int MAX_COUNT = 15;
+
+        private final byte[] counts;
+        private final int resetAfter;
+        private int increments = 0;
+
+        private FrequencySketch(int capacity) {
+            // A power of two, so indices can be masked
+            counts = new byte[Integer.highestOneBit(Math.max(16, capacity * 4) - 1) << 1];
+            resetAfter = capacity * 10;
+        }
+
+        private int get(Key key) {
+            int hash = spread(key.hashCode());
+            return Math.min(counts[index(hash, 0)], counts[index(hash, 1)]);
+        }
+
+        private void increment(Key key) {
+            int hash = spread(key.hashCode());
+            for (int i = 0; i < 2; i++) {
+                int index = index(hash, i);
+                if (counts[index] < MAX_COUNT) {
+                    counts[index]++;
+                }
+            }
+
+            if (++increments >= resetAfter) {
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] >>= 1;
+                }
+                increments = 0;
+            }
+        }
+
+        private int index(int hash, int row) {
+            int rowHash = row == 0 ? hash : Integer.rotateLeft(hash * 0x9e3779b9, 16);
+            return rowHash & (counts.length - 1);
+        }
+
+        private static int spread(int hash) {
+            hash *= 0x85ebca6b;
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -85,6 +85,9 @@ public class MapFeature extends UserFeature {
     @Config
     public boolean renderUsingLinear = true;
 
+    @Config
+    public int textureMemoryBudget = 256;
+
     @Config
     public float playerPointerScale = 1.5f;
 
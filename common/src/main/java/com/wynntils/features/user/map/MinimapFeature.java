@@ -38,7 +38,6 @@ import com.wynntils.wynn.model.map.poi.PlayerMiniMapPoi;
 import com.wynntils.wynn.model.map.poi.Poi;
 import com.wynntils.wynn.model.map.poi.WaypointPoi;
 import com.wynntils.wynn.utils.WynnUtils;
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
@@ -161,7 +160,7 @@ public class MinimapFeature extends UserFeature {
                 }
             }
 
-            List<MapTexture> maps = Models.Map.getMapsForBoundingBox(textureBoundingBox);
+            List<MapTexture> maps = Models.Map.getMapsForBoundingBox(textureBoundingBox, 1f / scale);
             for (MapTexture map : maps) {
                 float textureX = map.getTextureXPosition(playerX);
                 float textureZ = map.getTextureZPosition(playerZ);
@@ -197,7 +196,7 @@ public class MinimapFeature extends UserFeature {
 
             // disable mask & render border
             switch (maskType) {
-                case Rectangular -> RenderSystem.disableScissor();
+                case Rectangular -> RenderUtils.disableScissor();
                 case Circle -> RenderUtils.clearMask();
             }
 
@@ -229,7 +228,7 @@ public class MinimapFeature extends UserFeature {
 
             float currentZoom = 1f / scale;
 
-            List<Poi> poisToRender = new ArrayList<>(Models.Map.getServicePois());
+            List<Poi> poisToRender = Models.Map.getPoisInArea(textureBoundingBox, currentZoom, poiScale, false);
             poisToRender.addAll(MapFeature.INSTANCE.customPois);
             List<PlayerMiniMapPoi> playerPois = Models.HadesUser.getHadesUserMap().values().stream()
                     .filter(user -> (user.isPartyMember() && renderRemotePartyPlayers)
@@ -238,8 +237,6 @@ public class MinimapFeature extends UserFeature {
                     .toList();
             poisToRender.addAll(playerPois);
 
-            poisToRender.addAll(Models.Map.getCombatPois());
-
             // Reverse order to make sure higher priority is drawn later than lower priority to overwrite them
             poisToRender.sort(Comparator.comparing(Poi::getDisplayPriority).reversed());
             for (Poi poi : poisToRender) {
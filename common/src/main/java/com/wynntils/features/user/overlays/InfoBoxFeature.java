@@ -17,6 +17,7 @@ import com.wynntils.core.features.overlays.sizes.GuiScaledOverlaySize;
 import com.wynntils.core.features.properties.FeatureCategory;
 import com.wynntils.core.features.properties.FeatureInfo;
 import com.wynntils.core.functions.Function;
+import com.wynntils.core.functions.FunctionTemplate;
 import com.wynntils.gui.render.FontRenderer;
 import com.wynntils.gui.render.HorizontalAlignment;
 import com.wynntils.gui.render.VerticalAlignment;
@@ -24,6 +25,7 @@ import com.wynntils.mc.event.RenderEvent;
 import com.wynntils.mc.objects.CommonColors;
 import com.wynntils.wynn.utils.WynnUtils;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import net.minecraft.client.resources.language.I18n;
 
@@ -70,8 +72,10 @@ public class InfoBoxFeature extends UserFeature {
 
         private final int id;
         private final List<Function<?>> functionDependencies = new ArrayList<>();
-        private String[] cachedLines;
+        private FunctionTemplate template;
+        private String[] cachedLines = new String[0];
         private long lastUpdate = 0;
+        private boolean wasOnWorld = false;
 
         protected InfoBoxOverlay(int id) {
             super(
@@ -101,13 +105,41 @@ public class InfoBoxFeature extends UserFeature {
         }
 
         @Override
-        public void render(PoseStack poseStack, float partialTicks, Window window) {
-            if (!WynnUtils.onWorld()) return;
+        public boolean isRetained() {
+            // The lines only change when they are recalculated, so there is no need to draw them every frame
+            return true;
+        }
 
-            if (System.nanoTime() - lastUpdate > secondsPerRecalculation * 1e+9) {
-                lastUpdate = System.nanoTime();
-                cachedLines = Managers.Function.getLinesFromLegacyTemplate(content);
+        @Override
+        public void refresh() {
+            boolean onWorld = WynnUtils.onWorld();
+            if (onWorld != wasOnWorld) {
+                wasOnWorld = onWorld;
+                markDirty();
             }
+            if (!onWorld) return;
+
+            if (template == null) {
+                template = Managers.Function.compileLegacyTemplate(content);
+            }
+
+            // Only recalculate when a value has actually changed, and not more often than configured
+            // Functions without update events are polled as often as this box recalculates, at most once a tick
+            int pollIntervalTicks = Math.max(1, Math.round(secondsPerRecalculation * 20));
+            if (!Managers.Function.isOutdated(template, pollIntervalTicks)) return;
+            if (System.nanoTime() - lastUpdate <= secondsPerRecalculation * 1e+9) return;
+
+            lastUpdate = System.nanoTime();
+            String[] newLines = Managers.Function.getLinesFromLegacyTemplate(template);
+            if (!Arrays.equals(newLines, cachedLines)) {
+                cachedLines = newLines;
+                markDirty();
+            }
+        }
+
+        @Override
+        public void render(PoseStack poseStack, float partialTicks, Window window) {
+            if (!WynnUtils.onWorld()) return;
 
             float renderX = this.getRenderX();
             float renderY = this.getRenderY();
@@ -172,9 +204,13 @@ public class InfoBoxFeature extends UserFeature {
             }
 
             functionDependencies.clear();
+            // Recalculate the lines for the new content right away
+            lastUpdate = 0;
+            template = Managers.Function.compileLegacyTemplate(content);
 
-            for (Function<?> function : Managers.Function.getDependenciesFromStringLegacy(content)) {
+            for (Function<?> function : template.getFunctions()) {
                 Managers.Function.enableFunction(function);
+                functionDependencies.add(function);
             }
         }
 
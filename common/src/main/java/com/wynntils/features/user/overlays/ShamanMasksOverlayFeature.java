@@ -54,6 +54,8 @@ public class ShamanMasksOverlayFeature extends UserFeature {
         @Config
         public boolean displayNone = false;
 
+        private ShamanMaskType renderedMaskType = null;
+
         protected ShamanMaskOverlay() {
             super(
                     new OverlayPosition(
@@ -67,9 +69,22 @@ public class ShamanMasksOverlayFeature extends UserFeature {
                     VerticalAlignment.Middle);
         }
 
+        @Override
+        public boolean isRetained() {
+            return true;
+        }
+
+        @Override
+        public void refresh() {
+            if (Models.ShamanMask.getCurrentMaskType() != renderedMaskType) {
+                markDirty();
+            }
+        }
+
         @Override
         public void render(PoseStack poseStack, float partialTicks, Window window) {
             ShamanMaskType currentMaskType = Models.ShamanMask.getCurrentMaskType();
+            renderedMaskType = currentMaskType;
 
             if (currentMaskType == ShamanMaskType.NONE && !displayNone) return;
 
@@ -4,10 +4,12 @@
  */
 package com.wynntils.features.user.redirects;
 
+import com.wynntils.core.components.Handlers;
 import com.wynntils.core.config.Config;
 import com.wynntils.core.features.UserFeature;
 import com.wynntils.core.features.properties.FeatureInfo;
 import com.wynntils.core.notifications.NotificationManager;
+import com.wynntils.handlers.chat.ChatMatches;
 import com.wynntils.handlers.chat.MessageType;
 import com.wynntils.handlers.chat.RecipientType;
 import com.wynntils.handlers.chat.event.ChatMessageReceivedEvent;
@@ -107,13 +109,15 @@ public class ChatRedirectFeature extends UserFeature {
 
     private void register(Redirector redirector) {
         redirectors.add(redirector);
+        Handlers.Chat.registerPatterns(
+                redirector.getPattern(MessageType.FOREGROUND), redirector.getPattern(MessageType.BACKGROUND));
     }
 
     @SubscribeEvent
     public void onChatMessage(ChatMessageReceivedEvent e) {
         if (e.getRecipientType() != RecipientType.INFO) return;
 
-        String message = e.getOriginalCodedMessage();
+        ChatMatches matches = e.getOriginalMatches();
         MessageType messageType = e.getMessageType();
 
         for (Redirector redirector : redirectors) {
@@ -123,9 +127,9 @@ public class ChatRedirectFeature extends UserFeature {
             Pattern pattern = redirector.getPattern(messageType);
             if (pattern == null) continue;
 
-            Matcher matcher = pattern.matcher(message);
+            Matcher matcher = matches.find(pattern);
 
-            if (matcher.find()) {
+            if (matcher != null) {
                 e.setCanceled(true);
                 if (redirector.getAction() == RedirectAction.HIDE) continue;
 
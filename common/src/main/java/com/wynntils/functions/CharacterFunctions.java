@@ -9,13 +9,26 @@ import com.wynntils.core.components.Model;
 import com.wynntils.core.components.Models;
 import com.wynntils.core.functions.DependantFunction;
 import com.wynntils.core.functions.Function;
+import com.wynntils.mc.event.ContainerSetContentEvent;
+import com.wynntils.mc.event.SetSlotEvent;
 import com.wynntils.mc.utils.McUtils;
 import com.wynntils.utils.StringUtils;
+import com.wynntils.wynn.event.CharacterUpdateEvent;
+import com.wynntils.wynn.event.WorldStateEvent;
 import com.wynntils.wynn.objects.profiles.ingredient.ProfessionType;
 import java.util.List;
 import net.minecraft.client.player.LocalPlayer;
+import net.minecraftforge.eventbus.api.Event;
 
 public class CharacterFunctions {
+    // The character info is only replaced when one of these is posted
+    private static final List<Class<? extends Event>> CHARACTER_UPDATE_EVENTS =
+            List.of(CharacterUpdateEvent.class, WorldStateEvent.class);
+
+    // The player inventory model only counts emeralds and free slots again after one of these
+    private static final List<Class<? extends Event>> INVENTORY_UPDATE_EVENTS =
+            List.of(ContainerSetContentEvent.Post.class, SetSlotEvent.Post.class, WorldStateEvent.class);
+
     public static class SoulpointFunction extends Function<Integer> {
         @Override
         public Integer getValue(String argument) {
@@ -111,6 +124,11 @@ public class CharacterFunctions {
         public String getValue(String argument) {
             return Managers.Character.getCharacterInfo().getActualName();
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return CHARACTER_UPDATE_EVENTS;
+        }
     }
 
     public static class LiquidEmeraldFunction extends DependantFunction<Integer> {
@@ -129,6 +147,11 @@ public class CharacterFunctions {
         public List<Model> getModelDependencies() {
             return List.of(Models.PlayerInventory);
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return INVENTORY_UPDATE_EVENTS;
+        }
     }
 
     public static class EmeraldBlockFunction extends DependantFunction<Integer> {
@@ -147,6 +170,11 @@ public class CharacterFunctions {
         public List<Model> getModelDependencies() {
             return List.of(Models.PlayerInventory);
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return INVENTORY_UPDATE_EVENTS;
+        }
     }
 
     public static class EmeraldsFunction extends DependantFunction<Integer> {
@@ -164,6 +192,11 @@ public class CharacterFunctions {
         public List<Model> getModelDependencies() {
             return List.of(Models.PlayerInventory);
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return INVENTORY_UPDATE_EVENTS;
+        }
     }
 
     public static class MoneyFunction extends DependantFunction<Integer> {
@@ -176,6 +209,11 @@ public class CharacterFunctions {
         public List<Model> getModelDependencies() {
             return List.of(Models.PlayerInventory);
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return INVENTORY_UPDATE_EVENTS;
+        }
     }
 
     public static class InventoryFreeFunction extends DependantFunction<Integer> {
@@ -193,6 +231,11 @@ public class CharacterFunctions {
         public List<Model> getModelDependencies() {
             return List.of(Models.PlayerInventory);
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return INVENTORY_UPDATE_EVENTS;
+        }
     }
 
     public static class InventoryUsedFunction extends DependantFunction<Integer> {
@@ -210,6 +253,11 @@ public class CharacterFunctions {
         public List<Model> getModelDependencies() {
             return List.of(Models.PlayerInventory);
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return INVENTORY_UPDATE_EVENTS;
+        }
     }
 
     public static class ManaFunction extends DependantFunction<Integer> {
@@ -298,6 +346,11 @@ public class CharacterFunctions {
         public List<String> getAliases() {
             return List.of("lvl");
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return CHARACTER_UPDATE_EVENTS;
+        }
     }
 
     public static class XpFunction extends Function<String> {
@@ -347,6 +400,11 @@ public class CharacterFunctions {
         public List<String> getAliases() {
             return List.of("woodcutting");
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return CHARACTER_UPDATE_EVENTS;
+        }
     }
 
     public static class MiningLevelFunction extends Function<Integer> {
@@ -359,6 +417,11 @@ public class CharacterFunctions {
         public List<String> getAliases() {
             return List.of("mining");
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return CHARACTER_UPDATE_EVENTS;
+        }
     }
 
     public static class FishingLevelFunction extends Function<Integer> {
@@ -371,6 +434,11 @@ public class CharacterFunctions {
         public List<String> getAliases() {
             return List.of("fishing");
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return CHARACTER_UPDATE_EVENTS;
+        }
     }
 
     public static class FarmingLevelFunction extends Function<Integer> {
@@ -383,6 +451,11 @@ public class CharacterFunctions {
         public List<String> getAliases() {
             return List.of("farming");
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return CHARACTER_UPDATE_EVENTS;
+        }
     }
 
     public static class AlchemismLevelFunction extends Function<Integer> {
@@ -395,6 +468,11 @@ public class CharacterFunctions {
         public List<String> getAliases() {
             return List.of("alchemism");
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return CHARACTER_UPDATE_EVENTS;
+        }
     }
 
     public static class ArmouringLevelFunction extends Function<Integer> {
@@ -407,6 +485,11 @@ public class CharacterFunctions {
         public List<String> getAliases() {
             return List.of("armouring");
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return CHARACTER_UPDATE_EVENTS;
+        }
     }
 
     public static class CookingLevelFunction extends Function<Integer> {
@@ -419,6 +502,11 @@ public class CharacterFunctions {
         public List<String> getAliases() {
             return List.of("cooking");
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return CHARACTER_UPDATE_EVENTS;
+        }
     }
 
     public static class JewelingLevelFunction extends Function<Integer> {
@@ -431,6 +519,11 @@ public class CharacterFunctions {
         public List<String> getAliases() {
             return List.of("jeweling");
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return CHARACTER_UPDATE_EVENTS;
+        }
     }
 
     public static class ScribingLevelFunction extends Function<Integer> {
@@ -443,6 +536,11 @@ public class CharacterFunctions {
         public List<String> getAliases() {
             return List.of("scribing");
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return CHARACTER_UPDATE_EVENTS;
+        }
     }
 
     public static class TailoringLevelFunction extends Function<Integer> {
@@ -455,6 +553,11 @@ public class CharacterFunctions {
         public List<String> getAliases() {
             return List.of("tailoring");
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return CHARACTER_UPDATE_EVENTS;
+        }
     }
 
     public static class WeaponsmithingLevelFunction extends Function<Integer> {
@@ -467,6 +570,11 @@ public class CharacterFunctions {
         public List<String> getAliases() {
             return List.of("weaponsmithing");
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return CHARACTER_UPDATE_EVENTS;
+        }
     }
 
     public static class WoodworkingLevelFunction extends Function<Integer> {
@@ -479,5 +587,10 @@ public class CharacterFunctions {
         public List<String> getAliases() {
             return List.of("woodworking");
         }
+
+        @Override
+        public List<Class<? extends Event>> getUpdateEvents() {
+            return CHARACTER_UPDATE_EVENTS;
+        }
     }
 }
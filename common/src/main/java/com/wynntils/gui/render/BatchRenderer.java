@@ -0,0 +1,168 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.gui.render;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.BufferUploader;
+import com.mojang.blaze3d.vertex.Tesselator;
+import com.mojang.blaze3d.vertex.VertexFormat;
+import java.util.function.Supplier;
+import net.minecraft.client.renderer.ShaderInstance;
+import net.minecraft.resources.ResourceLocation;
+
+/**
+ * Draws the quads of the {@link RenderUtils} primitives.
+ *
+ * Between {@link #beginBatch()} and {@link #endBatch()}, quads that follow each other and share a shader, texture,
+ * blend state and shader color are collected and drawn with a single draw call, instead of one per primitive. Quads
+ * are never reordered, so anything that draws without going through here, like text, items or masks, has to
+ * {@link #flush()} first. Outside a batch, every primitive is drawn right away.
+ */
+public final class BatchRenderer {
+    private static final BufferBuilder BATCH_BUFFER = new BufferBuilder(8192);
+
+    private static boolean batching = false;
+    private static BatchState pendingState = null;
+    private static boolean layerBlending = false;
+
+    public static void beginBatch() {
+        batching = true;
+    }
+
+    public static void endBatch() {
+        flush();
+        batching = false;
+    }
+
+    /**
+     * Makes blended quads blend their alpha as well, while drawing into a transparent offscreen layer that is later
+     * drawn over the screen. With the default blending, the alpha of the layer would be that of the last quad drawn.
+     */
+    public static void setLayerBlending(boolean enabled) {
+        flush();
+        layerBlending = enabled;
+    }
+
+    /**
+     * Draws the quads collected so far
+     */
+    public static void flush() {
+        if (pendingState == null) return;
+
+        BatchState state = pendingState;
+        pendingState = null;
+
+        float[] shaderColor = RenderSystem.getShaderColor();
+        float r = shaderColor[0];
+        float g = shaderColor[1];
+        float b = shaderColor[2];
+        float a = shaderColor[3];
+        boolean blendEnabled = isBlendEnabled();
+
+        if (state.blend()) {
+            RenderSystem.enableBlend();
+            applyBlendFunc();
+        } else {
+            RenderSystem.disableBlend();
+        }
+        RenderSystem.setShaderColor(state.r(), state.g(), state.b(), state.a());
+        RenderSystem.setShader(state::shader);
+        if (state.texture() != null) {
+            RenderSystem.setShaderTexture(0, state.texture());
+        }
+
+        BufferUploader.drawWithShader(BATCH_BUFFER.end());
+
+        // Leave the state as the code drawing after this has set it up
+        RenderSystem.setShaderColor(r, g, b, a);
+        if (blendEnabled) {
+            RenderSystem.enableBlend();
+        } else {
+            RenderSystem.disableBlend();
+        }
+    }
+
+    /**
+     * Returns a buffer to add the vertices of quads to, which must be followed by {@link #endQuads(boolean)}.
+     *
+     * @param enableBlend whether the quads are drawn with the default blending; otherwise, blending is left as it is
+     */
+    static BufferBuilder beginQuads(
+            Supplier<ShaderInstance> shader, VertexFormat format, ResourceLocation texture, boolean enableBlend) {
+        if (!batching) {
+            if (enableBlend) {
+                RenderSystem.enableBlend();
+                applyBlendFunc();
+            }
+            RenderSystem.setShader(shader);
+            if (texture != null) {
+                RenderSystem.setShaderTexture(0, texture);
+            }
+
+            BufferBuilder bufferBuilder = Tesselator.getInstance().getBuilder();
+            bufferBuilder.begin(VertexFormat.Mode.QUADS, format);
+            return bufferBuilder;
+        }
+
+        float[] shaderColor = RenderSystem.getShaderColor();
+        BatchState state = new BatchState(
+                shader.get(),
+                format,
+                texture,
+                enableBlend || isBlendEnabled(),
+                shaderColor[0],
+                shaderColor[1],
+                shaderColor[2],
+                shaderColor[3]);
+
+        if (!state.equals(pendingState)) {
+            flush();
+
+            BATCH_BUFFER.begin(VertexFormat.Mode.QUADS, format);
+            pendingState = state;
+        }
+
+        return BATCH_BUFFER;
+    }
+
+    static void endQuads(boolean enableBlend) {
+        // Batched quads are drawn when the batch is flushed
+        if (batching) return;
+
+        BufferUploader.drawWithShader(Tesselator.getInstance().getBuilder().end());
+        if (enableBlend) {
+            RenderSystem.disableBlend();
+        }
+    }
+
+    private static void applyBlendFunc() {
+        if (layerBlending) {
+            RenderSystem.blendFuncSeparate(
+                    GlStateManager.SourceFactor.SRC_ALPHA,
+                    GlStateManager.DestFactor.ONE_MINUS_SRC_ALPHA,
+                    GlStateManager.SourceFactor.ONE,
+                    GlStateManager.DestFactor.ONE_MINUS_SRC_ALPHA);
+        } else {
+            RenderSystem.defaultBlendFunc();
+        }
+    }
+
+    private static boolean isBlendEnabled() {
+        // Read Minecraft's copy of the blend state, asking the driver would be a round-trip for every primitive
+        return GlStateManager.BLEND.mode.enabled;
+    }
+
+    private record BatchState(
+            ShaderInstance shader,
+            VertexFormat format,
+            ResourceLocation texture,
+            boolean blend,
+            float r,
+            float g,
+            float b,
+            float a) {}
+}
@@ -5,15 +5,22 @@
 package com.wynntils.gui.render;
 
 import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.Tesselator;
 import com.wynntils.mc.mixin.accessors.MinecraftAccessor;
 import com.wynntils.mc.objects.CommonColors;
 import com.wynntils.mc.objects.CustomColor;
 import com.wynntils.mc.utils.ComponentUtils;
 import com.wynntils.mc.utils.McUtils;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import net.minecraft.client.gui.Font;
+import net.minecraft.client.renderer.LightTexture;
+import net.minecraft.client.renderer.MultiBufferSource;
 import net.minecraft.network.chat.FormattedText;
 import net.minecraft.network.chat.Style;
+import org.joml.Matrix4f;
 
 public final class FontRenderer {
     private static final FontRenderer INSTANCE = new FontRenderer();
@@ -21,6 +28,15 @@ public final class FontRenderer {
 
     private static final int NEWLINE_OFFSET = 10;
     private static final CustomColor SHADOW_COLOR = CommonColors.BLACK;
+    private static final int MAX_CACHED_LAYOUTS = 1024;
+
+    // Overlays draw mostly the same text every frame, so how it is split into lines is only worked out once
+    private final Map<LayoutKey, TextLayout> layoutCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LayoutKey, TextLayout> eldest) {
+            return size() > MAX_CACHED_LAYOUTS;
+        }
+    };
 
     private FontRenderer() {
         this.font = ((MinecraftAccessor) McUtils.mc()).getFont();
@@ -34,6 +50,13 @@ public final class FontRenderer {
         return font;
     }
 
+    /**
+     * Forgets how text was laid out, since a resource pack may have changed the width of the glyphs
+     */
+    public void clearLayoutCache() {
+        layoutCache.clear();
+    }
+
     public void renderText(
             PoseStack poseStack,
             String text,
@@ -44,45 +67,18 @@ public final class FontRenderer {
             VerticalAlignment verticalAlignment,
             TextShadow shadow,
             float textScale) {
-        float renderX;
-        float renderY;
-
         if (text == null) return;
 
-        // TODO: Add rainbow color support
-
-        renderX = switch (horizontalAlignment) {
-            case Left -> x;
-            case Center -> x - (font.width(text) / 2f * textScale);
-            case Right -> x - font.width(text) * textScale;};
-
-        renderY = switch (verticalAlignment) {
-            case Top -> y;
-            case Middle -> y - (font.lineHeight / 2f * textScale);
-            case Bottom -> y - font.lineHeight * textScale;};
-
-        poseStack.pushPose();
-        poseStack.translate(renderX, renderY, 0);
-        poseStack.scale(textScale, textScale, 0);
-
-        switch (shadow) {
-            case OUTLINE -> {
-                int shadowColor = SHADOW_COLOR.withAlpha(customColor.a).asInt();
-                String strippedText = ComponentUtils.stripColorFormatting(text);
-
-                // draw outline behind text
-                font.draw(poseStack, strippedText, 1, 0, shadowColor);
-                font.draw(poseStack, strippedText, -1, 0, shadowColor);
-                font.draw(poseStack, strippedText, 0, 1, shadowColor);
-                font.draw(poseStack, strippedText, 0, -1, shadowColor);
-
-                font.draw(poseStack, text, 0, 0, customColor.asInt());
-            }
-            case NORMAL -> font.drawShadow(poseStack, text, 0, 0, customColor.asInt());
-            default -> font.draw(poseStack, text, 0, 0, customColor.asInt());
-        }
-
-        poseStack.popPose();
+        renderLine(
+                poseStack,
+                getLayout(text, 0).getLines().get(0),
+                x,
+                y,
+                customColor,
+                horizontalAlignment,
+                verticalAlignment,
+                shadow,
+                textScale);
     }
 
     public void renderText(
@@ -228,31 +224,108 @@ public final class FontRenderer {
             float textScale) {
         if (text == null) return;
 
-        if (maxWidth == 0 || font.width(text) < maxWidth) {
-            renderText(poseStack, text, x, y, customColor, horizontalAlignment, verticalAlignment, shadow, textScale);
+        List<TextLine> lines = getLayout(text, maxWidth).getLines();
+        if (lines.size() == 1) {
+            renderLine(
+                    poseStack,
+                    lines.get(0),
+                    x,
+                    y,
+                    customColor,
+                    horizontalAlignment,
+                    verticalAlignment,
+                    shadow,
+                    textScale);
             return;
         }
 
-        List<FormattedText> parts = font.getSplitter().splitLines(text, (int) maxWidth, Style.EMPTY);
-
-        String lastPart = "";
-        for (int i = 0; i < parts.size(); i++) {
-            // copy the format codes to this part as well
-            String part =
-                    ComponentUtils.getLastPartCodes(lastPart) + parts.get(i).getString();
-            lastPart = part;
-            renderText(
+        for (int i = 0; i < lines.size(); i++) {
+            renderLine(
                     poseStack,
-                    part,
+                    lines.get(i),
                     x,
                     y + (i * font.lineHeight),
                     customColor,
                     horizontalAlignment,
                     verticalAlignment,
-                    shadow);
+                    shadow,
+                    1f);
         }
     }
 
+    private void renderLine(
+            PoseStack poseStack,
+            TextLine line,
+            float x,
+            float y,
+            CustomColor customColor,
+            HorizontalAlignment horizontalAlignment,
+            VerticalAlignment verticalAlignment,
+            TextShadow shadow,
+            float textScale) {
+        float renderX;
+        float renderY;
+
+        // Text is drawn right away, so it has to come after what was drawn before it
+        BatchRenderer.flush();
+
+        // TODO: Add rainbow color support
+
+        renderX = switch (horizontalAlignment) {
+            case Left -> x;
+            case Center -> x - (line.width() / 2f * textScale);
+            case Right -> x - line.width() * textScale;};
+
+        renderY = switch (verticalAlignment) {
+            case Top -> y;
+            case Middle -> y - (font.lineHeight / 2f * textScale);
+            case Bottom -> y - font.lineHeight * textScale;};
+
+        poseStack.pushPose();
+        poseStack.translate(renderX, renderY, 0);
+        poseStack.scale(textScale, textScale, 0);
+
+        switch (shadow) {
+            case OUTLINE -> {
+                int shadowColor = SHADOW_COLOR.withAlpha(customColor.a).asInt();
+                Matrix4f matrix = poseStack.last().pose();
+
+                // All copies go into one buffer, so the outline is drawn together with the text
+                MultiBufferSource.BufferSource bufferSource =
+                        MultiBufferSource.immediate(Tesselator.getInstance().getBuilder());
+
+                // draw outline behind text
+                drawInBatch(line.strippedText(), 1, 0, shadowColor, matrix, bufferSource);
+                drawInBatch(line.strippedText(), -1, 0, shadowColor, matrix, bufferSource);
+                drawInBatch(line.strippedText(), 0, 1, shadowColor, matrix, bufferSource);
+                drawInBatch(line.strippedText(), 0, -1, shadowColor, matrix, bufferSource);
+
+                drawInBatch(line.text(), 0, 0, customColor.asInt(), matrix, bufferSource);
+
+                bufferSource.endBatch();
+            }
+            case NORMAL -> font.drawShadow(poseStack, line.text(), 0, 0, customColor.asInt());
+            default -> font.draw(poseStack, line.text(), 0, 0, customColor.asInt());
+        }
+
+        poseStack.popPose();
+    }
+
+    private void drawInBatch(
+            String text, float x, float y, int color, Matrix4f matrix, MultiBufferSource.BufferSource bufferSource) {
+        font.drawInBatch(text, x, y, color, false, matrix, bufferSource, false, 0, LightTexture.FULL_BRIGHT);
+    }
+
+    private TextLayout getLayout(String text, float maxWidth) {
+        LayoutKey key = new LayoutKey(text, maxWidth);
+        TextLayout layout = layoutCache.get(key);
+        if (layout == null) {
+            layout = new TextLayout(text, maxWidth);
+            layoutCache.put(key, layout);
+        }
+        return layout;
+    }
+
     public void renderText(
             PoseStack poseStack,
             String text,
@@ -338,8 +411,8 @@ public final class FontRenderer {
             if (textRenderTask.getSetting().maxWidth() == 0) {
                 height += font.lineHeight;
             } else {
-                height += font.wordWrapHeight(textRenderTask.getText(), (int)
-                        textRenderTask.getSetting().maxWidth());
+                height += calculateRenderHeight(
+                        textRenderTask.getText(), textRenderTask.getSetting().maxWidth());
             }
             totalLineCount++;
         }
@@ -353,13 +426,65 @@ public final class FontRenderer {
     public float calculateRenderHeight(List<String> lines, float maxWidth) {
         int sum = 0;
         for (String line : lines) {
-            sum += font.wordWrapHeight(line, (int) maxWidth);
+            sum += calculateRenderHeight(line, maxWidth);
         }
         return sum;
     }
 
     public float calculateRenderHeight(String line, float maxWidth) {
-        return font.wordWrapHeight(line, (int) maxWidth);
+        return getLayout(line, maxWidth).getWrappedHeight();
+    }
+
+    /**
+     * @param strippedText the text without its color codes, for drawing the outline
+     */
+    private record TextLine(String text, String strippedText, int width) {}
+
+    private record LayoutKey(String text, float maxWidth) {}
+
+    private final class TextLayout {
+        private final String text;
+        private final float maxWidth;
+        private final List<TextLine> lines;
+        private int wrappedHeight = -1;
+
+        private TextLayout(String text, float maxWidth) {
+            this.text = text;
+            this.maxWidth = maxWidth;
+
+            int width = font.width(text);
+            if (maxWidth == 0 || width < maxWidth) {
+                lines = List.of(createLine(text, width));
+                return;
+            }
+
+            List<FormattedText> parts = font.getSplitter().splitLines(text, (int) maxWidth, Style.EMPTY);
+            lines = new ArrayList<>(parts.size());
+
+            String lastPart = "";
+            for (FormattedText formattedPart : parts) {
+                // copy the format codes to this part as well
+                String part = ComponentUtils.getLastPartCodes(lastPart) + formattedPart.getString();
+                lastPart = part;
+                lines.add(createLine(part, font.width(part)));
+            }
+        }
+
+        private List<TextLine> getLines() {
+            return lines;
+        }
+
+        private int getWrappedHeight() {
+            // Not always the same as the lines drawn, as text that fits is not split on newlines when drawn
+            if (wrappedHeight == -1) {
+                wrappedHeight = font.wordWrapHeight(text, (int) maxWidth);
+            }
+            return wrappedHeight;
+        }
+    }
+
+    private static TextLine createLine(String text, int width) {
+        return new TextLine(text, ComponentUtils.stripColorFormatting(text), width);
     }
 
     public enum TextShadow {
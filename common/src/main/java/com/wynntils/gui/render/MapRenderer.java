@@ -35,6 +35,12 @@ public final class MapRenderer {
             float height,
             float scale,
             boolean renderUsingLinear) {
+        MapTexture residentMap = map.getResidentLevel();
+
+        // This map part is still being loaded, leave it blank for now
+        if (residentMap == null) return;
+
+        BatchRenderer.flush();
         RenderSystem.disableBlend();
 
         // has to be before setting shader texture
@@ -43,15 +49,15 @@ public final class MapRenderer {
         RenderSystem.texParameter(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, option);
 
         RenderSystem.setShader(GameRenderer::getPositionTexShader);
-        RenderSystem.setShaderTexture(0, map.resource());
+        RenderSystem.setShaderTexture(0, residentMap.getMapResource());
 
         // clamp map rendering
         // has to be after setting shader texture
         RenderSystem.texParameter(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL13.GL_CLAMP_TO_BORDER);
         RenderSystem.texParameter(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL13.GL_CLAMP_TO_BORDER);
 
-        float uScale = 1f / map.getTextureWidth();
-        float vScale = 1f / map.getTextureHeight();
+        float uScale = 1f / residentMap.getTextureSpanWidth();
+        float vScale = 1f / residentMap.getTextureSpanHeight();
 
         float halfRenderedWidth = width / 2f;
         float halfRenderedHeight = height / 2f;
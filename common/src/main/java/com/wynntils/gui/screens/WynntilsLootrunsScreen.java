@@ -20,7 +20,8 @@ import com.wynntils.mc.objects.CommonColors;
 import com.wynntils.utils.StringUtils;
 import com.wynntils.utils.TaskUtils;
 import com.wynntils.wynn.event.LootrunCacheRefreshEvent;
-import com.wynntils.wynn.model.LootrunModel;
+import com.wynntils.wynn.model.lootrun.LootrunHeader;
+import com.wynntils.wynn.model.lootrun.LootrunModel;
 import java.util.List;
 import java.util.Objects;
 import net.minecraft.ChatFormatting;
@@ -30,7 +31,7 @@ import net.minecraft.network.chat.Component;
 import net.minecraft.world.phys.Vec3;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 
-public final class WynntilsLootrunsScreen extends WynntilsMenuListScreen<LootrunModel.LootrunInstance, LootrunButton> {
+public final class WynntilsLootrunsScreen extends WynntilsMenuListScreen<LootrunHeader, LootrunButton> {
     private WynntilsLootrunsScreen() {
         super(Component.translatable("screens.wynntils.lootruns.name"));
 
@@ -145,8 +145,9 @@ public final class WynntilsItemGuideScreen extends WynntilsMenuListScreen<GearIt
     @Override
     protected void reloadElementsList(String searchTerm) {
         elements.addAll(Managers.Item.getAllGearItems().stream()
+                // guide items are named after their profile, so there is no need to build and unformat the name
                 .filter(gearItemStack -> StringUtils.partialMatch(
-                        ComponentUtils.getUnformatted(gearItemStack.getHoverName()), searchTerm))
+                        gearItemStack.getItemProfile().getDisplayName(), searchTerm))
                 .toList());
     }
 
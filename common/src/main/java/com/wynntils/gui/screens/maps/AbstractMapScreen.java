@@ -315,7 +315,7 @@ public abstract class AbstractMapScreen extends Screen {
         BoundingBox textureBoundingBox =
                 BoundingBox.centered(mapCenterX, mapCenterZ, width / currentZoom, height / currentZoom);
 
-        List<MapTexture> maps = Models.Map.getMapsForBoundingBox(textureBoundingBox);
+        List<MapTexture> maps = Models.Map.getMapsForBoundingBox(textureBoundingBox, currentZoom);
         for (MapTexture map : maps) {
             float textureX = map.getTextureXPosition(mapCenterX);
             float textureZ = map.getTextureZPosition(mapCenterZ);
@@ -362,18 +362,18 @@ public final class GuildMapScreen extends AbstractMapScreen {
     }
 
     private void renderPois(PoseStack poseStack, int mouseX, int mouseY) {
+        BoundingBox textureBoundingBox =
+                BoundingBox.centered(mapCenterX, mapCenterZ, width / currentZoom, height / currentZoom);
+
         List<Poi> pois = territoryDefenseFilterEnabled
                 ? Managers.Territory.getFilteredTerritoryPoisFromAdvancement(
-                        territoryDefenseFilterLevel.getLevel(), territoryDefenseFilterType)
-                : Managers.Territory.getTerritoryPoisFromAdvancement();
+                        textureBoundingBox,
+                        currentZoom,
+                        territoryDefenseFilterLevel.getLevel(),
+                        territoryDefenseFilterType)
+                : Managers.Territory.getTerritoryPoisFromAdvancement(textureBoundingBox, currentZoom);
 
-        renderPois(
-                pois,
-                poseStack,
-                BoundingBox.centered(mapCenterX, mapCenterZ, width / currentZoom, height / currentZoom),
-                1,
-                mouseX,
-                mouseY);
+        renderPois(pois, poseStack, textureBoundingBox, 1, mouseX, mouseY);
     }
 
     public boolean isResourceMode() {
@@ -25,7 +25,6 @@ import com.wynntils.wynn.model.map.poi.Poi;
 import com.wynntils.wynn.model.map.poi.PoiLocation;
 import com.wynntils.wynn.model.map.poi.TerritoryPoi;
 import com.wynntils.wynn.model.map.poi.WaypointPoi;
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import net.minecraft.ChatFormatting;
@@ -204,11 +203,11 @@ public final class MainMapScreen extends AbstractMapScreen {
     }
 
     private void renderPois(PoseStack poseStack, int mouseX, int mouseY) {
-        List<Poi> pois = new ArrayList<>();
+        BoundingBox textureBoundingBox =
+                BoundingBox.centered(mapCenterX, mapCenterZ, width / currentZoom, height / currentZoom);
+        float poiScale = MapFeature.INSTANCE.poiScale;
 
-        pois.addAll(Models.Map.getServicePois());
-        pois.addAll(Models.Map.getCombatPois());
-        pois.addAll(Models.Map.getLabelPois());
+        List<Poi> pois = Models.Map.getPoisInArea(textureBoundingBox, currentZoom, poiScale, true);
 
         pois.addAll(MapFeature.INSTANCE.customPois);
 
@@ -223,19 +222,13 @@ public final class MainMapScreen extends AbstractMapScreen {
         pois.addAll(renderedPlayers.stream().map(PlayerMainMapPoi::new).toList());
         Models.Compass.getCompassWaypoint().ifPresent(pois::add);
         if (KeyboardUtils.isControlDown()) {
-            pois.addAll(Managers.Territory.getTerritoryPois());
+            pois.addAll(Managers.Territory.getTerritoryPoisInArea(textureBoundingBox, currentZoom));
         }
 
         // Reverse order to make sure higher priority is drawn later than lower priority to overwrite them
         pois.sort(Comparator.comparing(Poi::getDisplayPriority).reversed());
 
-        renderPois(
-                pois,
-                poseStack,
-                BoundingBox.centered(mapCenterX, mapCenterZ, width / currentZoom, height / currentZoom),
-                MapFeature.INSTANCE.poiScale,
-                mouseX,
-                mouseY);
+        renderPois(pois, poseStack, textureBoundingBox, poiScale, mouseX, mouseY);
     }
 
     @Override
@@ -17,7 +17,8 @@ import com.wynntils.mc.objects.CustomColor;
 import com.wynntils.mc.utils.McUtils;
 import com.wynntils.utils.KeyboardUtils;
 import com.wynntils.utils.StringUtils;
-import com.wynntils.wynn.model.LootrunModel;
+import com.wynntils.wynn.model.lootrun.LootrunHeader;
+import com.wynntils.wynn.model.lootrun.LootrunModel;
 import java.io.File;
 import java.util.Objects;
 import net.minecraft.Util;
@@ -31,11 +32,11 @@ public class LootrunButton extends WynntilsButton {
     private static final CustomColor TRACKED_BUTTON_COLOR = new CustomColor(176, 197, 148);
     private static final CustomColor TRACKED_BUTTON_COLOR_HOVERED = new CustomColor(126, 211, 106);
 
-    private final LootrunModel.LootrunInstance lootrun;
+    private final LootrunHeader lootrun;
     private final WynntilsLootrunsScreen screen;
 
     public LootrunButton(
-            int x, int y, int width, int height, LootrunModel.LootrunInstance lootrun, WynntilsLootrunsScreen screen) {
+            int x, int y, int width, int height, LootrunHeader lootrun, WynntilsLootrunsScreen screen) {
         super(x, y, width, height, Component.literal("Lootrun Button"));
         this.lootrun = lootrun;
         this.screen = screen;
@@ -95,8 +96,8 @@ public class LootrunButton extends WynntilsButton {
                 return true;
             }
 
-            LootrunModel.Path path = lootrun.path();
-            Vec3 start = path.points().get(0);
+            Vec3 start = lootrun.start();
+            if (start == null) return true;
 
             McUtils.mc().setScreen(MainMapScreen.create((float) start.x, (float) start.z));
             return true;
@@ -120,7 +121,7 @@ public class LootrunButton extends WynntilsButton {
         return currentLootrun != null && Objects.equals(currentLootrun.name(), lootrun.name());
     }
 
-    public LootrunModel.LootrunInstance getLootrun() {
+    public LootrunHeader getLootrun() {
         return lootrun;
     }
 }
@@ -71,10 +71,30 @@ public final class ChatHandler extends Handler {
             Pattern.compile(" +§[47]Press §r§[cf](SNEAK|SHIFT) §r§[47]to continue§r$");
     private static final Pattern EMPTY_LINE_PATTERN = Pattern.compile("^\\s*(§r|À+)?\\s*$");
 
+    private final ChatPatternIndex patternIndex = new ChatPatternIndex();
     private final Set<Feature> dialogExtractionDependents = new HashSet<>();
     private String lastRealChat = null;
     private List<Component> lastNpcDialog = List.of();
 
+    public ChatHandler() {
+        for (RecipientType recipientType : RecipientType.values()) {
+            registerPatterns(
+                    recipientType.getPattern(MessageType.FOREGROUND), recipientType.getPattern(MessageType.BACKGROUND));
+        }
+    }
+
+    /**
+     * Registers patterns that will be looked up in {@link ChatMatches} of incoming chat messages,
+     * so they can be ruled out without running them. Null patterns are ignored.
+     */
+    public void registerPatterns(Pattern... patterns) {
+        for (Pattern pattern : patterns) {
+            if (pattern != null) {
+                patternIndex.register(pattern);
+            }
+        }
+    }
+
     @SubscribeEvent(priority = EventPriority.HIGHEST)
     public void onChatReceived(ChatPacketReceivedEvent e) {
         if (e.getType() == ChatType.GAME_INFO) return;
@@ -204,12 +224,11 @@ public final class ChatHandler extends Handler {
         }
     }
 
-    private RecipientType getRecipientType(Component message, MessageType messageType) {
-        String msg = ComponentUtils.getCoded(message);
-
+    private RecipientType getRecipientType(ChatMatches matches, MessageType messageType) {
         // Check if message match a recipient category
         for (RecipientType recipientType : RecipientType.values()) {
-            if (recipientType.matchPattern(msg, messageType)) {
+            Pattern pattern = recipientType.getPattern(messageType);
+            if (pattern != null && matches.find(pattern) != null) {
                 return recipientType;
             }
         }
@@ -223,10 +242,11 @@ public final class ChatHandler extends Handler {
      * message entirely.
      */
     private Component handleChatLine(Component message, String codedMessage, MessageType messageType) {
-        RecipientType recipientType = getRecipientType(message, messageType);
+        ChatMatches matches = patternIndex.classify(codedMessage);
+        RecipientType recipientType = getRecipientType(matches, messageType);
 
         ChatMessageReceivedEvent event =
-                new ChatMessageReceivedEvent(message, codedMessage, messageType, recipientType);
+                new ChatMessageReceivedEvent(message, codedMessage, matches, messageType, recipientType);
         WynntilsMod.postEvent(event);
         if (event.isCanceled()) return null;
         return event.getMessage();
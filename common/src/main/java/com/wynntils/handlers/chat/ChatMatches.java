@@ -0,0 +1,82 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.handlers.chat;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The results of matching patterns against a single chat message. Each pattern is only run once per message, and
+ * only if the literal text it needs is in the message; patterns registered with
+ * {@link ChatHandler#registerPatterns(Pattern...)} are ruled out without any work at all for most messages.
+ *
+ * The returned matchers are shared between everyone looking at the message, so they must not be reset or used
+ * to find further matches.
+ */
+public final class ChatMatches {
+    private final String codedMessage;
+    private final ChatPatternIndex index;
+    private final Set<Pattern> findCandidates;
+    private final Set<Pattern> matchCandidates;
+
+    // A null value means the pattern has been tried and did not match
+    private final Map<Pattern, Matcher> found = new IdentityHashMap<>();
+    private final Map<Pattern, Matcher> matched = new IdentityHashMap<>();
+
+    ChatMatches(
+            String codedMessage, ChatPatternIndex index, Set<Pattern> findCandidates, Set<Pattern> matchCandidates) {
+        this.codedMessage = codedMessage;
+        this.index = index;
+        this.findCandidates = findCandidates;
+        this.matchCandidates = matchCandidates;
+    }
+
+    /**
+     * Returns a matcher positioned at the first occurrence of the pattern in the message, or null if there is none.
+     */
+    public Matcher find(Pattern pattern) {
+        return get(pattern, false);
+    }
+
+    /**
+     * Returns a matcher for the pattern matching the entire message, or null if it doesn't.
+     */
+    public Matcher matches(Pattern pattern) {
+        return get(pattern, true);
+    }
+
+    private Matcher get(Pattern pattern, boolean entireMessage) {
+        Map<Pattern, Matcher> results = entireMessage ? matched : found;
+        if (results.containsKey(pattern)) return results.get(pattern);
+
+        Matcher result = null;
+        if (isCandidate(pattern, entireMessage)) {
+            Matcher matcher = pattern.matcher(codedMessage);
+            if (entireMessage ? matcher.matches() : matcher.find()) {
+                result = matcher;
+            }
+        }
+
+        results.put(pattern, result);
+        return result;
+    }
+
+    private boolean isCandidate(Pattern pattern, boolean entireMessage) {
+        ChatPatternIndex.PatternInfo info = index.getInfo(pattern);
+
+        // Patterns that were never registered are always run
+        if (info == null) return true;
+
+        String prefix = entireMessage ? info.matchPrefix() : info.findPrefix();
+        if (!prefix.isEmpty()) {
+            return (entireMessage ? matchCandidates : findCandidates).contains(pattern);
+        }
+
+        return info.requiredLiteral().isEmpty() || codedMessage.contains(info.requiredLiteral());
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.handlers.chat;
+
+import it.unimi.dsi.fastutil.chars.Char2ObjectMap;
+import it.unimi.dsi.fastutil.chars.Char2ObjectOpenHashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Knows which literal text chat patterns need, so most patterns can be ruled out for a message without running them.
+ *
+ * For every registered pattern, the literal text a match must start with, and the longest literal text a match must
+ * contain, is read from the regex. The start literals of all patterns are kept in a trie, so a single walk over the
+ * start of a message finds every pattern that can match it.
+ */
+final class ChatPatternIndex {
+    private final Map<Pattern, PatternInfo> patterns = new IdentityHashMap<>();
+    private final TrieNode root = new TrieNode();
+
+    synchronized void register(Pattern pattern) {
+        if (patterns.containsKey(pattern)) return;
+
+        PatternInfo info = PatternInfo.of(pattern);
+        patterns.put(pattern, info);
+
+        if (!info.findPrefix.isEmpty()) {
+            root.insert(info.findPrefix).findPatterns.add(pattern);
+        }
+        if (!info.matchPrefix.isEmpty()) {
+            root.insert(info.matchPrefix).matchPatterns.add(pattern);
+        }
+    }
+
+    synchronized ChatMatches classify(String codedMessage) {
+        Set<Pattern> findCandidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Pattern> matchCandidates = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        TrieNode node = root;
+        for (int i = 0; i < codedMessage.length(); i++) {
+            node = node.children.get(codedMessage.charAt(i));
+            if (node == null) break;
+
+            findCandidates.addAll(node.findPatterns);
+            matchCandidates.addAll(node.matchPatterns);
+        }
+
+        return new ChatMatches(codedMessage, this, findCandidates, matchCandidates);
+    }
+
+    synchronized PatternInfo getInfo(Pattern pattern) {
+        return patterns.get(pattern);
+    }
+
+    /**
+     * @param findPrefix the text a message must start with for {@link java.util.regex.Matcher#find()} to succeed
+     * @param matchPrefix the text a message must start with for {@link java.util.regex.Matcher#matches()} to succeed
+     * @param requiredLiteral text a message must contain for the pattern to be found
+     */
+    record PatternInfo(String findPrefix, String matchPrefix, String requiredLiteral) {
+        private static final PatternInfo UNKNOWN = new PatternInfo("", "", "");
+
+        private static PatternInfo of(Pattern pattern) {
+            // Flags can change what literals match, so don't try to reason about those patterns
+            if (pattern.flags() != 0) return UNKNOWN;
+
+            List<String> runs = LiteralRuns.of(pattern.pattern());
+            if (runs == null) return UNKNOWN;
+
+            String requiredLiteral = "";
+            for (String run : runs) {
+                if (run.length() > requiredLiteral.length()) {
+                    requiredLiteral = run;
+                }
+            }
+
+            // A leading empty run means the regex does not start with literal text
+            String leading = runs.isEmpty() ? "" : runs.get(0);
+            boolean anchored = pattern.pattern().startsWith("^");
+            return new PatternInfo(anchored ? leading : "", leading, requiredLiteral);
+        }
+    }
+
+    /**
+     * Splits a regex into the runs of literal text that every match contains, in order. The first run is the text
+     * every match starts with, and is empty if the regex does not start with literal text.
+     *
+     * This only understands the common parts of the regex syntax; anything it is unsure about makes it return null.
+     */
+    private static final class LiteralRuns {
+        private static final String METACHARACTERS = "\\[](){}.*+?^$|";
+        private static final String CLASS_ESCAPES = "dDsSwWhHvVbBRX";
+
+        private final String regex;
+        private final List<String> runs = new ArrayList<>();
+        private StringBuilder current = new StringBuilder();
+        private int pos = 0;
+
+        private LiteralRuns(String regex) {
+            this.regex = regex;
+        }
+
+        private static List<String> of(String regex) {
+            try {
+                return new LiteralRuns(regex).parse();
+            } catch (IndexOutOfBoundsException e) {
+                return null;
+            }
+        }
+
+        private List<String> parse() {
+            if (regex.startsWith("^")) {
+                pos++;
+            }
+
+            while (pos < regex.length()) {
+                char c = regex.charAt(pos);
+
+                if (c == '|') {
+                    // Alternatives at the top level mean no text is required
+                    return null;
+                }
+
+                if (c == '$') {
+                    pos++;
+                    endRun();
+                    continue;
+                }
+
+                if (c == '\\') {
+                    char escaped = regex.charAt(pos + 1);
+                    if (CLASS_ESCAPES.indexOf(escaped) >= 0) {
+                        pos += 2;
+                        addNonLiteral();
+                    } else if (!Character.isLetterOrDigit(escaped)) {
+                        pos += 2;
+                        addLiteral(escaped);
+                    } else {
+                        // Character codes, back references, \p{...}, \Q...\E and the like
+                        return null;
+                    }
+                    continue;
+                }
+
+                if (c == '[') {
+                    skipCharacterClass();
+                    addNonLiteral();
+                    continue;
+                }
+
+                if (c == '(') {
+                    if (!skipGroup()) return null;
+                    addNonLiteral();
+                    continue;
+                }
+
+                if (c == '.') {
+                    pos++;
+                    addNonLiteral();
+                    continue;
+                }
+
+                if (METACHARACTERS.indexOf(c) >= 0) {
+                    // A quantifier without anything to quantify, or a stray bracket
+                    return null;
+                }
+
+                pos++;
+                addLiteral(c);
+            }
+
+            endRun();
+            return runs;
+        }
+
+        private void addLiteral(char c) {
+            switch (getQuantifier()) {
+                case ONE -> current.append(c);
+                case AT_LEAST_ONE -> {
+                    // The character is there, but we don't know how many times
+                    current.append(c);
+                    endRun();
+                }
+                case OPTIONAL -> endRun();
+            }
+        }
+
+        private void addNonLiteral() {
+            // Whatever the quantifier, we can't know which text this matches
+            getQuantifier();
+            endRun();
+        }
+
+        private void endRun() {
+            runs.add(current.toString());
+            current = new StringBuilder();
+        }
+
+        // Consumes the quantifier after an atom, if any
+        private Quantifier getQuantifier() {
+            if (pos >= regex.length()) return Quantifier.ONE;
+
+            char c = regex.charAt(pos);
+            Quantifier quantifier;
+            switch (c) {
+                case '?', '*' -> {
+                    pos++;
+                    quantifier = Quantifier.OPTIONAL;
+                }
+                case '+' -> {
+                    pos++;
+                    quantifier = Quantifier.AT_LEAST_ONE;
+                }
+                case '{' -> {
+                    int end = regex.indexOf('}', pos);
+                    String bounds = regex.substring(pos + 1, end);
+                    pos = end + 1;
+                    quantifier = bounds.startsWith("0") ? Quantifier.OPTIONAL : Quantifier.AT_LEAST_ONE;
+                }
+                default -> {
+                    return Quantifier.ONE;
+                }
+            }
+
+            // Lazy and possessive quantifiers
+            if (pos < regex.length() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) {
+                pos++;
+            }
+
+            return quantifier;
+        }
+
+        private void skipCharacterClass() {
+            pos++; // [
+            if (regex.charAt(pos) == '^') pos++;
+            if (regex.charAt(pos) == ']') pos++; // A leading ] is a literal
+
+            while (regex.charAt(pos) != ']') {
+                char c = regex.charAt(pos);
+                if (c == '\\') {
+                    pos += 2;
+                } else if (c == '[') {
+                    skipCharacterClass();
+                } else {
+                    pos++;
+                }
+            }
+
+            pos++; // ]
+        }
+
+        // Returns false for inline flag groups, which change how the rest of the regex matches
+        private boolean skipGroup() {
+            if (regex.startsWith("(?", pos)) {
+                char kind = regex.charAt(pos + 2);
+                if (kind != ':' && kind != '<' && kind != '=' && kind != '!' && kind != '>') return false;
+            }
+
+            int depth = 0;
+            while (true) {
+                char c = regex.charAt(pos);
+                if (c == '\\') {
+                    pos += 2;
+                    continue;
+                }
+                if (c == '[') {
+                    skipCharacterClass();
+                    continue;
+                }
+
+                pos++;
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                    if (depth == 0) return true;
+                }
+            }
+        }
+
+        private enum Quantifier {
+            ONE,
+            AT_LEAST_ONE,
+            OPTIONAL
+        }
+    }
+
+    private static final class TrieNode {
+        private final Char2ObjectMap<TrieNode> children = new Char2ObjectOpenHashMap<>();
+        private final List<Pattern> findPatterns = new ArrayList<>();
+        private final List<Pattern> matchPatterns = new ArrayList<>();
+
+        private TrieNode insert(String text) {
+            TrieNode node = this;
+            for (int i = 0; i < text.length(); i++) {
+                node = node.children.computeIfAbsent(text.charAt(i), c -> new TrieNode());
+            }
+            return node;
+        }
+    }
+}
@@ -34,7 +34,7 @@ public enum RecipientType {
     }
 
     public boolean matchPattern(String msg, MessageType messageType) {
-        Pattern pattern = (messageType == MessageType.FOREGROUND ? foregroundPattern : backgroundPattern);
+        Pattern pattern = getPattern(messageType);
         if (pattern == null) return false;
         return pattern.matcher(msg).find();
     }
@@ -49,6 +49,10 @@ public enum RecipientType {
         return null;
     }
 
+    public Pattern getPattern(MessageType messageType) {
+        return (messageType == MessageType.FOREGROUND ? foregroundPattern : backgroundPattern);
+    }
+
     public String getName() {
         return name;
     }
@@ -4,6 +4,7 @@
  */
 package com.wynntils.handlers.chat.event;
 
+import com.wynntils.handlers.chat.ChatMatches;
 import com.wynntils.handlers.chat.MessageType;
 import com.wynntils.handlers.chat.RecipientType;
 import com.wynntils.mc.utils.ComponentUtils;
@@ -16,6 +17,7 @@ public class ChatMessageReceivedEvent extends Event {
     // These are used to keep the original message so different features don't have to fight over it.
     private final Component originalMessage;
     private final String originalCodedMessage;
+    private final ChatMatches originalMatches;
 
     private Component message;
     private String codedMessage;
@@ -23,9 +25,14 @@ public class ChatMessageReceivedEvent extends Event {
     private final RecipientType recipientType;
 
     public ChatMessageReceivedEvent(
-            Component message, String codedMessage, MessageType messageType, RecipientType recipientType) {
+            Component message,
+            String codedMessage,
+            ChatMatches matches,
+            MessageType messageType,
+            RecipientType recipientType) {
         this.originalMessage = message;
         this.originalCodedMessage = codedMessage;
+        this.originalMatches = matches;
 
         this.message = message;
         this.codedMessage = codedMessage; // message, but as a format-coded string
@@ -61,4 +68,11 @@ public class ChatMessageReceivedEvent extends Event {
     public String getOriginalCodedMessage() {
         return originalCodedMessage;
     }
+
+    /**
+     * Pattern matches against the original coded message, shared by all subscribers so each pattern runs only once.
+     */
+    public ChatMatches getOriginalMatches() {
+        return originalMatches;
+    }
 }
@@ -8,27 +8,32 @@ import com.wynntils.core.WynntilsMod;
 import com.wynntils.core.components.Handler;
 import com.wynntils.handlers.scoreboard.event.ScoreboardSegmentAdditionEvent;
 import com.wynntils.mc.event.ScoreboardSetScoreEvent;
-import com.wynntils.mc.utils.ComponentUtils;
 import com.wynntils.mc.utils.McUtils;
-import com.wynntils.utils.Pair;
 import com.wynntils.wynn.event.WorldStateEvent;
 import com.wynntils.wynn.model.WorldStateManager;
 import com.wynntils.wynn.model.scoreboard.ScoreboardModel;
 import com.wynntils.wynn.utils.WynnUtils;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import net.minecraft.ChatFormatting;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.ServerScoreboard;
@@ -45,253 +50,250 @@ public final class ScoreboardHandler extends Handler {
     // 250 -> 4 times a second
     private static final int CHANGE_PROCESS_RATE = 250;
 
-    private List<ScoreboardLine> reconstructedScoreboard = new ArrayList<>();
+    // Filled from packet handling and drained by the scoreboard thread
+    private final Queue<ScoreboardLineChange> queuedChanges = new ConcurrentLinkedQueue<>();
 
-    private List<Segment> segments = new ArrayList<>();
+    private final Map<ScoreboardModel.SegmentType, List<ScoreboardListener>> listenersByType =
+            new EnumMap<>(ScoreboardModel.SegmentType.class);
+    private final Set<ScoreboardListener> scoreboardListeners = new CopyOnWriteArraySet<>();
 
-    private final LinkedList<ScoreboardLineChange> queuedChanges = new LinkedList<>();
+    // These are only ever replaced, never modified, so they can be read from the main thread
+    private volatile List<ScoreboardLine> reconstructedScoreboard = List.of();
+    private volatile List<Segment> segments = List.of();
 
-    private final List<Pair<ScoreboardListener, Set<ScoreboardModel.SegmentType>>> scoreboardListeners =
-            new ArrayList<>();
+    // Set when the scoreboard shown to the player has to be rebuilt
+    private final AtomicBoolean scoreboardDirty = new AtomicBoolean(true);
+    private List<String> lastSkippedLines = List.of();
 
     private ScheduledExecutorService executor = null;
 
-    private boolean firstExecution = false;
+    private volatile boolean firstExecution = false;
+
+    public ScoreboardHandler() {
+        for (ScoreboardModel.SegmentType segmentType : ScoreboardModel.SegmentType.values()) {
+            listenersByType.put(segmentType, new CopyOnWriteArrayList<>());
+        }
+    }
 
     private void periodicTask() {
         if (!WynnUtils.onWorld() || McUtils.player() == null) return;
 
-        if (queuedChanges.isEmpty()) {
-            handleScoreboardReconstruction();
-            return;
+        if (!queuedChanges.isEmpty()) {
+            processChanges();
         }
 
-        List<ScoreboardLine> scoreboardCopy = new ArrayList<>(reconstructedScoreboard);
-        LinkedList<ScoreboardLineChange> queueCopy = new LinkedList<>(queuedChanges);
-        queuedChanges.clear();
+        McUtils.mc().execute(this::handleScoreboardReconstruction);
+    }
 
-        Map<Integer, ScoreboardLine> scoreboardLineMap = new TreeMap<>();
+    private void processChanges() {
+        List<ScoreboardLine> oldScoreboard = reconstructedScoreboard;
+        List<Segment> oldSegments = segments;
 
-        for (ScoreboardLine scoreboardLine : scoreboardCopy) {
-            scoreboardLineMap.put(scoreboardLine.index(), scoreboardLine);
+        // Changes are applied to the line at each score index, so only the last text of every line matters
+        Int2ObjectMap<String> scoreboardLineMap = new Int2ObjectOpenHashMap<>();
+        for (ScoreboardLine scoreboardLine : oldScoreboard) {
+            scoreboardLineMap.put(scoreboardLine.index(), scoreboardLine.line());
         }
 
-        Set<String> changedLines = new HashSet<>();
-        while (!queueCopy.isEmpty()) {
-            ScoreboardLineChange processed = queueCopy.pop();
-
+        ScoreboardLineChange processed;
+        while ((processed = queuedChanges.poll()) != null) {
             if (processed.method() == ServerScoreboard.Method.REMOVE) {
-                for (ScoreboardLine lineToRemove : scoreboardLineMap.values().stream()
-                        .filter(scoreboardLine -> Objects.equals(scoreboardLine.line(), processed.lineText()))
-                        .toList()) {
-                    scoreboardLineMap.remove(lineToRemove.index());
-                }
+                String lineText = processed.lineText();
+                scoreboardLineMap.values().removeIf(line -> Objects.equals(line, lineText));
             } else {
-                ScoreboardLine line = new ScoreboardLine(processed.lineText(), processed.lineIndex());
-                scoreboardLineMap.put(line.index(), line);
-                changedLines.add(processed.lineText());
+                scoreboardLineMap.put(processed.lineIndex(), processed.lineText());
             }
         }
 
-        scoreboardCopy.clear();
+        // Higher scores are shown first
+        int[] indices = scoreboardLineMap.keySet().toIntArray();
+        Arrays.sort(indices);
 
-        scoreboardCopy = scoreboardLineMap.values().stream()
-                .sorted(Comparator.comparing(ScoreboardLine::index).reversed())
-                .collect(Collectors.toList());
+        List<ScoreboardLine> scoreboardCopy = new ArrayList<>(indices.length);
+        List<String> lines = new ArrayList<>(indices.length);
+        for (int i = indices.length - 1; i >= 0; i--) {
+            String line = scoreboardLineMap.get(indices[i]);
+            scoreboardCopy.add(new ScoreboardLine(line, indices[i]));
+            lines.add(line);
+        }
+        lines = Collections.unmodifiableList(lines);
 
-        List<Segment> parsedSegments = calculateSegments(scoreboardCopy);
+        List<Segment> parsedSegments = parseSegments(oldScoreboard, oldSegments, scoreboardCopy, lines);
+        if (parsedSegments == null && !firstExecution) return;
+        if (parsedSegments == null) {
+            parsedSegments = oldSegments;
+        }
 
-        for (String changedString : changedLines) {
-            int changedLine =
-                    scoreboardCopy.stream().map(ScoreboardLine::line).toList().indexOf(changedString);
+        List<Segment> changedSegments = new ArrayList<>();
+        Map<ScoreboardModel.SegmentType, Segment> oldSegmentsByType = new EnumMap<>(ScoreboardModel.SegmentType.class);
+        for (Segment segment : oldSegments) {
+            oldSegmentsByType.putIfAbsent(segment.getType(), segment);
+        }
 
-            if (changedLine == -1) {
-                continue;
-            }
+        for (Segment segment : parsedSegments) {
+            Segment oldMatchingSegment = oldSegmentsByType.remove(segment.getType());
 
-            Optional<Segment> foundSegment = parsedSegments.stream()
-                    .filter(segment -> segment.getStartIndex() <= changedLine
-                            && segment.getEndIndex() >= changedLine
-                            && !segment.isChanged())
-                    .findFirst();
+            // Compare against the old segment of the same type, so content that was only moved to make room for
+            // another segment (Objective -> Daily Objective update) does not count as changed
+            boolean changed = oldMatchingSegment == null
+                    || (segment != oldMatchingSegment
+                            && (!oldMatchingSegment.getContent().equals(segment.getContent())
+                                    || !Objects.equals(oldMatchingSegment.getHeader(), segment.getHeader())));
+            segment.setChanged(changed);
 
-            if (foundSegment.isEmpty()) {
-                continue;
+            if (changed || firstExecution) {
+                changedSegments.add(segment);
             }
+        }
 
-            // Prevent bugs where content was not changed, but rather replaced to prepare room for other segment updates
-            //  (Objective -> Daily Objective update)
-            Optional<Segment> oldMatchingSegment = segments.stream()
-                    .filter(segment -> segment.getType() == foundSegment.get().getType())
-                    .findFirst();
-
-            if (oldMatchingSegment.isEmpty()) {
-                foundSegment.get().setChanged(true);
-                continue;
-            }
+        reconstructedScoreboard = Collections.unmodifiableList(scoreboardCopy);
+        segments = List.copyOf(parsedSegments);
+        scoreboardDirty.set(true);
+        firstExecution = false;
 
-            if (!oldMatchingSegment.get().getContent().equals(foundSegment.get().getContent())
-                    || !Objects.equals(
-                            oldMatchingSegment.get().getHeader(),
-                            foundSegment.get().getHeader())) {
-                foundSegment.get().setChanged(true);
+        // Segments left over did not match any of the new segments
+        for (Segment segment : oldSegmentsByType.values()) {
+            for (ScoreboardListener listener : listenersByType.get(segment.getType())) {
+                listener.onSegmentRemove(segment, segment.getType());
             }
         }
 
-        List<Segment> removedSegments = segments.stream()
-                .filter(segment -> parsedSegments.stream().noneMatch(parsed -> parsed.getType() == segment.getType()))
-                .toList();
-
-        reconstructedScoreboard = scoreboardCopy;
-        segments = parsedSegments;
-
-        for (Segment segment : removedSegments) {
-            for (Pair<ScoreboardListener, Set<ScoreboardModel.SegmentType>> scoreboardListener : scoreboardListeners) {
-                if (scoreboardListener.b().contains(segment.getType())) {
-                    scoreboardListener.a().onSegmentRemove(segment, segment.getType());
-                }
+        for (Segment segment : changedSegments) {
+            for (ScoreboardListener listener : listenersByType.get(segment.getType())) {
+                listener.onSegmentChange(segment, segment.getType());
             }
         }
+    }
 
-        List<Segment> changedSegments;
+    /**
+     * Returns the segments of the new scoreboard, or null if no line changed.
+     *
+     * If only lines inside segments changed, just the segments containing them are parsed again, and the other
+     * segments are kept as they were. Otherwise, the whole scoreboard is parsed.
+     */
+    private List<Segment> parseSegments(
+            List<ScoreboardLine> oldScoreboard,
+            List<Segment> oldSegments,
+            List<ScoreboardLine> newScoreboard,
+            List<String> lines) {
+        if (oldScoreboard.size() != newScoreboard.size()) return SegmentParser.parse(lines);
+
+        IntList changedPositions = new IntArrayList();
+        for (int i = 0; i < newScoreboard.size(); i++) {
+            ScoreboardLine oldLine = oldScoreboard.get(i);
+            ScoreboardLine newLine = newScoreboard.get(i);
+
+            // A line was added or removed, so lines have moved
+            if (oldLine.index() != newLine.index()) return SegmentParser.parse(lines);
+
+            if (oldLine.line().equals(newLine.line())) continue;
+
+            if (SegmentParser.isBoundary(oldLine.line()) || SegmentParser.isBoundary(newLine.line())) {
+                return SegmentParser.parse(lines);
+            }
 
-        if (firstExecution) {
-            firstExecution = false;
-            changedSegments = parsedSegments.stream().toList();
-        } else {
-            changedSegments = parsedSegments.stream().filter(Segment::isChanged).toList();
+            changedPositions.add(i);
         }
 
-        for (Segment segment : changedSegments) {
-            for (Pair<ScoreboardListener, Set<ScoreboardModel.SegmentType>> scoreboardListener : scoreboardListeners) {
-                if (scoreboardListener.b().contains(segment.getType())) {
-                    scoreboardListener.a().onSegmentChange(segment, segment.getType());
+        if (changedPositions.isEmpty()) return null;
+
+        List<Segment> parsedSegments = new ArrayList<>(oldSegments.size());
+        for (Segment segment : oldSegments) {
+            boolean containsChange = false;
+            for (int i = 0; i < changedPositions.size(); i++) {
+                int position = changedPositions.getInt(i);
+                if (segment.getStartIndex() <= position && position <= segment.getEndIndex()) {
+                    containsChange = true;
+                    break;
                 }
             }
+
+            parsedSegments.add(containsChange ? SegmentParser.reparse(segment, lines) : segment);
         }
 
-        handleScoreboardReconstruction();
+        return parsedSegments;
     }
 
+    // Runs on the main thread. Only rebuilds the shown scoreboard when the lines, or the segments hidden by features,
+    // have changed, or if the server replaced it.
     private void handleScoreboardReconstruction() {
-        McUtils.mc().doRunTask(() -> {
-            Scoreboard scoreboard = McUtils.player().getScoreboard();
+        if (McUtils.player() == null) return;
 
-            List<String> skipped = new ArrayList<>();
+        Scoreboard scoreboard = McUtils.player().getScoreboard();
+        boolean dirty = scoreboardDirty.getAndSet(false);
+        List<Segment> currentSegments = segments;
+        List<ScoreboardLine> currentScoreboard = reconstructedScoreboard;
 
-            for (Segment parsedSegment : segments) {
-                boolean cancelled = WynntilsMod.postEvent(new ScoreboardSegmentAdditionEvent(parsedSegment));
+        List<String> skipped = new ArrayList<>();
 
-                if (cancelled) {
-                    skipped.addAll(parsedSegment.getScoreboardLines());
-                }
-            }
-
-            final String objectiveName = "wynntilsSB" + McUtils.player().getScoreboardName();
-
-            Objective objective = scoreboard.getObjective(objectiveName);
+        for (Segment parsedSegment : currentSegments) {
+            boolean cancelled = WynntilsMod.postEvent(new ScoreboardSegmentAdditionEvent(parsedSegment));
 
-            if (objective == null) {
-                objective = scoreboard.addObjective(
-                        objectiveName,
-                        ObjectiveCriteria.DUMMY,
-                        Component.literal(" play.wynncraft.com")
-                                .withStyle(ChatFormatting.GOLD)
-                                .withStyle(ChatFormatting.BOLD),
-                        ObjectiveCriteria.RenderType.INTEGER);
+            if (cancelled) {
+                skipped.addAll(parsedSegment.getScoreboardLines());
             }
+        }
 
-            scoreboard.setDisplayObjective(1, objective);
+        final String objectiveName = "wynntilsSB" + McUtils.player().getScoreboardName();
 
-            // Set player team display objective
-            // This fixes scoreboard gui flickering
-            PlayerTeam playerTeam = scoreboard.getPlayersTeam(McUtils.player().getScoreboardName());
-            if (playerTeam != null) {
-                if (playerTeam.getColor().getId() >= 0) {
-                    int id = playerTeam.getColor().getId() + 3;
-                    scoreboard.setDisplayObjective(id, objective);
-                }
-            }
+        Objective objective = scoreboard.getObjective(objectiveName);
 
-            for (Map<Objective, Score> scoreMap : scoreboard.playerScores.values()) {
-                scoreMap.remove(objective);
-            }
+        if (!dirty && objective != null && scoreboard.getDisplayObjective(1) == objective) {
+            if (skipped.equals(lastSkippedLines)) return;
+        }
 
-            // Filter and skip leading empty lines
-            List<ScoreboardLine> toBeAdded = reconstructedScoreboard.stream()
-                    .filter(scoreboardLine -> !skipped.contains(scoreboardLine.line()))
-                    .dropWhile(scoreboardLine -> scoreboardLine.line().matches("À+"))
-                    .toList();
+        lastSkippedLines = skipped;
 
-            boolean allEmpty = true;
+        if (objective == null) {
+            objective = scoreboard.addObjective(
+                    objectiveName,
+                    ObjectiveCriteria.DUMMY,
+                    Component.literal(" play.wynncraft.com")
+                            .withStyle(ChatFormatting.GOLD)
+                            .withStyle(ChatFormatting.BOLD),
+                    ObjectiveCriteria.RenderType.INTEGER);
+        }
 
-            // Skip trailing empty lines
-            for (int i = toBeAdded.size() - 1; i >= 0; i--) {
-                if (allEmpty && toBeAdded.get(i).line().matches("À+")) {
-                    continue;
-                }
+        scoreboard.setDisplayObjective(1, objective);
 
-                allEmpty = false;
-                Score score = scoreboard.getOrCreatePlayerScore(toBeAdded.get(i).line(), objective);
-                score.setScore(toBeAdded.get(i).index());
+        // Set player team display objective
+        // This fixes scoreboard gui flickering
+        PlayerTeam playerTeam = scoreboard.getPlayersTeam(McUtils.player().getScoreboardName());
+        if (playerTeam != null) {
+            if (playerTeam.getColor().getId() >= 0) {
+                int id = playerTeam.getColor().getId() + 3;
+                scoreboard.setDisplayObjective(id, objective);
             }
-        });
-    }
-
-    private List<Segment> calculateSegments(List<ScoreboardLine> scoreboardCopy) {
-        List<Segment> segments = new ArrayList<>();
-
-        Segment currentSegment = null;
+        }
 
-        for (int i = 0; i < scoreboardCopy.size(); i++) {
-            String strippedLine =
-                    ComponentUtils.stripFormatting(scoreboardCopy.get(i).line());
+        for (Map<Objective, Score> scoreMap : scoreboard.playerScores.values()) {
+            scoreMap.remove(objective);
+        }
 
-            if (strippedLine == null) {
-                continue;
-            }
+        // Filter and skip leading empty lines
+        Set<String> skippedLines = new HashSet<>(skipped);
+        List<ScoreboardLine> toBeAdded = currentScoreboard.stream()
+                .filter(scoreboardLine -> !skippedLines.contains(scoreboardLine.line()))
+                .dropWhile(scoreboardLine -> SegmentParser.SEPARATOR_PATTERN
+                        .matcher(scoreboardLine.line())
+                        .matches())
+                .toList();
 
-            if (strippedLine.matches("À+")) {
-                if (currentSegment != null) {
-                    currentSegment.setContent(scoreboardCopy.stream()
-                            .map(ScoreboardLine::line)
-                            .collect(Collectors.toList())
-                            .subList(currentSegment.getStartIndex() + 1, i));
-                    currentSegment.setEndIndex(i - 1);
-                    currentSegment.setEnd(strippedLine);
-                    segments.add(currentSegment);
-                    currentSegment = null;
-                }
+        boolean allEmpty = true;
 
+        // Skip trailing empty lines
+        for (int i = toBeAdded.size() - 1; i >= 0; i--) {
+            if (allEmpty
+                    && SegmentParser.SEPARATOR_PATTERN
+                            .matcher(toBeAdded.get(i).line())
+                            .matches()) {
                 continue;
             }
 
-            for (ScoreboardModel.SegmentType value : ScoreboardModel.SegmentType.values()) {
-                if (!value.getHeaderPattern().matcher(strippedLine).matches()) continue;
-
-                if (currentSegment != null) {
-                    if (currentSegment.getType() != value) {
-                        WynntilsMod.error(
-                                "ScoreboardModel: currentSegment was not null and SegmentType was mismatched. We might have skipped a scoreboard category.");
-                    }
-                    continue;
-                }
-
-                currentSegment = new Segment(value, scoreboardCopy.get(i).line(), i);
-                break;
-            }
-        }
-
-        if (currentSegment != null) {
-            currentSegment.setContent(scoreboardCopy.stream()
-                    .map(ScoreboardLine::line)
-                    .collect(Collectors.toList())
-                    .subList(currentSegment.getStartIndex(), scoreboardCopy.size()));
-            currentSegment.setEndIndex(scoreboardCopy.size() - 1);
-            segments.add(currentSegment);
+            allEmpty = false;
+            Score score = scoreboard.getOrCreatePlayerScore(toBeAdded.get(i).line(), objective);
+            score.setScore(toBeAdded.get(i).index());
         }
-
-        return segments;
     }
 
     public void init() {
@@ -301,14 +303,18 @@ public final class ScoreboardHandler extends Handler {
     public void disable() {
         resetState();
         scoreboardListeners.clear();
+        listenersByType.values().forEach(List::clear);
     }
 
     public void registerListener(ScoreboardListener listener, ScoreboardModel.SegmentType segmentType) {
-        scoreboardListeners.add(new Pair<>(listener, Set.of(segmentType)));
+        registerListener(listener, Set.of(segmentType));
     }
 
     public void registerListener(ScoreboardListener listener, Set<ScoreboardModel.SegmentType> segmentTypes) {
-        scoreboardListeners.add(new Pair<>(listener, segmentTypes));
+        scoreboardListeners.add(listener);
+        for (ScoreboardModel.SegmentType segmentType : segmentTypes) {
+            listenersByType.get(segmentType).add(listener);
+        }
     }
 
     @SubscribeEvent(priority = EventPriority.HIGHEST)
@@ -339,11 +345,12 @@ public final class ScoreboardHandler extends Handler {
         }
 
         queuedChanges.clear();
-        reconstructedScoreboard.clear();
-        segments.clear();
+        reconstructedScoreboard = List.of();
+        segments = List.of();
+        scoreboardDirty.set(true);
 
-        for (Pair<ScoreboardListener, Set<ScoreboardModel.SegmentType>> scoreboardListener : scoreboardListeners) {
-            scoreboardListener.a().reset();
+        for (ScoreboardListener scoreboardListener : scoreboardListeners) {
+            scoreboardListener.reset();
         }
     }
 }
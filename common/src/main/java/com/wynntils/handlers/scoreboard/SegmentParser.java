@@ -0,0 +1,99 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.handlers.scoreboard;
+
+import com.wynntils.core.WynntilsMod;
+import com.wynntils.mc.utils.ComponentUtils;
+import com.wynntils.wynn.model.scoreboard.ScoreboardModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Splits the lines of the scoreboard, from top to bottom, into segments.
+ *
+ * A segment starts at a line matching the header pattern of a {@link ScoreboardModel.SegmentType}, and ends at the
+ * next separator line, or at the bottom of the scoreboard. Only header and separator lines decide where segments are,
+ * so when no other line changes, segments can be updated one at a time with {@link #reparse(Segment, List)}.
+ */
+final class SegmentParser {
+    static final Pattern SEPARATOR_PATTERN = Pattern.compile("À+");
+
+    private SegmentParser() {}
+
+    static List<Segment> parse(List<String> lines) {
+        List<Segment> segments = new ArrayList<>();
+
+        Segment currentSegment = null;
+
+        for (int i = 0; i < lines.size(); i++) {
+            String strippedLine = ComponentUtils.stripFormatting(lines.get(i));
+
+            if (SEPARATOR_PATTERN.matcher(strippedLine).matches()) {
+                if (currentSegment != null) {
+                    currentSegment.setContent(lines.subList(currentSegment.getStartIndex() + 1, i));
+                    currentSegment.setEndIndex(i - 1);
+                    currentSegment.setEnd(strippedLine);
+                    segments.add(currentSegment);
+                    currentSegment = null;
+                }
+
+                continue;
+            }
+
+            ScoreboardModel.SegmentType type = getHeaderType(strippedLine);
+            if (type == null) continue;
+
+            if (currentSegment != null) {
+                if (currentSegment.getType() != type) {
+                    WynntilsMod.error(
+                            "ScoreboardModel: currentSegment was not null and SegmentType was mismatched. We might have skipped a scoreboard category.");
+                }
+                continue;
+            }
+
+            currentSegment = new Segment(type, lines.get(i), i);
+        }
+
+        if (currentSegment != null) {
+            currentSegment.setContent(lines.subList(currentSegment.getStartIndex(), lines.size()));
+            currentSegment.setEndIndex(lines.size() - 1);
+            segments.add(currentSegment);
+        }
+
+        return segments;
+    }
+
+    /**
+     * Re-reads the content of a segment, after lines inside it changed. The header and separator lines of the
+     * scoreboard must not have changed since the segment was parsed.
+     */
+    static Segment reparse(Segment segment, List<String> lines) {
+        Segment reparsed = new Segment(segment.getType(), segment.getHeader(), segment.getStartIndex());
+
+        // Segments at the bottom of the scoreboard have their header as part of their content
+        int contentStart = segment.getEnd() != null ? segment.getStartIndex() + 1 : segment.getStartIndex();
+        reparsed.setContent(lines.subList(contentStart, segment.getEndIndex() + 1));
+        reparsed.setEndIndex(segment.getEndIndex());
+        reparsed.setEnd(segment.getEnd());
+        return reparsed;
+    }
+
+    /**
+     * Returns whether the line starts or ends a segment, so changing it can change where segments are.
+     */
+    static boolean isBoundary(String line) {
+        String strippedLine = ComponentUtils.stripFormatting(line);
+        return SEPARATOR_PATTERN.matcher(strippedLine).matches() || getHeaderType(strippedLine) != null;
+    }
+
+    private static ScoreboardModel.SegmentType getHeaderType(String strippedLine) {
+        for (ScoreboardModel.SegmentType type : ScoreboardModel.SegmentType.values()) {
+            if (type.getHeaderPattern().matcher(strippedLine).matches()) return type;
+        }
+
+        return null;
+    }
+}
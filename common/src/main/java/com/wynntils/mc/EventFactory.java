@@ -17,6 +17,7 @@ import com.wynntils.mc.event.ChatPacketReceivedEvent;
 import com.wynntils.mc.event.ChatScreenKeyTypedEvent;
 import com.wynntils.mc.event.ChatSentEvent;
 import com.wynntils.mc.event.ChestMenuQuickMoveEvent;
+import com.wynntils.mc.event.ChunkEvent;
 import com.wynntils.mc.event.ClientTickEvent;
 import com.wynntils.mc.event.ClientsideMessageEvent;
 import com.wynntils.mc.event.CommandSentEvent;
@@ -79,8 +80,10 @@ import com.wynntils.mc.event.UseItemEvent;
 import com.wynntils.mc.mixin.accessors.ClientboundSetPlayerTeamPacketAccessor;
 import com.wynntils.mc.objects.ChatType;
 import com.wynntils.wynn.utils.WynnUtils;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
 import net.minecraft.client.Camera;
@@ -108,6 +111,7 @@ import net.minecraft.network.protocol.game.ClientboundPlayerInfoRemovePacket;
 import net.minecraft.network.protocol.game.ClientboundPlayerInfoUpdatePacket;
 import net.minecraft.network.protocol.game.ClientboundPlayerPositionPacket;
 import net.minecraft.network.protocol.game.ClientboundResourcePackPacket;
+import net.minecraft.network.protocol.game.ClientboundSectionBlocksUpdatePacket;
 import net.minecraft.network.protocol.game.ClientboundSetExperiencePacket;
 import net.minecraft.network.protocol.game.ClientboundSetPassengersPacket;
 import net.minecraft.network.protocol.game.ClientboundSetPlayerTeamPacket;
@@ -126,6 +130,7 @@ import net.minecraft.world.inventory.ClickType;
 import net.minecraft.world.inventory.Slot;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.PotionItem;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.entity.EntityAccess;
 import net.minecraft.world.phys.BlockHitResult;
@@ -501,6 +506,27 @@ public final class EventFactory {
         return post(new SetSpawnEvent(spawnPos));
     }
 
+    public static void onChunkLoad(int x, int z) {
+        post(new ChunkEvent.Load(new ChunkPos(x, z)));
+    }
+
+    public static void onChunkUnload(int x, int z) {
+        post(new ChunkEvent.Unload(new ChunkPos(x, z)));
+    }
+
+    public static void onBlockUpdate(BlockPos pos) {
+        post(new ChunkEvent.BlocksChanged(new ChunkPos(pos)));
+    }
+
+    public static void onSectionBlocksUpdate(ClientboundSectionBlocksUpdatePacket packet) {
+        // All updates are in a single section, so in a single chunk
+        Set<ChunkPos> chunks = new HashSet<>();
+        packet.runUpdates((pos, state) -> chunks.add(new ChunkPos(pos)));
+        for (ChunkPos chunk : chunks) {
+            post(new ChunkEvent.BlocksChanged(chunk));
+        }
+    }
+
     public static void onPlayerInfoUpdatePacket(ClientboundPlayerInfoUpdatePacket packet) {
         for (ClientboundPlayerInfoUpdatePacket.Entry entry : packet.newEntries()) {
             GameProfile profile = entry.profile();
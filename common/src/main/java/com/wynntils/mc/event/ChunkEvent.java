@@ -0,0 +1,42 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.mc.event;
+
+import net.minecraft.world.level.ChunkPos;
+import net.minecraftforge.eventbus.api.Event;
+
+/** Fires when the blocks of a chunk change on the client */
+public abstract class ChunkEvent extends Event {
+    private final ChunkPos chunkPos;
+
+    protected ChunkEvent(ChunkPos chunkPos) {
+        this.chunkPos = chunkPos;
+    }
+
+    public ChunkPos getChunkPos() {
+        return chunkPos;
+    }
+
+    /** Fires after a chunk has been received from the server */
+    public static class Load extends ChunkEvent {
+        public Load(ChunkPos chunkPos) {
+            super(chunkPos);
+        }
+    }
+
+    /** Fires after a chunk has been dropped by the client */
+    public static class Unload extends ChunkEvent {
+        public Unload(ChunkPos chunkPos) {
+            super(chunkPos);
+        }
+    }
+
+    /** Fires after the server changed one or more blocks in a loaded chunk */
+    public static class BlocksChanged extends ChunkEvent {
+        public BlocksChanged(ChunkPos chunkPos) {
+            super(chunkPos);
+        }
+    }
+}
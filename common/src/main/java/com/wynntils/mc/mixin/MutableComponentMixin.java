@@ -0,0 +1,50 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.mc.mixin;
+
+import com.wynntils.mc.utils.CodedComponent;
+import net.minecraft.locale.Language;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.MutableComponent;
+import net.minecraft.network.chat.Style;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+@Mixin(MutableComponent.class)
+public abstract class MutableComponentMixin implements CodedComponent {
+    @Unique
+    private String cachedCoded;
+
+    @Unique
+    private Language cachedCodedLanguage;
+
+    @Override
+    public String getCachedCoded(Language language) {
+        return language == cachedCodedLanguage ? cachedCoded : null;
+    }
+
+    @Override
+    public void setCachedCoded(String coded, Language language) {
+        cachedCoded = coded;
+        cachedCodedLanguage = language;
+    }
+
+    @Inject(
+            method = "setStyle(Lnet/minecraft/network/chat/Style;)Lnet/minecraft/network/chat/MutableComponent;",
+            at = @At("HEAD"))
+    private void setStylePre(Style style, CallbackInfoReturnable<MutableComponent> cir) {
+        cachedCoded = null;
+    }
+
+    @Inject(
+            method = "append(Lnet/minecraft/network/chat/Component;)Lnet/minecraft/network/chat/MutableComponent;",
+            at = @At("HEAD"))
+    private void appendPre(Component sibling, CallbackInfoReturnable<MutableComponent> cir) {
+        cachedCoded = null;
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.mc.utils;
+
+import net.minecraft.locale.Language;
+
+/**
+ * Lets {@link net.minecraft.network.chat.MutableComponent} remember its coded string, see
+ * {@link ComponentUtils#getCoded(net.minecraft.network.chat.Component)}.
+ *
+ * The cached string is forgotten when the style of the component is changed or something is appended to it. Changes
+ * made to its siblings after it has been encoded are not noticed, just like vanilla's own caching of the visual
+ * order text of a component.
+ */
+public interface CodedComponent {
+    /**
+     * Returns the cached coded string, or null if there is none for the given language.
+     */
+    String getCachedCoded(Language language);
+
+    void setCachedCoded(String coded, Language language);
+}
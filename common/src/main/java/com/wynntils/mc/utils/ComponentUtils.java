@@ -5,14 +5,16 @@
 package com.wynntils.mc.utils;
 
 import com.wynntils.wynn.utils.WynnUtils;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import net.minecraft.ChatFormatting;
+import net.minecraft.locale.Language;
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.FormattedText;
 import net.minecraft.network.chat.MutableComponent;
@@ -21,14 +23,21 @@ import net.minecraft.network.chat.TextColor;
 
 public final class ComponentUtils {
     private static final Pattern NEWLINE_PATTERN = Pattern.compile("\n");
+    private static final Int2ObjectMap<ChatFormatting> COLOR_FORMATTINGS = createColorFormattings();
 
     // Text with formatting codes "§cTest §1Text"
+    // The coded string is cached on the component, so repeated calls for the same component are cheap
     public static String getCoded(Component component) {
-        StringBuilder result = new StringBuilder();
+        if (!(component instanceof CodedComponent codedComponent)) return encode(component);
 
-        component.visit(new CodedStringGenerator(result), Style.EMPTY);
+        Language language = Language.getInstance();
+        String coded = codedComponent.getCachedCoded(language);
+        if (coded == null) {
+            coded = encode(component);
+            codedComponent.setCachedCoded(coded, language);
+        }
 
-        return result.toString();
+        return coded;
     }
 
     // Text without formatting codes "Test text"
@@ -50,40 +59,44 @@ public final class ComponentUtils {
         return getUnformatted(component);
     }
 
-    private static StringBuilder tryConstructDifference(Style oldStyle, Style newStyle) {
-        StringBuilder add = new StringBuilder();
-
-        int oldColorInt = Optional.ofNullable(oldStyle.getColor())
-                .map(TextColor::getValue)
-                .orElse(-1);
-        int newColorInt = Optional.ofNullable(newStyle.getColor())
-                .map(TextColor::getValue)
-                .orElse(-1);
-
-        if (oldColorInt == -1) {
-            if (newColorInt != -1) {
-                getChatFormatting(newColorInt).ifPresent(add::append);
-            }
-        } else if (oldColorInt != newColorInt) {
-            return null;
-        }
+    private static String encode(Component component) {
+        StringBuilder result = new StringBuilder();
 
-        if (oldStyle.isBold() && !newStyle.isBold()) return null;
-        if (!oldStyle.isBold() && newStyle.isBold()) add.append(ChatFormatting.BOLD);
+        component.visit(new CodedStringGenerator(result), Style.EMPTY);
 
-        if (oldStyle.isItalic() && !newStyle.isItalic()) return null;
-        if (!oldStyle.isItalic() && newStyle.isItalic()) add.append(ChatFormatting.ITALIC);
+        return result.toString();
+    }
 
-        if (oldStyle.isUnderlined() && !newStyle.isUnderlined()) return null;
-        if (!oldStyle.isUnderlined() && newStyle.isUnderlined()) add.append(ChatFormatting.UNDERLINE);
+    // Whether the new style can be reached by adding formatting codes to the old one, without a reset
+    private static boolean canConstructDifference(Style oldStyle, Style newStyle) {
+        TextColor oldColor = oldStyle.getColor();
+        TextColor newColor = newStyle.getColor();
+        if (oldColor != null && (newColor == null || oldColor.getValue() != newColor.getValue())) return false;
+
+        if (oldStyle.isBold() && !newStyle.isBold()) return false;
+        if (oldStyle.isItalic() && !newStyle.isItalic()) return false;
+        if (oldStyle.isUnderlined() && !newStyle.isUnderlined()) return false;
+        if (oldStyle.isStrikethrough() && !newStyle.isStrikethrough()) return false;
+        return !oldStyle.isObfuscated() || newStyle.isObfuscated();
+    }
 
-        if (oldStyle.isStrikethrough() && !newStyle.isStrikethrough()) return null;
-        if (!oldStyle.isStrikethrough() && newStyle.isStrikethrough()) add.append(ChatFormatting.STRIKETHROUGH);
+    private static void appendDifference(Style oldStyle, Style newStyle, StringBuilder result) {
+        if (oldStyle.getColor() == null && newStyle.getColor() != null) {
+            appendColor(newStyle.getColor(), result);
+        }
 
-        if (oldStyle.isObfuscated() && !newStyle.isObfuscated()) return null;
-        if (!oldStyle.isObfuscated() && newStyle.isObfuscated()) add.append(ChatFormatting.OBFUSCATED);
+        if (!oldStyle.isBold() && newStyle.isBold()) result.append(ChatFormatting.BOLD);
+        if (!oldStyle.isItalic() && newStyle.isItalic()) result.append(ChatFormatting.ITALIC);
+        if (!oldStyle.isUnderlined() && newStyle.isUnderlined()) result.append(ChatFormatting.UNDERLINE);
+        if (!oldStyle.isStrikethrough() && newStyle.isStrikethrough()) result.append(ChatFormatting.STRIKETHROUGH);
+        if (!oldStyle.isObfuscated() && newStyle.isObfuscated()) result.append(ChatFormatting.OBFUSCATED);
+    }
 
-        return add;
+    private static void appendColor(TextColor textColor, StringBuilder result) {
+        ChatFormatting formatting = COLOR_FORMATTINGS.get(textColor.getValue());
+        if (formatting != null) {
+            result.append(formatting);
+        }
     }
 
     public static Optional<ChatFormatting> getChatFormatting(TextColor textColor) {
@@ -91,9 +104,17 @@ public final class ComponentUtils {
     }
 
     public static Optional<ChatFormatting> getChatFormatting(int textColor) {
-        return Arrays.stream(ChatFormatting.values())
-                .filter(c -> c.isColor() && textColor == c.getColor())
-                .findFirst();
+        return Optional.ofNullable(COLOR_FORMATTINGS.get(textColor));
+    }
+
+    private static Int2ObjectMap<ChatFormatting> createColorFormattings() {
+        Int2ObjectMap<ChatFormatting> colorFormattings = new Int2ObjectOpenHashMap<>();
+        for (ChatFormatting formatting : ChatFormatting.values()) {
+            if (formatting.isColor()) {
+                colorFormattings.putIfAbsent(formatting.getColor().intValue(), formatting);
+            }
+        }
+        return colorFormattings;
     }
 
     public static List<Component> stripDuplicateBlank(List<Component> lore) {
@@ -288,10 +309,8 @@ public final class ComponentUtils {
             if (oldStyle.equals(newStyle)) return;
 
             if (!oldStyle.isEmpty()) {
-                StringBuilder different = tryConstructDifference(oldStyle, newStyle);
-
-                if (different != null) {
-                    result.append(different);
+                if (canConstructDifference(oldStyle, newStyle)) {
+                    appendDifference(oldStyle, newStyle, result);
                     return;
                 }
 
@@ -299,7 +318,7 @@ public final class ComponentUtils {
             }
 
             if (newStyle.getColor() != null) {
-                getChatFormatting(newStyle.getColor()).ifPresent(result::append);
+                appendColor(newStyle.getColor(), result);
             }
 
             if (newStyle.isBold()) result.append(ChatFormatting.BOLD);
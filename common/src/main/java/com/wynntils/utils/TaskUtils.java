@@ -8,6 +8,7 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public final class TaskUtils {
     private static final ScheduledExecutorService EXECUTOR_SERVICE = Executors.newSingleThreadScheduledExecutor(
@@ -16,4 +17,8 @@ public final class TaskUtils {
     public static Future<?> runAsync(Runnable r) {
         return EXECUTOR_SERVICE.submit(r);
     }
+
+    public static Future<?> runAsyncLater(Runnable r, long delay, TimeUnit unit) {
+        return EXECUTOR_SERVICE.schedule(r, delay, unit);
+    }
 }
@@ -24,6 +24,7 @@ import java.util.Collection;
 import java.util.DoubleSummaryStatistics;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -45,6 +46,9 @@ public class GearItemStack extends WynnItemStack {
 
     private static final Component ID_PLACEHOLDER = Component.literal("ID_PLACEHOLDER");
 
+    // The name is asked for many times per frame, but only animates this often
+    private static final long NAME_ANIMATION_STEP_MILLIS = 50;
+
     private ItemProfile itemProfile;
     private boolean isPerfect;
     private boolean isDefective;
@@ -55,11 +59,18 @@ public class GearItemStack extends WynnItemStack {
     private boolean isChatItem;
 
     private Component customName;
+    private Component animatedName;
+    private long animatedNameStep = -1;
 
     private List<ItemIdentificationContainer> identifications;
     private List<Powder> powders;
     private int rerolls;
 
+    // The lore around the identifications, which are inserted at idIndex
+    private List<Component> baseTooltip;
+    private int idIndex = -1;
+
+    // Most items are never hovered, and only one of these is shown at a time, so they are built when first shown
     private List<Component> percentTooltip;
     private List<Component> rangeTooltip;
     private List<Component> rerollTooltip;
@@ -249,76 +260,92 @@ public class GearItemStack extends WynnItemStack {
     public Component getHoverName() {
         if (isGuideStack || isChatItem) return customName;
 
+        if ((ItemStatInfoFeature.INSTANCE.perfect && isPerfect)
+                || (ItemStatInfoFeature.INSTANCE.defective && isDefective)) {
+            long step = System.currentTimeMillis() / NAME_ANIMATION_STEP_MILLIS;
+            if (animatedName == null || step != animatedNameStep) {
+                animatedName = isPerfect
+                        ? createPerfectName(step * NAME_ANIMATION_STEP_MILLIS)
+                        : createDefectiveName();
+                animatedNameStep = step;
+            }
+
+            return animatedName;
+        }
+
+        // besides special case of perfect/defective, use name already set
+        return customName != null ? customName : super.getHoverName();
+    }
+
+    /**
+     * Creates the rainbow name of a perfect item, as it looks at the given time
+     */
+    private MutableComponent createPerfectName(long millis) {
         /*
          * This math was originally based off Avaritia code.
          * Special thanks for Morpheus1101 and SpitefulFox
          * Avaritia Repo: https://github.com/Morpheus1101/Avaritia
          */
-        if (ItemStatInfoFeature.INSTANCE.perfect && isPerfect) {
-            MutableComponent newName = Component.literal("").withStyle(ChatFormatting.BOLD);
+        MutableComponent newName = Component.literal("").withStyle(ChatFormatting.BOLD);
 
-            String name = "Perfect " + itemName;
+        String name = "Perfect " + itemName;
 
-            int cycle = 5000;
+        int cycle = 5000;
 
-            int time = (int) (System.currentTimeMillis() % cycle);
-            for (int i = 0; i < name.length(); i++) {
-                int hue = (time + i * cycle / 7) % cycle;
-                Style color = Style.EMPTY
-                        .withColor(Color.HSBtoRGB((hue / (float) cycle), 0.8F, 0.8F))
-                        .withItalic(false);
+        int time = (int) (millis % cycle);
+        for (int i = 0; i < name.length(); i++) {
+            int hue = (time + i * cycle / 7) % cycle;
+            Style color = Style.EMPTY
+                    .withColor(Color.HSBtoRGB((hue / (float) cycle), 0.8F, 0.8F))
+                    .withItalic(false);
 
-                newName.append(Component.literal(String.valueOf(name.charAt(i))).setStyle(color));
-            }
-
-            return newName;
+            newName.append(Component.literal(String.valueOf(name.charAt(i))).setStyle(color));
         }
 
-        if (ItemStatInfoFeature.INSTANCE.defective && isDefective) {
-            MutableComponent newName = Component.literal("").withStyle(ChatFormatting.BOLD, ChatFormatting.DARK_RED);
-            newName.setStyle(newName.getStyle().withItalic(false));
-
-            String name = "Defective " + itemName;
-
-            boolean obfuscated = Math.random() < ItemStatInfoFeature.INSTANCE.obfuscationChanceStart;
-            StringBuilder current = new StringBuilder();
+        return newName;
+    }
 
-            for (int i = 0; i < name.length() - 1; i++) {
-                current.append(name.charAt(i));
+    private MutableComponent createDefectiveName() {
+        MutableComponent newName = Component.literal("").withStyle(ChatFormatting.BOLD, ChatFormatting.DARK_RED);
+        newName.setStyle(newName.getStyle().withItalic(false));
 
-                float chance = MathUtils.lerp(
-                        ItemStatInfoFeature.INSTANCE.obfuscationChanceStart,
-                        ItemStatInfoFeature.INSTANCE.obfuscationChanceEnd,
-                        (i + 1) / (float) (name.length() - 1));
+        String name = "Defective " + itemName;
 
-                if (!obfuscated && Math.random() < chance) {
-                    newName.append(Component.literal(current.toString()).withStyle(Style.EMPTY.withItalic(false)));
-                    current = new StringBuilder();
+        boolean obfuscated = Math.random() < ItemStatInfoFeature.INSTANCE.obfuscationChanceStart;
+        StringBuilder current = new StringBuilder();
 
-                    obfuscated = true;
-                } else if (obfuscated && Math.random() > chance) {
-                    newName.append(Component.literal(current.toString())
-                            .withStyle(Style.EMPTY.withObfuscated(true).withItalic(false)));
-                    current = new StringBuilder();
+        for (int i = 0; i < name.length() - 1; i++) {
+            current.append(name.charAt(i));
 
-                    obfuscated = false;
-                }
-            }
+            float chance = MathUtils.lerp(
+                    ItemStatInfoFeature.INSTANCE.obfuscationChanceStart,
+                    ItemStatInfoFeature.INSTANCE.obfuscationChanceEnd,
+                    (i + 1) / (float) (name.length() - 1));
 
-            current.append(name.charAt(name.length() - 1));
+            if (!obfuscated && Math.random() < chance) {
+                newName.append(Component.literal(current.toString()).withStyle(Style.EMPTY.withItalic(false)));
+                current = new StringBuilder();
 
-            if (obfuscated) {
+                obfuscated = true;
+            } else if (obfuscated && Math.random() > chance) {
                 newName.append(Component.literal(current.toString())
-                        .withStyle(Style.EMPTY.withItalic(false).withObfuscated(true)));
-            } else {
-                newName.append(Component.literal(current.toString()).withStyle(Style.EMPTY.withItalic(false)));
+                        .withStyle(Style.EMPTY.withObfuscated(true).withItalic(false)));
+                current = new StringBuilder();
+
+                obfuscated = false;
             }
+        }
+
+        current.append(name.charAt(name.length() - 1));
 
-            return newName;
+        if (obfuscated) {
+            newName.append(Component.literal(current.toString())
+                    .withStyle(Style.EMPTY.withItalic(false).withObfuscated(true)));
+        } else {
+            newName.append(Component.literal(current.toString()).withStyle(Style.EMPTY.withItalic(false)));
         }
 
-        // besides special case of perfect/defective, use name already set
-        return customName != null ? customName : super.getHoverName();
+        return newName;
     }
 
     @Override
@@ -327,7 +354,7 @@ public class GearItemStack extends WynnItemStack {
         tooltip.add(getHoverName());
 
         if (isGuideStack) {
-            tooltip.addAll(rangeTooltip);
+            tooltip.addAll(getRangeTooltip());
             return tooltip;
         }
 
@@ -336,16 +363,16 @@ public class GearItemStack extends WynnItemStack {
                     .withStyle(ChatFormatting.DARK_GRAY)
                     .withStyle(ChatFormatting.ITALIC));
 
-            tooltip.addAll(percentTooltip);
+            tooltip.addAll(getPercentTooltip());
             return tooltip;
         }
 
         if (KeyboardUtils.isKeyDown(GLFW.GLFW_KEY_LEFT_SHIFT)) {
-            tooltip.addAll(rangeTooltip);
+            tooltip.addAll(getRangeTooltip());
         } else if (KeyboardUtils.isKeyDown(GLFW.GLFW_KEY_LEFT_CONTROL)) {
-            tooltip.addAll(rerollTooltip);
+            tooltip.addAll(getRerollTooltip());
         } else {
-            tooltip.addAll(percentTooltip);
+            tooltip.addAll(getPercentTooltip());
         }
 
         return tooltip;
@@ -384,45 +411,55 @@ public class GearItemStack extends WynnItemStack {
     }
 
     private void constructTooltips(List<Component> baseTooltip) {
-        int idIndex = baseTooltip.indexOf(ID_PLACEHOLDER);
+        idIndex = baseTooltip.indexOf(ID_PLACEHOLDER);
         baseTooltip.remove(ID_PLACEHOLDER);
 
-        percentTooltip = new ArrayList<>(baseTooltip);
-        rangeTooltip = new ArrayList<>(baseTooltip);
-        rerollTooltip = new ArrayList<>(baseTooltip);
+        this.baseTooltip = baseTooltip;
+    }
+
+    private List<Component> getPercentTooltip() {
+        if (percentTooltip == null) {
+            percentTooltip = buildTooltip(WynnItemUtils::getPercentLoreLine);
+        }
+        return percentTooltip;
+    }
+
+    private List<Component> getRangeTooltip() {
+        if (rangeTooltip == null) {
+            rangeTooltip = buildTooltip(WynnItemUtils::getRangeLoreLine);
+        }
+        return rangeTooltip;
+    }
+
+    private List<Component> getRerollTooltip() {
+        if (rerollTooltip == null) {
+            rerollTooltip = buildTooltip(WynnItemUtils::getRerollLoreLine);
+        }
+        return rerollTooltip;
+    }
+
+    private List<Component> buildTooltip(Function<ItemIdentificationContainer, Component> loreLine) {
+        List<Component> tooltip = new ArrayList<>(baseTooltip);
 
         if (!identifications.isEmpty() && idIndex != -1) {
-            Map<String, Component> percentMap = identifications.stream()
-                    .collect(Collectors.toMap(
-                            ItemIdentificationContainer::shortIdName, ItemIdentificationContainer::percentLoreLine));
-            Map<String, Component> rangeMap = identifications.stream()
-                    .collect(Collectors.toMap(
-                            ItemIdentificationContainer::shortIdName, ItemIdentificationContainer::rangeLoreLine));
-            Map<String, Component> rerollMap = identifications.stream()
-                    .collect(Collectors.toMap(
-                            ItemIdentificationContainer::shortIdName, ItemIdentificationContainer::rerollLoreLine));
-
-            Collection<Component> orderedPercents;
-            Collection<Component> orderedRanges;
-            Collection<Component> orderedRerolls;
+            // item guide lines describe the possible rolls already
+            Function<ItemIdentificationContainer, Component> idLine =
+                    isGuideStack ? ItemIdentificationContainer::rawLoreLine : loreLine;
+            Map<String, Component> idMap = identifications.stream()
+                    .collect(Collectors.toMap(ItemIdentificationContainer::shortIdName, idLine));
 
+            Collection<Component> orderedIds;
             if (ItemStatInfoFeature.INSTANCE.reorderIdentifications || isGuideStack) {
-                orderedPercents = IdentificationOrderer.INSTANCE.orderComponents(
-                        percentMap, ItemStatInfoFeature.INSTANCE.groupIdentifications);
-                orderedRanges = IdentificationOrderer.INSTANCE.orderComponents(
-                        rangeMap, ItemStatInfoFeature.INSTANCE.groupIdentifications);
-                orderedRerolls = IdentificationOrderer.INSTANCE.orderComponents(
-                        rerollMap, ItemStatInfoFeature.INSTANCE.groupIdentifications);
+                orderedIds = IdentificationOrderer.INSTANCE.orderComponents(
+                        idMap, ItemStatInfoFeature.INSTANCE.groupIdentifications);
             } else {
-                orderedPercents = percentMap.values();
-                orderedRanges = rangeMap.values();
-                orderedRerolls = rerollMap.values();
+                orderedIds = idMap.values();
             }
 
-            percentTooltip.addAll(idIndex, orderedPercents);
-            rangeTooltip.addAll(idIndex, orderedRanges);
-            rerollTooltip.addAll(idIndex, orderedRerolls);
+            tooltip.addAll(idIndex, orderedIds);
         }
+
+        return tooltip;
     }
 
     private List<Component> constructBaseTooltip() {
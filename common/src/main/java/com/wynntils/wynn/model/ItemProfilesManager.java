@@ -7,7 +7,10 @@ package com.wynntils.wynn.model;
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.wynntils.core.WynntilsMod;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.wynntils.core.components.Manager;
 import com.wynntils.core.components.Managers;
 import com.wynntils.core.net.Download;
@@ -19,13 +22,33 @@ import com.wynntils.wynn.objects.profiles.ingredient.IngredientProfile;
 import com.wynntils.wynn.objects.profiles.item.ItemProfile;
 import com.wynntils.wynn.objects.profiles.item.ItemType;
 import com.wynntils.wynn.objects.profiles.item.MajorIdentification;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import net.minecraft.Util;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 
 public final class ItemProfilesManager extends Manager {
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final Type STRING_MAP_TYPE = new TypeToken<HashMap<String, String>>() {}.getType();
+    private static final Type MAJOR_IDS_TYPE = new TypeToken<HashMap<String, MajorIdentification>>() {}.getType();
+    private static final Type MATERIAL_TYPES_TYPE = new TypeToken<HashMap<ItemType, String[]>>() {}.getType();
+
     private static final Gson ITEM_GUESS_GSON = new GsonBuilder()
             .registerTypeHierarchyAdapter(HashMap.class, new ItemGuessProfile.ItemGuessDeserializer())
             .create();
@@ -39,6 +62,8 @@ public final class ItemProfilesManager extends Manager {
     private Map<String, IngredientProfile> ingredients = Map.of();
     private Map<String, String> ingredientHeadTextures = Map.of();
 
+    private final AtomicInteger itemListGeneration = new AtomicInteger();
+
     public ItemProfilesManager(NetManager netManager) {
         super(List.of(netManager));
         loadData();
@@ -55,7 +80,7 @@ public final class ItemProfilesManager extends Manager {
     }
 
     private void tryLoadItemGuesses() {
-        Download dl = Managers.Net.download(UrlId.DATA_STATIC_ITEM_GUESSES);
+        Download dl = Managers.Net.download(UrlId.DATA_STATIC_ITEM_GUESSES).revalidateInBackground();
         dl.handleReader(reader -> {
             Type type = new TypeToken<HashMap<String, ItemGuessProfile>>() {}.getType();
             Map<String, ItemGuessProfile> newItemGuesses = new HashMap<>();
@@ -70,61 +95,200 @@ public final class ItemProfilesManager extends Manager {
         // but the data is massaged into another form, and wynnBuilderID is injected from
         // https://wynnbuilder.github.io/compress.json
 
-        Download dl = Managers.Net.download(UrlId.DATA_ATHENA_ITEM_LIST);
-        dl.handleJsonObject(json -> {
-            Type hashmapType = new TypeToken<HashMap<String, String>>() {}.getType();
-            translatedReferences = WynntilsMod.GSON.fromJson(json.getAsJsonObject("translatedReferences"), hashmapType);
+        Download dl = Managers.Net.download(UrlId.DATA_ATHENA_ITEM_LIST).revalidateInBackground();
+        dl.handleInputStream(inputStream -> {
+            File sourceFile = Managers.Net.getCacheFile(UrlId.DATA_ATHENA_ITEM_LIST.getId());
+            File snapshotFile = Managers.Net.getCacheFile(UrlId.DATA_ATHENA_ITEM_LIST.getId() + SNAPSHOT_SUFFIX);
 
-            internalIdentifications =
-                    WynntilsMod.GSON.fromJson(json.getAsJsonObject("internalIdentifications"), hashmapType);
+            // Profiles from a snapshot were already finished before they were saved
+            ItemList itemList = ProfileSnapshot.read(snapshotFile, sourceFile, ItemProfilesManager::readItemList);
+            String sourceMd5 = null;
+            if (itemList == null) {
+                MessageDigest digest = DigestUtils.getMd5Digest();
+                itemList = readJson(new DigestInputStream(inputStream, digest), ItemProfilesManager::readItemList);
+                sourceMd5 = Hex.encodeHexString(digest.digest());
+            }
 
-            Type majorIdsType = new TypeToken<HashMap<String, MajorIdentification>>() {}.getType();
-            majorIdsMap = WynntilsMod.GSON.fromJson(json.getAsJsonObject("majorIdentifications"), majorIdsType);
+            translatedReferences = itemList.translatedReferences;
+            internalIdentifications = itemList.internalIdentifications;
+            majorIdsMap = itemList.majorIds;
+            materialTypes = itemList.materialTypes;
+            // FIXME: We should not be doing Singleton housekeeping for IdentificationOrderer!
+            IdentificationOrderer.INSTANCE = itemList.identificationOrder;
 
-            Type materialTypesType = new TypeToken<HashMap<ItemType, String[]>>() {}.getType();
-            materialTypes = WynntilsMod.GSON.fromJson(json.getAsJsonObject("materialTypes"), materialTypesType);
+            // The items can come before the data needed to finish them, so that is done once everything is read.
+            // It is handed to a worker, so the network thread is free for the other downloads.
+            int generation = itemListGeneration.incrementAndGet();
+            ItemList finishedItemList = itemList;
+            String snapshotMd5 = sourceMd5;
+            Util.backgroundExecutor().execute(() -> {
+                HashMap<String, ItemProfile> newItems = new HashMap<>();
+                for (ItemProfile itemProfile : finishedItemList.items) {
+                    if (snapshotMd5 != null) {
+                        itemProfile.getStatuses().forEach((shortId, idProfile) -> idProfile.calculateMinMax(shortId));
+                        itemProfile.updateMajorIdsFromStrings(finishedItemList.majorIds);
+                    }
 
-            // FIXME: We should not be doing Singleton housekeeping for IdentificationOrderer!
-            IdentificationOrderer.INSTANCE =
-                    WynntilsMod.GSON.fromJson(json.getAsJsonObject("identificationOrder"), IdentificationOrderer.class);
+                    // Registering is not part of the profile, so it is needed either way
+                    itemProfile.registerIdTypes();
 
-            ItemProfile[] jsonItems = WynntilsMod.GSON.fromJson(json.getAsJsonArray("items"), ItemProfile[].class);
-            HashMap<String, ItemProfile> newItems = new HashMap<>();
-            for (ItemProfile itemProfile : jsonItems) {
-                itemProfile.getStatuses().forEach((shortId, idProfile) -> idProfile.calculateMinMax(shortId));
-                itemProfile.updateMajorIdsFromStrings(majorIdsMap);
-                itemProfile.registerIdTypes();
+                    newItems.put(itemProfile.getDisplayName(), itemProfile);
+                }
 
-                newItems.put(itemProfile.getDisplayName(), itemProfile);
-            }
+                // Don't replace the items of a newer item list that was finished first
+                if (itemListGeneration.get() != generation) return;
 
-            items = newItems;
+                items = newItems;
+                // Items that were seen before are only recognized as gear now
+                Managers.ItemStackTransform.invalidateCache();
+
+                if (snapshotMd5 != null) {
+                    ProfileSnapshot.write(
+                            snapshotFile, snapshotMd5, (writer, gson) -> writeItemList(writer, gson, finishedItemList));
+                }
+            });
         });
     }
 
+    private static ItemList readItemList(JsonReader json, Gson gson) throws IOException {
+        ItemList itemList = new ItemList();
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "translatedReferences" -> itemList.translatedReferences = gson.fromJson(json, STRING_MAP_TYPE);
+                case "internalIdentifications" -> itemList.internalIdentifications =
+                        gson.fromJson(json, STRING_MAP_TYPE);
+                case "majorIdentifications" -> itemList.majorIds = gson.fromJson(json, MAJOR_IDS_TYPE);
+                case "materialTypes" -> itemList.materialTypes = gson.fromJson(json, MATERIAL_TYPES_TYPE);
+                case "identificationOrder" -> itemList.identificationOrder =
+                        gson.fromJson(json, IdentificationOrderer.class);
+                case "items" -> readArray(json, gson, ItemProfile.class, itemList.items::add);
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+
+        return itemList;
+    }
+
+    private static void writeItemList(JsonWriter json, Gson gson, ItemList itemList) throws IOException {
+        json.beginObject();
+        json.name("translatedReferences");
+        gson.toJson(itemList.translatedReferences, STRING_MAP_TYPE, json);
+        json.name("internalIdentifications");
+        gson.toJson(itemList.internalIdentifications, STRING_MAP_TYPE, json);
+        json.name("majorIdentifications");
+        gson.toJson(itemList.majorIds, MAJOR_IDS_TYPE, json);
+        json.name("materialTypes");
+        gson.toJson(itemList.materialTypes, MATERIAL_TYPES_TYPE, json);
+        json.name("identificationOrder");
+        gson.toJson(itemList.identificationOrder, IdentificationOrderer.class, json);
+        json.name("items");
+        writeArray(json, gson, ItemProfile.class, itemList.items);
+        json.endObject();
+    }
+
     private void tryLoadIngredientList() {
         // dataAthenaIngredientList is based on
         // https://api.wynncraft.com/v2/ingredient/search/skills/%5Etailoring,armouring,jeweling,cooking,woodworking,weaponsmithing,alchemism,scribing
         // but the data is massaged into another form, and additional "head textures" are added, which are hard-coded
         // in Athena
 
-        Download dl = Managers.Net.download(UrlId.DATA_ATHENA_INGREDIENT_LIST);
-        dl.handleJsonObject(json -> {
-            Type hashmapType = new TypeToken<HashMap<String, String>>() {}.getType();
-            ingredientHeadTextures = WynntilsMod.GSON.fromJson(json.getAsJsonObject("headTextures"), hashmapType);
+        Download dl = Managers.Net.download(UrlId.DATA_ATHENA_INGREDIENT_LIST).revalidateInBackground();
+        dl.handleInputStream(inputStream -> {
+            File sourceFile = Managers.Net.getCacheFile(UrlId.DATA_ATHENA_INGREDIENT_LIST.getId());
+            File snapshotFile = Managers.Net.getCacheFile(UrlId.DATA_ATHENA_INGREDIENT_LIST.getId() + SNAPSHOT_SUFFIX);
 
-            IngredientProfile[] jsonItems =
-                    WynntilsMod.GSON.fromJson(json.getAsJsonArray("ingredients"), IngredientProfile[].class);
+            IngredientList ingredientList =
+                    ProfileSnapshot.read(snapshotFile, sourceFile, ItemProfilesManager::readIngredientList);
+            if (ingredientList == null) {
+                MessageDigest digest = DigestUtils.getMd5Digest();
+                ingredientList =
+                        readJson(new DigestInputStream(inputStream, digest), ItemProfilesManager::readIngredientList);
+
+                IngredientList parsedIngredientList = ingredientList;
+                String sourceMd5 = Hex.encodeHexString(digest.digest());
+                Util.backgroundExecutor()
+                        .execute(() -> ProfileSnapshot.write(
+                                snapshotFile,
+                                sourceMd5,
+                                (writer, gson) -> writeIngredientList(writer, gson, parsedIngredientList)));
+            }
 
             Map<String, IngredientProfile> newIngredients = new HashMap<>();
-            for (IngredientProfile ingredientProfile : jsonItems) {
+            for (IngredientProfile ingredientProfile : ingredientList.ingredients) {
                 newIngredients.put(ingredientProfile.getDisplayName(), ingredientProfile);
             }
 
+            ingredientHeadTextures = ingredientList.headTextures;
             ingredients = newIngredients;
         });
     }
 
+    private static IngredientList readIngredientList(JsonReader json, Gson gson) throws IOException {
+        IngredientList ingredientList = new IngredientList();
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "headTextures" -> ingredientList.headTextures = gson.fromJson(json, STRING_MAP_TYPE);
+                case "ingredients" -> readArray(json, gson, IngredientProfile.class, ingredientList.ingredients::add);
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+
+        return ingredientList;
+    }
+
+    private static void writeIngredientList(JsonWriter json, Gson gson, IngredientList ingredientList)
+            throws IOException {
+        json.beginObject();
+        json.name("headTextures");
+        gson.toJson(ingredientList.headTextures, STRING_MAP_TYPE, json);
+        json.name("ingredients");
+        writeArray(json, gson, IngredientProfile.class, ingredientList.ingredients);
+        json.endObject();
+    }
+
+    private static <T> T readJson(InputStream inputStream, ProfileSnapshot.Parser<T> parser) {
+        try (JsonReader json = new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            T result = parser.parse(json, createProfileGson());
+
+            // Read to the end, so all of the file is part of the digest
+            inputStream.transferTo(OutputStream.nullOutputStream());
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Reads the elements of a json array one at a time, so the whole array is never held as json
+    private static <T> void readArray(JsonReader json, Gson gson, Class<T> type, Consumer<T> consumer)
+            throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            consumer.accept(gson.fromJson(json, type));
+        }
+        json.endArray();
+    }
+
+    private static <T> void writeArray(JsonWriter json, Gson gson, Class<T> type, List<T> values) throws IOException {
+        json.beginArray();
+        for (T value : values) {
+            gson.toJson(value, type, json);
+        }
+        json.endArray();
+    }
+
+    // Every load gets its own string pool, so it is garbage collected with the parsed json
+    private static Gson createProfileGson() {
+        return new GsonBuilder()
+                .registerTypeAdapter(String.class, new InterningStringAdapter())
+                .create();
+    }
+
     public ItemGuessProfile getItemGuess(String levelRange) {
         return itemGuesses.get(levelRange);
     }
@@ -156,4 +320,49 @@ public final class ItemProfilesManager extends Manager {
     public Collection<IngredientProfile> getIngredientsCollection() {
         return ingredients.values();
     }
+
+    // The parts of the item list, as read from json or a snapshot
+    private static final class ItemList {
+        private Map<String, String> translatedReferences;
+        private Map<String, String> internalIdentifications;
+        private Map<String, MajorIdentification> majorIds;
+        private Map<ItemType, String[]> materialTypes;
+        private IdentificationOrderer identificationOrder;
+        private final List<ItemProfile> items = new ArrayList<>();
+    }
+
+    private static final class IngredientList {
+        private Map<String, String> headTextures;
+        private final List<IngredientProfile> ingredients = new ArrayList<>();
+    }
+
+    /**
+     * Reads strings, sharing a single instance between equal short strings. Identification names, types and tiers
+     * are repeated across thousands of profiles, while long strings like lore are almost always unique.
+     */
+    private static final class InterningStringAdapter extends TypeAdapter<String> {
+        private static final int MAX_INTERNED_LENGTH = 64;
+
+        private final Map<String, String> pool = new HashMap<>();
+
+        @Override
+        public String read(JsonReader in) throws IOException {
+            JsonToken token = in.peek();
+            if (token == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            // Like the default adapter, accept booleans where strings are expected
+            String value = token == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString();
+            if (value.length() > MAX_INTERNED_LENGTH) return value;
+
+            return pool.computeIfAbsent(value, v -> v);
+        }
+
+        @Override
+        public void write(JsonWriter out, String value) throws IOException {
+            out.value(value);
+        }
+    }
 }
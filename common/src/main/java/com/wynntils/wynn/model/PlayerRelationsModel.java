@@ -5,9 +5,11 @@
 package com.wynntils.wynn.model;
 
 import com.wynntils.core.WynntilsMod;
+import com.wynntils.core.components.Handlers;
 import com.wynntils.core.components.Managers;
 import com.wynntils.core.components.Model;
 import com.wynntils.core.net.hades.event.HadesEvent;
+import com.wynntils.handlers.chat.ChatMatches;
 import com.wynntils.handlers.chat.MessageType;
 import com.wynntils.handlers.chat.event.ChatMessageReceivedEvent;
 import com.wynntils.mc.utils.ComponentUtils;
@@ -54,6 +56,18 @@ public final class PlayerRelationsModel extends Model {
 
     @Override
     public void init() {
+        Handlers.Chat.registerPatterns(
+                FRIEND_NO_LIST_MESSAGE_PATTERN_1,
+                FRIEND_NO_LIST_MESSAGE_PATTERN_2,
+                FRIEND_REMOVE_MESSAGE_PATTERN,
+                FRIEND_ADD_MESSAGE_PATTERN,
+                PARTY_NO_LIST_MESSAGE_PATTERN,
+                PARTY_OTHER_LEAVE_MESSAGE_PATTERN,
+                PARTY_OTHER_JOIN_MESSAGE_PATTERN,
+                PARTY_OTHER_JOIN_SWITCH_MESSAGE_PATTERN,
+                PARTY_SELF_LEAVE_MESSAGE_PATTERN,
+                PARTY_SELF_JOIN_MESSAGE_PATTERN,
+                PARTY_DISBAND);
         resetRelations();
     }
 
@@ -84,33 +98,33 @@ public final class PlayerRelationsModel extends Model {
     public void onChatReceived(ChatMessageReceivedEvent event) {
         if (event.getMessageType() != MessageType.FOREGROUND) return;
 
-        String coded = event.getOriginalCodedMessage();
-        String unformatted = ComponentUtils.stripFormatting(coded);
+        ChatMatches matches = event.getOriginalMatches();
+        String unformatted = ComponentUtils.stripFormatting(event.getOriginalCodedMessage());
 
-        if (tryParseFriendMessages(coded)) {
+        if (tryParseFriendMessages(matches)) {
             return;
         }
 
-        if (tryParsePartyMessages(coded)) {
+        if (tryParsePartyMessages(matches)) {
             return;
         }
 
         if (expectingFriendMessage) {
-            if (tryParseFriendList(unformatted) || tryParseNoFriendList(coded)) {
+            if (tryParseFriendList(unformatted) || tryParseNoFriendList(matches)) {
                 event.setCanceled(true);
                 expectingFriendMessage = false;
                 return;
             }
 
             // Skip first message of two, but still expect more messages
-            if (FRIEND_NO_LIST_MESSAGE_PATTERN_1.matcher(coded).matches()) {
+            if (matches.matches(FRIEND_NO_LIST_MESSAGE_PATTERN_1) != null) {
                 event.setCanceled(true);
                 return;
             }
         }
 
         if (expectingPartyMessage) {
-            if (tryParseNoPartyMessage(coded) || tryParsePartyList(unformatted)) {
+            if (tryParseNoPartyMessage(matches) || tryParsePartyList(unformatted)) {
                 event.setCanceled(true);
                 expectingPartyMessage = false;
                 return;
@@ -120,9 +134,9 @@ public final class PlayerRelationsModel extends Model {
 
     // region Party List Parsing
 
-    private boolean tryParsePartyMessages(String coded) {
-        if (PARTY_DISBAND.matcher(coded).matches()
-                || PARTY_SELF_LEAVE_MESSAGE_PATTERN.matcher(coded).matches()) {
+    private boolean tryParsePartyMessages(ChatMatches matches) {
+        if (matches.matches(PARTY_DISBAND) != null
+                || matches.matches(PARTY_SELF_LEAVE_MESSAGE_PATTERN) != null) {
             WynntilsMod.info("Player left the party.");
 
             partyMembers = Set.of();
@@ -131,15 +145,15 @@ public final class PlayerRelationsModel extends Model {
             return true;
         }
 
-        if (PARTY_SELF_JOIN_MESSAGE_PATTERN.matcher(coded).matches()) {
+        if (matches.matches(PARTY_SELF_JOIN_MESSAGE_PATTERN) != null) {
             WynntilsMod.info("Player joined a party.");
 
             requestPartyListUpdate();
             return true;
         }
 
-        Matcher matcher = PARTY_OTHER_JOIN_MESSAGE_PATTERN.matcher(coded);
-        if (matcher.matches()) {
+        Matcher matcher = matches.matches(PARTY_OTHER_JOIN_MESSAGE_PATTERN);
+        if (matcher != null) {
             String player = matcher.group(1);
 
             WynntilsMod.info("Player's party has a new member: " + player);
@@ -150,8 +164,8 @@ public final class PlayerRelationsModel extends Model {
             return true;
         }
 
-        matcher = PARTY_OTHER_JOIN_SWITCH_MESSAGE_PATTERN.matcher(coded);
-        if (matcher.matches()) {
+        matcher = matches.matches(PARTY_OTHER_JOIN_SWITCH_MESSAGE_PATTERN);
+        if (matcher != null) {
             String player = matcher.group(1);
 
             WynntilsMod.info("Player's party has a new member #2: " + player);
@@ -162,8 +176,8 @@ public final class PlayerRelationsModel extends Model {
             return true;
         }
 
-        matcher = PARTY_OTHER_LEAVE_MESSAGE_PATTERN.matcher(coded);
-        if (matcher.matches()) {
+        matcher = matches.matches(PARTY_OTHER_LEAVE_MESSAGE_PATTERN);
+        if (matcher != null) {
             String player = matcher.group(1);
 
             WynntilsMod.info("Player's party has been left by an other player: " + player);
@@ -177,8 +191,8 @@ public final class PlayerRelationsModel extends Model {
         return false;
     }
 
-    private boolean tryParseNoPartyMessage(String coded) {
-        if (PARTY_NO_LIST_MESSAGE_PATTERN.matcher(coded).matches()) {
+    private boolean tryParseNoPartyMessage(ChatMatches matches) {
+        if (matches.matches(PARTY_NO_LIST_MESSAGE_PATTERN) != null) {
             WynntilsMod.info("Player is not in a party.");
             return true;
         }
@@ -203,8 +217,8 @@ public final class PlayerRelationsModel extends Model {
 
     // region Friend List Parsing
 
-    private boolean tryParseNoFriendList(String coded) {
-        if (FRIEND_NO_LIST_MESSAGE_PATTERN_2.matcher(coded).matches()) {
+    private boolean tryParseNoFriendList(ChatMatches matches) {
+        if (matches.matches(FRIEND_NO_LIST_MESSAGE_PATTERN_2) != null) {
             WynntilsMod.info("Player has no friends!");
             return true;
         }
@@ -212,9 +226,9 @@ public final class PlayerRelationsModel extends Model {
         return false;
     }
 
-    private boolean tryParseFriendMessages(String coded) {
-        Matcher matcher = FRIEND_REMOVE_MESSAGE_PATTERN.matcher(coded);
-        if (matcher.matches()) {
+    private boolean tryParseFriendMessages(ChatMatches matches) {
+        Matcher matcher = matches.matches(FRIEND_REMOVE_MESSAGE_PATTERN);
+        if (matcher != null) {
             String player = matcher.group(1);
 
             WynntilsMod.info("Player has removed friend: " + player);
@@ -225,8 +239,8 @@ public final class PlayerRelationsModel extends Model {
             return true;
         }
 
-        matcher = FRIEND_ADD_MESSAGE_PATTERN.matcher(coded);
-        if (matcher.matches()) {
+        matcher = matches.matches(FRIEND_ADD_MESSAGE_PATTERN);
+        if (matcher != null) {
             String player = matcher.group(1);
 
             WynntilsMod.info("Player has added friend: " + player);
@@ -0,0 +1,575 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.wynn.model;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.wynntils.core.WynntilsMod;
+import com.wynntils.wynn.objects.profiles.DerivedField;
+import it.unimi.dsi.fastutil.objects.Object2IntLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * A binary copy of a parsed profile database, so it does not have to be parsed from json again on the next start.
+ *
+ * The snapshot is a stream of json tokens, written and read through {@link JsonWriter} and {@link JsonReader}, so the
+ * same Gson adapters and loading code work for both json and snapshots. Strings are stored once, in a table at the
+ * start of the file, and tokens refer to them by index; the tokens are read straight from a memory-mapped file.
+ *
+ * Snapshots are only used if they were made from a source file with the same md5 as the one on disk.
+ */
+final class ProfileSnapshot {
+    private static final int MAGIC = 0x57594e53; // WYNS
+
+    // Bump this when the format, or the fields of the profile classes, change
+    private static final int FORMAT_VERSION = 2;
+
+    private static final byte BEGIN_OBJECT = 1;
+    private static final byte END_OBJECT = 2;
+    private static final byte BEGIN_ARRAY = 3;
+    private static final byte END_ARRAY = 4;
+    private static final byte NAME = 5;
+    private static final byte STRING = 6;
+    private static final byte LONG = 7;
+    private static final byte DOUBLE = 8;
+    private static final byte TRUE = 9;
+    private static final byte FALSE = 10;
+    private static final byte NULL = 11;
+
+    // Maps are written as [key, value, key, value, ...], since the default map adapter
+    // needs internals of the text json reader to read keys.
+    // Derived fields are kept as well, so profiles from a snapshot are ready to use as they are.
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapterFactory(new MapAdapterFactory())
+            .excludeFieldsWithModifiers(Modifier.STATIC)
+            .setExclusionStrategies(new DerivedFieldStrategy())
+            .create();
+
+    private ProfileSnapshot() {}
+
+    /**
+     * Reads the snapshot with the parser, or returns null if there is no usable snapshot of the source file.
+     */
+    static <T> T read(File file, File sourceFile, Parser<T> parser) {
+        if (!file.exists() || !sourceFile.exists()) return null;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) return null;
+
+            byte[] scratch = new byte[256];
+            String sourceMd5 = readString(buffer, scratch);
+            try (InputStream source = Files.newInputStream(sourceFile.toPath())) {
+                if (!sourceMd5.equalsIgnoreCase(DigestUtils.md5Hex(source))) return null;
+            }
+
+            String[] strings = new String[readVarInt(buffer)];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(buffer, scratch);
+            }
+
+            return parser.parse(new SnapshotReader(buffer.slice(), strings), GSON);
+        } catch (IOException | RuntimeException e) {
+            WynntilsMod.warn("Could not read profile snapshot " + file.getName(), e);
+            return null;
+        }
+    }
+
+    static void write(File file, String sourceMd5, Contents contents) {
+        File tempFile = null;
+
+        try {
+            SnapshotWriter writer = new SnapshotWriter();
+            contents.write(writer, GSON);
+
+            FileUtils.forceMkdirParent(file);
+            tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tempFile.toPath()))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                writeString(out, sourceMd5);
+
+                writeVarInt(out, writer.strings.size());
+                for (String string : writer.strings.keySet()) {
+                    writeString(out, string);
+                }
+
+                writer.tokenBytes.writeTo(out);
+            }
+
+            // A snapshot that is still mapped can't be replaced on some systems; the old one is then
+            // outdated, so it will not be used, and is replaced on the next start
+            try {
+                Files.move(
+                        tempFile.toPath(),
+                        file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            WynntilsMod.warn("Could not write profile snapshot " + file.getName(), e);
+            if (tempFile != null) {
+                FileUtils.deleteQuietly(tempFile);
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, byte[] scratch) {
+        int length = readVarInt(buffer);
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        return (int) readVarLong(buffer);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        writeVarLong(out, value & 0xffffffffL);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    @FunctionalInterface
+    interface Parser<T> {
+        T parse(JsonReader reader, Gson gson) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface Contents {
+        void write(JsonWriter writer, Gson gson) throws IOException;
+    }
+
+    private static final class SnapshotReader extends JsonReader {
+        private static final Reader UNREADABLE_READER = new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int count) throws IOException {
+                throw new IOException("Snapshots are not read as text");
+            }
+
+            @Override
+            public void close() {}
+        };
+
+        private final ByteBuffer buffer;
+        private final String[] strings;
+
+        private SnapshotReader(ByteBuffer buffer, String[] strings) {
+            super(UNREADABLE_READER);
+            this.buffer = buffer;
+            this.strings = strings;
+        }
+
+        @Override
+        public JsonToken peek() throws IOException {
+            if (!buffer.hasRemaining()) return JsonToken.END_DOCUMENT;
+
+            return switch (buffer.get(buffer.position())) {
+                case BEGIN_OBJECT -> JsonToken.BEGIN_OBJECT;
+                case END_OBJECT -> JsonToken.END_OBJECT;
+                case BEGIN_ARRAY -> JsonToken.BEGIN_ARRAY;
+                case END_ARRAY -> JsonToken.END_ARRAY;
+                case NAME -> JsonToken.NAME;
+                case STRING -> JsonToken.STRING;
+                case LONG, DOUBLE -> JsonToken.NUMBER;
+                case TRUE, FALSE -> JsonToken.BOOLEAN;
+                case NULL -> JsonToken.NULL;
+                default -> throw new IOException("Unknown snapshot token at " + buffer.position());
+            };
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            JsonToken token = peek();
+            return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY && token != JsonToken.END_DOCUMENT;
+        }
+
+        @Override
+        public void beginArray() throws IOException {
+            expect(BEGIN_ARRAY, JsonToken.BEGIN_ARRAY);
+        }
+
+        @Override
+        public void endArray() throws IOException {
+            expect(END_ARRAY, JsonToken.END_ARRAY);
+        }
+
+        @Override
+        public void beginObject() throws IOException {
+            expect(BEGIN_OBJECT, JsonToken.BEGIN_OBJECT);
+        }
+
+        @Override
+        public void endObject() throws IOException {
+            expect(END_OBJECT, JsonToken.END_OBJECT);
+        }
+
+        @Override
+        public String nextName() throws IOException {
+            expect(NAME, JsonToken.NAME);
+            return strings[readVarInt(buffer)];
+        }
+
+        @Override
+        public String nextString() throws IOException {
+            JsonToken token = peek();
+            return switch (buffer.get()) {
+                case STRING -> strings[readVarInt(buffer)];
+                case LONG -> Long.toString(readLong());
+                case DOUBLE -> Double.toString(buffer.getDouble());
+                default -> throw unexpected(JsonToken.STRING, token);
+            };
+        }
+
+        @Override
+        public boolean nextBoolean() throws IOException {
+            JsonToken token = peek();
+            return switch (buffer.get()) {
+                case TRUE -> true;
+                case FALSE -> false;
+                default -> throw unexpected(JsonToken.BOOLEAN, token);
+            };
+        }
+
+        @Override
+        public void nextNull() throws IOException {
+            expect(NULL, JsonToken.NULL);
+        }
+
+        @Override
+        public double nextDouble() throws IOException {
+            JsonToken token = peek();
+            return switch (buffer.get()) {
+                case LONG -> readLong();
+                case DOUBLE -> buffer.getDouble();
+                case STRING -> Double.parseDouble(strings[readVarInt(buffer)]);
+                default -> throw unexpected(JsonToken.NUMBER, token);
+            };
+        }
+
+        @Override
+        public long nextLong() throws IOException {
+            JsonToken token = peek();
+            switch (buffer.get()) {
+                case LONG -> {
+                    return readLong();
+                }
+                case DOUBLE -> {
+                    double value = buffer.getDouble();
+                    if ((long) value != value) throw new NumberFormatException("Expected a long but was " + value);
+                    return (long) value;
+                }
+                case STRING -> {
+                    return Long.parseLong(strings[readVarInt(buffer)]);
+                }
+                default -> throw unexpected(JsonToken.NUMBER, token);
+            }
+        }
+
+        @Override
+        public int nextInt() throws IOException {
+            long value = nextLong();
+            if ((int) value != value) throw new NumberFormatException("Expected an int but was " + value);
+            return (int) value;
+        }
+
+        @Override
+        public void skipValue() throws IOException {
+            int depth = 0;
+            do {
+                switch (buffer.get()) {
+                    case BEGIN_OBJECT, BEGIN_ARRAY -> depth++;
+                    case END_OBJECT, END_ARRAY -> depth--;
+                    case NAME, STRING -> readVarInt(buffer);
+                    case LONG -> readLong();
+                    case DOUBLE -> buffer.getDouble();
+                    case TRUE, FALSE, NULL -> {}
+                    default -> throw new IOException("Unknown snapshot token at " + (buffer.position() - 1));
+                }
+            } while (depth > 0);
+        }
+
+        @Override
+        public void close() {}
+
+        @Override
+        public String toString() {
+            return "SnapshotReader at " + buffer.position();
+        }
+
+        private long readLong() {
+            // Zigzag encoded, so small negative numbers stay small
+            long zigzag = readVarLong(buffer);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        private void expect(byte tag, JsonToken expected) throws IOException {
+            JsonToken token = peek();
+            if (buffer.get() != tag) throw unexpected(expected, token);
+        }
+
+        private IllegalStateException unexpected(JsonToken expected, JsonToken actual) {
+            return new IllegalStateException("Expected " + expected + " but was " + actual + " in " + this);
+        }
+    }
+
+    private static final class SnapshotWriter extends JsonWriter {
+        private static final Writer UNWRITABLE_WRITER = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int count) throws IOException {
+                throw new IOException("Snapshots are not written as text");
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        };
+
+        private final Object2IntMap<String> strings = new Object2IntLinkedOpenHashMap<>();
+        private final ByteArrayOutputStream tokenBytes = new ByteArrayOutputStream();
+        private final DataOutputStream tokens = new DataOutputStream(tokenBytes);
+
+        private SnapshotWriter() {
+            super(UNWRITABLE_WRITER);
+            strings.defaultReturnValue(-1);
+        }
+
+        @Override
+        public JsonWriter beginArray() throws IOException {
+            return writeTag(BEGIN_ARRAY);
+        }
+
+        @Override
+        public JsonWriter endArray() throws IOException {
+            return writeTag(END_ARRAY);
+        }
+
+        @Override
+        public JsonWriter beginObject() throws IOException {
+            return writeTag(BEGIN_OBJECT);
+        }
+
+        @Override
+        public JsonWriter endObject() throws IOException {
+            return writeTag(END_OBJECT);
+        }
+
+        @Override
+        public JsonWriter name(String name) throws IOException {
+            writeTag(NAME);
+            writeStringIndex(name);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(String value) throws IOException {
+            if (value == null) return nullValue();
+
+            writeTag(STRING);
+            writeStringIndex(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter jsonValue(String value) {
+            throw new UnsupportedOperationException("Raw json can't be written to a snapshot");
+        }
+
+        @Override
+        public JsonWriter nullValue() throws IOException {
+            // Nulls are always written, the reader sets the same fields to null either way
+            return writeTag(NULL);
+        }
+
+        @Override
+        public JsonWriter value(boolean value) throws IOException {
+            return writeTag(value ? TRUE : FALSE);
+        }
+
+        @Override
+        public JsonWriter value(Boolean value) throws IOException {
+            if (value == null) return nullValue();
+
+            return value(value.booleanValue());
+        }
+
+        @Override
+        public JsonWriter value(double value) throws IOException {
+            writeTag(DOUBLE);
+            tokens.writeDouble(value);
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(long value) throws IOException {
+            writeTag(LONG);
+            writeVarLong(tokens, (value << 1) ^ (value >> 63));
+            return this;
+        }
+
+        @Override
+        public JsonWriter value(Number value) throws IOException {
+            if (value == null) return nullValue();
+
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                return value(value.longValue());
+            }
+            return value(value.doubleValue());
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+
+        private JsonWriter writeTag(byte tag) throws IOException {
+            tokens.writeByte(tag);
+            return this;
+        }
+
+        private void writeStringIndex(String string) throws IOException {
+            int index = strings.getInt(string);
+            if (index < 0) {
+                index = strings.size();
+                strings.put(string, index);
+            }
+            writeVarInt(tokens, index);
+        }
+    }
+
+    private static final class DerivedFieldStrategy implements ExclusionStrategy {
+        @Override
+        public boolean shouldSkipField(FieldAttributes field) {
+            return field.hasModifier(Modifier.TRANSIENT) && field.getAnnotation(DerivedField.class) == null;
+        }
+
+        @Override
+        public boolean shouldSkipClass(Class<?> clazz) {
+            return false;
+        }
+    }
+
+    private static final class MapAdapterFactory implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+            Class<? super T> rawType = typeToken.getRawType();
+            if (!Map.class.isAssignableFrom(rawType) || !rawType.isAssignableFrom(LinkedHashMap.class)) return null;
+
+            Type type = typeToken.getType();
+            Type[] keyAndValue = type instanceof ParameterizedType parameterizedType
+                    ? parameterizedType.getActualTypeArguments()
+                    : new Type[] {Object.class, Object.class};
+
+            TypeAdapter<Object> keyAdapter = (TypeAdapter<Object>) gson.getAdapter(TypeToken.get(keyAndValue[0]));
+            TypeAdapter<Object> valueAdapter = (TypeAdapter<Object>) gson.getAdapter(TypeToken.get(keyAndValue[1]));
+            return (TypeAdapter<T>) new MapAdapter(keyAdapter, valueAdapter);
+        }
+    }
+
+    private static final class MapAdapter extends TypeAdapter<Map<Object, Object>> {
+        private final TypeAdapter<Object> keyAdapter;
+        private final TypeAdapter<Object> valueAdapter;
+
+        private MapAdapter(TypeAdapter<Object> keyAdapter, TypeAdapter<Object> valueAdapter) {
+            this.keyAdapter = keyAdapter;
+            this.valueAdapter = valueAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, Map<Object, Object> map) throws IOException {
+            if (map == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.beginArray();
+            for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                keyAdapter.write(out, entry.getKey());
+                valueAdapter.write(out, entry.getValue());
+            }
+            out.endArray();
+        }
+
+        @Override
+        public Map<Object, Object> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            Map<Object, Object> map = new LinkedHashMap<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                Object key = keyAdapter.read(in);
+                map.put(key, valueAdapter.read(in));
+            }
+            in.endArray();
+            return map;
+        }
+    }
+}
@@ -4,58 +4,227 @@
  */
 package com.wynntils.wynn.model;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import com.wynntils.core.WynntilsMod;
 import com.wynntils.core.components.Managers;
 import com.wynntils.core.components.Model;
 import com.wynntils.core.net.ApiResponse;
+import com.wynntils.core.net.RequestPriority;
 import com.wynntils.core.net.UrlId;
+import com.wynntils.core.net.UrlManager;
+import com.wynntils.core.net.athena.UserInfoStandIn;
 import com.wynntils.mc.event.PlayerJoinedWorldEvent;
-import com.wynntils.wynn.event.WorldStateEvent;
+import com.wynntils.utils.TaskUtils;
 import com.wynntils.wynn.objects.account.AccountType;
 import com.wynntils.wynn.objects.account.WynntilsUser;
 import com.wynntils.wynn.utils.WynnPlayerUtils;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
+import org.apache.commons.io.FileUtils;
 
+/**
+ * Looks up the Wynntils accounts of the players around us.
+ *
+ * Players joining within a short window, like everyone in a world we just joined, are looked up with a single bulk
+ * request.
+ * Results are cached on disk, so players we already know about are not looked up again on every world hop.
+ */
 public final class RemoteWynntilsUserInfoModel extends Model {
-    private final Map<UUID, WynntilsUser> users = new ConcurrentHashMap<>();
+    private static final File USER_CACHE_ROOT = WynntilsMod.getModStorageDir("usercache");
+    private static final long BATCH_WINDOW_MILLIS = 250;
+    // Keeps the request body reasonably small when joining a crowded world
+    private static final int MAX_BATCH_SIZE = 100;
+
+    // Account types rarely change, but players without an account can register at any time
+    private static final long USER_TTL_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final long NON_USER_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Map<UUID, CachedUser> users = new ConcurrentHashMap<>();
     private final Set<UUID> fetching = ConcurrentHashMap.newKeySet();
+    private final Queue<UUID> batch = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean batchScheduled = new AtomicBoolean();
 
-    public void loadUser(UUID uuid) {
-        if (fetching.contains(uuid)) return;
+    private final UserInfoStandIn userInfoStandIn = new UserInfoStandIn();
+    private volatile UrlManager.UrlInfo standInUrlInfo;
+
+    @Override
+    public void init() {
+        TaskUtils.runAsync(this::loadUserCache);
 
-        fetching.add(uuid); // temporary, avoid extra loads
+        // Development builds test the bulk lookup against a local stand-in, which only needs the single user lookup
+        if (WynntilsMod.isDevelopmentEnvironment()) {
+            try {
+                standInUrlInfo = new UrlManager.UrlInfo(
+                        userInfoStandIn.start(),
+                        List.of("uuids"),
+                        UrlManager.Method.POST,
+                        UrlManager.Encoding.NONE,
+                        Optional.empty());
+            } catch (IOException e) {
+                WynntilsMod.warn("Could not start the stand-in for the bulk user lookup", e);
+            }
+        }
+    }
 
-        ApiResponse apiResponse = Managers.Net.callApi(UrlId.API_ATHENA_USER_INFO, Map.of("uuid", uuid.toString()));
-        apiResponse.handleJsonObject(json -> {
-            if (!json.has("user")) return;
+    @Override
+    public void disable() {
+        userInfoStandIn.stop();
+        standInUrlInfo = null;
+    }
 
-            JsonObject user = json.getAsJsonObject("user");
-            users.put(
-                    uuid,
-                    new WynntilsUser(AccountType.valueOf(user.get("accountType").getAsString())));
-            fetching.remove(uuid);
-        });
+    public void loadUser(UUID uuid) {
+        CachedUser cachedUser = users.get(uuid);
+        if (cachedUser != null && !cachedUser.isExpired(System.currentTimeMillis())) return;
+
+        if (!fetching.add(uuid)) return;
+
+        batch.add(uuid);
+        if (batchScheduled.compareAndSet(false, true)) {
+            TaskUtils.runAsyncLater(this::fetchBatch, BATCH_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        }
     }
 
     public WynntilsUser getUser(UUID uuid) {
-        return users.getOrDefault(uuid, null);
+        // Expired users are still good enough to show until they have been looked up again
+        CachedUser cachedUser = users.get(uuid);
+        return cachedUser == null ? null : cachedUser.user();
     }
 
-    private void clearUserCache() {
-        users.clear();
+    private void fetchBatch() {
+        // Players added from now on go in the next batch
+        batchScheduled.set(false);
+
+        List<UUID> uuids = new ArrayList<>();
+        UUID uuid;
+        while ((uuid = batch.poll()) != null) {
+            uuids.add(uuid);
+
+            if (uuids.size() == MAX_BATCH_SIZE) {
+                fetchUsers(uuids);
+                uuids = new ArrayList<>();
+            }
+        }
+        if (uuids.isEmpty()) return;
+
+        fetchUsers(uuids);
     }
 
-    @SubscribeEvent
-    public void onWorldStateChange(WorldStateEvent event) {
-        switch (event.getNewState()) {
-            case NOT_CONNECTED, CONNECTING -> clearUserCache();
+    private void fetchUsers(List<UUID> uuids) {
+        String uuidList = uuids.stream().map(UUID::toString).collect(Collectors.joining(","));
+        Map<String, String> arguments = Map.of("uuids", uuidList);
+        UrlManager.UrlInfo standIn = standInUrlInfo;
+        ApiResponse apiResponse = standIn == null
+                ? Managers.Net.callApi(UrlId.API_ATHENA_USER_INFO_BULK, arguments)
+                : Managers.Net.callApi(standIn, arguments);
+        apiResponse.withPriority(RequestPriority.BACKGROUND);
+
+        // The reply is parsed here, so players are never left marked as being looked up if it is broken
+        apiResponse.handleReader(
+                reader -> {
+                    try {
+                        JsonObject usersJson =
+                                JsonParser.parseReader(reader).getAsJsonObject().getAsJsonObject("users");
+                        long now = System.currentTimeMillis();
+
+                        for (UUID batchUuid : uuids) {
+                            // Players without an account are left out
+                            JsonElement userJson = usersJson == null ? null : usersJson.get(batchUuid.toString());
+                            try {
+                                WynntilsUser user = null;
+                                if (userJson != null && userJson.isJsonObject()) {
+                                    String accountType = userJson.getAsJsonObject().get("accountType").getAsString();
+                                    user = new WynntilsUser(AccountType.valueOf(accountType));
+                                }
+
+                                users.put(batchUuid, new CachedUser(user, now));
+                            } catch (RuntimeException e) {
+                                // An unknown account type, so the player is looked up again the next time we see them
+                            }
+                        }
+                    } finally {
+                        uuids.forEach(fetching::remove);
+                        TaskUtils.runAsync(this::saveUserCache);
+                    }
+                },
+                onError -> {
+                    // Not cached, so the players are looked up again the next time we see them
+                    WynntilsMod.warn("Could not load Wynntils user info for " + uuids.size() + " players", onError);
+                    uuids.forEach(fetching::remove);
+                });
+    }
+
+    private synchronized void saveUserCache() {
+        long now = System.currentTimeMillis();
+        Map<String, UserProfile> profiles = new HashMap<>();
+        users.forEach((uuid, cachedUser) -> {
+            if (cachedUser.isExpired(now)) return;
+
+            UserProfile profile = new UserProfile();
+            profile.accountType = cachedUser.user() == null ? null : cachedUser.user().accountType().name();
+            profile.fetchedAt = cachedUser.fetchedAt();
+            profiles.put(uuid.toString(), profile);
+        });
+
+        try {
+            File f = new File(USER_CACHE_ROOT, "users.json");
+            FileUtils.writeStringToFile(f, WynntilsMod.GSON.toJson(profiles), "UTF-8");
+        } catch (IOException e) {
+            WynntilsMod.warn("Error when trying to save Wynntils user cache.", e);
         }
     }
 
+    private synchronized void loadUserCache() {
+        File f = new File(USER_CACHE_ROOT, "users.json");
+        if (!f.exists()) return;
+
+        Map<String, UserProfile> profiles;
+        try {
+            String json = FileUtils.readFileToString(f, "UTF-8");
+
+            Type type = new TypeToken<HashMap<String, UserProfile>>() {}.getType();
+            profiles = WynntilsMod.GSON.fromJson(json, type);
+        } catch (Exception e) {
+            WynntilsMod.warn("Error when trying to load Wynntils user cache.", e);
+            return;
+        }
+        if (profiles == null) return;
+
+        long now = System.currentTimeMillis();
+        profiles.forEach((uuidString, profile) -> {
+            try {
+                UUID uuid = UUID.fromString(uuidString);
+                WynntilsUser user =
+                        profile.accountType == null ? null : new WynntilsUser(AccountType.valueOf(profile.accountType));
+                CachedUser cachedUser = new CachedUser(user, profile.fetchedAt);
+
+                // Lookups done since we started are newer than anything on disk
+                if (!cachedUser.isExpired(now)) {
+                    users.putIfAbsent(uuid, cachedUser);
+                }
+            } catch (IllegalArgumentException e) {
+                // An unknown account type or a broken uuid, so just look the player up again
+            }
+        });
+    }
+
     @SubscribeEvent
     public void onPlayerJoin(PlayerJoinedWorldEvent event) {
         if (event.getPlayerId() == null || event.getPlayerInfo() == null) return;
@@ -64,4 +233,20 @@ public final class RemoteWynntilsUserInfoModel extends Model {
 
         loadUser(event.getPlayerId());
     }
+
+    /**
+     * @param user the account of the player, or null if they don't have one
+     * @param fetchedAt when the player was looked up, in epoch millis
+     */
+    private record CachedUser(WynntilsUser user, long fetchedAt) {
+        private boolean isExpired(long now) {
+            long ttl = user == null ? NON_USER_TTL_MILLIS : USER_TTL_MILLIS;
+            return now - fetchedAt >= ttl;
+        }
+    }
+
+    private static final class UserProfile {
+        String accountType;
+        long fetchedAt;
+    }
 }
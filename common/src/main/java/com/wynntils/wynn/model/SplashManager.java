@@ -37,7 +37,7 @@ public final class SplashManager extends Manager {
     }
 
     private void updateCurrentSplash() {
-        Download dl = Managers.Net.download(UrlId.DATA_STATIC_SPLASHES);
+        Download dl = Managers.Net.download(UrlId.DATA_STATIC_SPLASHES).revalidateInBackground();
         dl.handleReader(reader -> {
             Type type = new TypeToken<List<String>>() {}.getType();
             allSplashes = WynntilsMod.GSON.fromJson(reader, type);
@@ -185,7 +185,7 @@ public final class DiscoveryManager extends Manager {
     }
 
     private void updateDiscoveriesResource() {
-        Download dl = Managers.Net.download(UrlId.DATA_STATIC_DISCOVERIES);
+        Download dl = Managers.Net.download(UrlId.DATA_STATIC_DISCOVERIES).revalidateInBackground();
         dl.handleReader(reader -> {
             Type type = new TypeToken<ArrayList<DiscoveryProfile>>() {}.getType();
             List<DiscoveryProfile> discoveries = WynntilsMod.GSON.fromJson(reader, type);
@@ -4,6 +4,7 @@
  */
 package com.wynntils.wynn.model.guild;
 
+import com.wynntils.core.components.Handlers;
 import com.wynntils.core.components.Model;
 import com.wynntils.handlers.chat.RecipientType;
 import com.wynntils.handlers.chat.event.ChatMessageReceivedEvent;
@@ -28,12 +29,17 @@ public final class GuildAttackTimerModel extends Model {
 
     private List<TerritoryAttackTimer> attackTimers = List.of();
 
+    @Override
+    public void init() {
+        Handlers.Chat.registerPatterns(GUILD_DEFENSE_CHAT_PATTERN);
+    }
+
     @SubscribeEvent
     public void onMessage(ChatMessageReceivedEvent event) {
         if (event.getRecipientType() != RecipientType.GUILD) return;
 
-        Matcher matcher = GUILD_DEFENSE_CHAT_PATTERN.matcher(event.getOriginalCodedMessage());
-        if (!matcher.matches()) return;
+        Matcher matcher = event.getOriginalMatches().matches(GUILD_DEFENSE_CHAT_PATTERN);
+        if (matcher == null) return;
 
         Optional<TerritoryAttackTimer> territory = attackTimers.stream()
                 .filter(territoryAttackTimer -> territoryAttackTimer.territory().equals(matcher.group(1))
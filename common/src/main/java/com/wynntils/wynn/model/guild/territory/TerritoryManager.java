@@ -14,18 +14,18 @@ import com.wynntils.core.net.NetManager;
 import com.wynntils.core.net.UrlId;
 import com.wynntils.mc.event.AdvancementUpdateEvent;
 import com.wynntils.mc.utils.ComponentUtils;
+import com.wynntils.utils.BoundingBox;
 import com.wynntils.wynn.model.guild.territory.objects.TerritoryInfo;
 import com.wynntils.wynn.model.map.TerritoryDefenseFilterType;
 import com.wynntils.wynn.model.map.poi.Poi;
+import com.wynntils.wynn.model.map.poi.PoiIndex;
 import com.wynntils.wynn.model.map.poi.TerritoryPoi;
 import com.wynntils.wynn.objects.profiles.TerritoryProfile;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -49,8 +49,11 @@ public final class TerritoryManager extends Manager {
     // This is the profiles as downloaded from Athena
     private Map<String, TerritoryProfile> territoryProfileMap = new HashMap<>();
 
+    // Spatial index over territoryPoiMap values
+    private final PoiIndex<TerritoryPoi> territoryPoiIndex = new PoiIndex<>();
+
     // This is just a cache of TerritoryPois created for all territoryProfileMap values
-    private Set<TerritoryPoi> allTerritoryPois = new HashSet<>();
+    private volatile PoiIndex<TerritoryPoi> allTerritoryPoiIndex = new PoiIndex<>();
 
     private final ScheduledExecutorService timerExecutor = new ScheduledThreadPoolExecutor(1);
 
@@ -68,24 +71,23 @@ public final class TerritoryManager extends Manager {
         return territoryProfileMap.keySet().stream();
     }
 
-    public Set<TerritoryPoi> getTerritoryPois() {
-        return allTerritoryPois;
+    public List<TerritoryPoi> getTerritoryPoisInArea(BoundingBox area, float mapZoom) {
+        return allTerritoryPoiIndex.query(area, mapZoom, 1f);
     }
 
-    public List<Poi> getTerritoryPoisFromAdvancement() {
-        return new ArrayList<>(territoryPoiMap.values());
+    public List<Poi> getTerritoryPoisFromAdvancement(BoundingBox area, float mapZoom) {
+        return new ArrayList<>(territoryPoiIndex.query(area, mapZoom, 1f));
     }
 
-    public List<Poi> getFilteredTerritoryPoisFromAdvancement(int filterLevel, TerritoryDefenseFilterType filterType) {
+    public List<Poi> getFilteredTerritoryPoisFromAdvancement(
+            BoundingBox area, float mapZoom, int filterLevel, TerritoryDefenseFilterType filterType) {
+        Stream<TerritoryPoi> pois = territoryPoiIndex.query(area, mapZoom, 1f).stream();
         return switch (filterType) {
-            case HIGHER -> territoryPoiMap.values().stream()
-                    .filter(poi -> poi.getTerritoryInfo().getDefences().getLevel() >= filterLevel)
+            case HIGHER -> pois.filter(poi -> poi.getTerritoryInfo().getDefences().getLevel() >= filterLevel)
                     .collect(Collectors.toList());
-            case LOWER -> territoryPoiMap.values().stream()
-                    .filter(poi -> poi.getTerritoryInfo().getDefences().getLevel() <= filterLevel)
+            case LOWER -> pois.filter(poi -> poi.getTerritoryInfo().getDefences().getLevel() <= filterLevel)
                     .collect(Collectors.toList());
-            case DEFAULT -> territoryPoiMap.values().stream()
-                    .filter(poi -> poi.getTerritoryInfo().getDefences().getLevel() == filterLevel)
+            case DEFAULT -> pois.filter(poi -> poi.getTerritoryInfo().getDefences().getLevel() == filterLevel)
                     .collect(Collectors.toList());
         };
     }
@@ -134,7 +136,12 @@ public final class TerritoryManager extends Manager {
 
             if (territoryProfile == null) continue;
 
-            territoryPoiMap.put(entry.getKey(), new TerritoryPoi(territoryProfile, entry.getValue()));
+            TerritoryPoi territoryPoi = new TerritoryPoi(territoryProfile, entry.getValue());
+            TerritoryPoi oldPoi = territoryPoiMap.put(entry.getKey(), territoryPoi);
+            if (oldPoi != null) {
+                territoryPoiIndex.remove(oldPoi);
+            }
+            territoryPoiIndex.add(territoryPoi);
         }
     }
 
@@ -152,8 +159,9 @@ public final class TerritoryManager extends Manager {
 
             Type type = new TypeToken<HashMap<String, TerritoryProfile>>() {}.getType();
             territoryProfileMap = TERRITORY_PROFILE_GSON.fromJson(json.get("territories"), type);
-            allTerritoryPois =
-                    territoryProfileMap.values().stream().map(TerritoryPoi::new).collect(Collectors.toSet());
+            PoiIndex<TerritoryPoi> newIndex = new PoiIndex<>();
+            territoryProfileMap.values().stream().map(TerritoryPoi::new).forEach(newIndex::add);
+            allTerritoryPoiIndex = newIndex;
             // TODO: Add events if territories changed
         });
     }
@@ -0,0 +1,47 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.wynn.model.item;
+
+import java.util.List;
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.TooltipFlag;
+
+/**
+ * A read-only view of an item stack that is being classified. The name and tooltip are parsed from nbt on every
+ * call, so they are kept after the first one, and every predicate after that gets them for free.
+ */
+final class ClassifyingItemStack extends ItemStack {
+    private Component hoverName;
+    private List<Component> tooltipLines;
+    private Player tooltipPlayer;
+    private TooltipFlag tooltipFlag;
+
+    ClassifyingItemStack(ItemStack stack) {
+        super(stack.getItem(), stack.getCount());
+        // Copied, as setting the tag can write to it, like the damage of damageable items, and the original tag must
+        // stay as it was fingerprinted
+        if (stack.getTag() != null) setTag(stack.getTag().copy());
+    }
+
+    @Override
+    public Component getHoverName() {
+        if (hoverName == null) {
+            hoverName = super.getHoverName();
+        }
+        return hoverName;
+    }
+
+    @Override
+    public List<Component> getTooltipLines(Player player, TooltipFlag flag) {
+        if (tooltipLines == null || player != tooltipPlayer || flag != tooltipFlag) {
+            tooltipLines = super.getTooltipLines(player, flag);
+            tooltipPlayer = player;
+            tooltipFlag = flag;
+        }
+        return tooltipLines;
+    }
+}
@@ -8,38 +8,69 @@ import com.wynntils.core.components.Manager;
 import com.wynntils.mc.event.ContainerSetContentEvent;
 import com.wynntils.mc.event.SetSlotEvent;
 import com.wynntils.wynn.item.WynnItemStack;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraftforge.eventbus.api.EventPriority;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 
 public final class ItemStackTransformManager extends Manager {
+    private static final int MAX_CACHED_CLASSIFICATIONS = 2048;
+
     private final Set<ItemStackTransformer> transformers = ConcurrentHashMap.newKeySet();
     private final Set<ItemPropertyWriter> properties = ConcurrentHashMap.newKeySet();
 
+    // Wynncraft resends the same items all the time, so what applies to an item is remembered by its contents
+    private final Map<ItemFingerprint, Classification> classifications =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ItemFingerprint, Classification> eldest) {
+                    return size() > MAX_CACHED_CLASSIFICATIONS;
+                }
+            };
+
     public ItemStackTransformManager() {
         super(List.of());
     }
 
     public void registerTransformer(ItemStackTransformer transformer) {
         transformers.add(transformer);
+        invalidateCache();
     }
 
     public void unregisterTransformer(ItemStackTransformer transformer) {
         transformers.remove(transformer);
+        invalidateCache();
     }
 
     public void registerProperty(ItemPropertyWriter writer) {
         properties.add(writer);
+        invalidateCache();
     }
 
     public void unregisterProperty(ItemPropertyWriter writer) {
         properties.remove(writer);
+        invalidateCache();
+    }
+
+    /**
+     * Forgets how items were classified. Needs to be called when something the predicates depend on changes, like
+     * the known item profiles.
+     */
+    public void invalidateCache() {
+        synchronized (classifications) {
+            classifications.clear();
+        }
     }
 
     @SubscribeEvent(priority = EventPriority.HIGHEST)
@@ -53,23 +84,63 @@ public final class ItemStackTransformManager extends Manager {
     }
 
     private ItemStack transformItem(ItemStack stack) {
+        // Stacks we have already changed can't be told apart by their contents alone
+        ItemFingerprint fingerprint = stack.getClass() == ItemStack.class ? ItemFingerprint.of(stack) : null;
+
+        if (fingerprint != null) {
+            Classification classification;
+            synchronized (classifications) {
+                classification = classifications.get(fingerprint);
+            }
+
+            if (classification != null) {
+                if (classification.transformer() != null) {
+                    stack = classification.transformer().transform(stack);
+                }
+                return attachProperties(stack, classification.writers());
+            }
+        }
+
+        // The name and lore are only read once for all the predicates
+        ItemStack probe = new ClassifyingItemStack(stack);
+
         // itemstack transformers
+        ItemStackTransformer transformer = null;
         for (ItemStackTransformer t : transformers) {
-            if (t.test(stack)) {
+            if (t.test(probe)) {
+                transformer = t;
                 stack = t.transform(stack);
+                // The properties are checked on the transformed stack, which can look different from the original
+                probe = stack;
                 break;
             }
         }
 
         // itemstack properties
+        List<ItemPropertyWriter> writers = new ArrayList<>();
         for (ItemPropertyWriter w : properties) {
-            if (w.test(stack)) {
-                if (!(stack instanceof WynnItemStack)) stack = new WynnItemStack(stack);
+            if (w.test(probe)) {
+                writers.add(w);
+            }
+        }
 
-                w.attach((WynnItemStack) stack);
+        if (fingerprint != null) {
+            synchronized (classifications) {
+                // The stack is handed on and can be changed later, so the cache gets its own copy of the tag
+                classifications.put(fingerprint.copy(), new Classification(transformer, List.copyOf(writers)));
             }
         }
 
+        return attachProperties(stack, writers);
+    }
+
+    private ItemStack attachProperties(ItemStack stack, List<ItemPropertyWriter> writers) {
+        for (ItemPropertyWriter w : writers) {
+            if (!(stack instanceof WynnItemStack)) stack = new WynnItemStack(stack);
+
+            w.attach((WynnItemStack) stack);
+        }
+
         if (stack instanceof WynnItemStack wynnItemStack) {
             wynnItemStack.init();
         }
@@ -77,6 +148,49 @@ public final class ItemStackTransformManager extends Manager {
         return stack;
     }
 
+    private record Classification(ItemStackTransformer transformer, List<ItemPropertyWriter> writers) {}
+
+    /**
+     * Identifies an item by everything the predicates can look at. The hash is worked out once, as the tag can be
+     * large.
+     */
+    private static final class ItemFingerprint {
+        private final Item item;
+        private final int damage;
+        private final CompoundTag tag;
+        private final int hash;
+
+        private ItemFingerprint(Item item, int damage, CompoundTag tag, int hash) {
+            this.item = item;
+            this.damage = damage;
+            this.tag = tag;
+            this.hash = hash;
+        }
+
+        private static ItemFingerprint of(ItemStack stack) {
+            CompoundTag tag = stack.getTag();
+            int damage = stack.getDamageValue();
+            int hash = 31 * (31 * stack.getItem().hashCode() + damage) + Objects.hashCode(tag);
+            return new ItemFingerprint(stack.getItem(), damage, tag, hash);
+        }
+
+        private ItemFingerprint copy() {
+            return new ItemFingerprint(item, damage, tag == null ? null : tag.copy(), hash);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ItemFingerprint other)) return false;
+            return hash == other.hash && item == other.item && damage == other.damage && Objects.equals(tag, other.tag);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
     public static class ItemStackTransformer {
         private final Predicate<ItemStack> predicate;
         private final Function<ItemStack, WynnItemStack> transformer;
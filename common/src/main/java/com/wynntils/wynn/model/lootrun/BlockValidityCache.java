@@ -0,0 +1,67 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.wynn.model.lootrun;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+
+/**
+ * Remembers whether lootrun points can be walked on, by the block the point is in.
+ * Results are grouped by chunk, so they can be dropped when the blocks of a chunk change.
+ */
+final class BlockValidityCache {
+    private final Long2ObjectMap<Long2ObjectMap<LootrunModel.BlockValidness>> validnessByChunk =
+            new Long2ObjectOpenHashMap<>();
+    private Level level = null;
+
+    LootrunModel.BlockValidness get(Level level, BlockPos blockPos, double x, double y, double z) {
+        if (level != this.level) {
+            validnessByChunk.clear();
+            this.level = level;
+        }
+
+        long chunk = ChunkPos.asLong(blockPos.getX() >> 4, blockPos.getZ() >> 4);
+        Long2ObjectMap<LootrunModel.BlockValidness> validness =
+                validnessByChunk.computeIfAbsent(chunk, k -> new Long2ObjectOpenHashMap<>());
+
+        LootrunModel.BlockValidness cached = validness.get(blockPos.asLong());
+        if (cached != null) return cached;
+
+        LootrunModel.BlockValidness result = check(level, x, y, z);
+        validness.put(blockPos.asLong(), result);
+        return result;
+    }
+
+    void invalidate(long chunk) {
+        validnessByChunk.remove(chunk);
+    }
+
+    void clear() {
+        validnessByChunk.clear();
+        level = null;
+    }
+
+    private static LootrunModel.BlockValidness check(Level level, double x, double y, double z) {
+        LootrunModel.BlockValidness state = LootrunModel.BlockValidness.INVALID;
+        BlockPos minPos = new BlockPos(x - 0.3D, y - 1D, z - 0.3D);
+        BlockPos maxPos = new BlockPos(x + 0.3D, y - 1D, z + 0.3D);
+
+        for (BlockPos blockInArea : BlockPos.betweenClosed(minPos, maxPos)) {
+            BlockState blockStateInArea = level.getBlockState(blockInArea);
+            if (blockStateInArea.is(Blocks.BARRIER)) {
+                state = LootrunModel.BlockValidness.HAS_BARRIER;
+            } else if (blockStateInArea.getCollisionShape(level, blockInArea) != null) {
+                return LootrunModel.BlockValidness.VALID;
+            }
+        }
+
+        return state;
+    }
+}
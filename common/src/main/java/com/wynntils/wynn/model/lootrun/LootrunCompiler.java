@@ -0,0 +1,290 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.wynn.model.lootrun;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import net.minecraft.ChatFormatting;
+import net.minecraft.util.FastColor;
+import net.minecraft.util.Mth;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Turns the recorded points of a lootrun into the smoothed, colored paths that are rendered, bucketed by chunk.
+ *
+ * The path is interpolated with the same cubic Hermite splines {@link net.minecraft.util.CubicSpline} uses, but on
+ * primitive float arrays. Every sample only depends on its two surrounding points, so long paths are sampled in
+ * parallel. Compiling does not touch any shared state, and is meant to be run off the render thread.
+ */
+final class LootrunCompiler {
+    private static final float SAMPLE_RATE = 10f;
+
+    // Points at least this far apart are not connected
+    private static final double MAX_POINT_DISTANCE = 32;
+
+    // Path segments, between two recorded points, sampled by a single fork/join task
+    private static final int SEGMENTS_PER_TASK = 2048;
+
+    private static final int[] COLORS = {
+        ChatFormatting.RED.getColor(),
+        ChatFormatting.GOLD.getColor(),
+        ChatFormatting.YELLOW.getColor(),
+        ChatFormatting.GREEN.getColor(),
+        ChatFormatting.BLUE.getColor(),
+        0x3f00ff,
+        ChatFormatting.DARK_PURPLE.getColor()
+    };
+
+    private LootrunCompiler() {}
+
+    static Long2ObjectMap<List<LootrunModel.ColoredPath>> compile(List<Vec3> points, PathStyle style) {
+        Knots knots = Knots.of(points);
+        int sampleCount = knots.size > 0 ? knots.firstSample[knots.size - 1] : 0;
+
+        float[] positions = new float[sampleCount * 3];
+        int[] colors = new int[sampleCount];
+        if (sampleCount > 0) {
+            ForkJoinPool.commonPool().invoke(new SampleTask(knots, style, positions, colors, 0, knots.size - 1));
+        }
+
+        return splitByChunk(positions, colors, sampleCount);
+    }
+
+    private static Long2ObjectMap<List<LootrunModel.ColoredPath>> splitByChunk(
+            float[] positions, int[] colors, int sampleCount) {
+        Long2ObjectMap<List<LootrunModel.ColoredPath>> pathsByChunk = new Long2ObjectOpenHashMap<>();
+
+        int start = 0;
+        long lastChunk = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            float x = positions[i * 3];
+            float z = positions[i * 3 + 2];
+            long chunk = ChunkPos.asLong(Mth.floor(x) >> 4, Mth.floor(z) >> 4);
+
+            if (i == 0) {
+                lastChunk = chunk;
+                continue;
+            }
+
+            if (chunk != lastChunk) {
+                // Paths continuing into the next chunk end on its first point, so there is no gap at the chunk border
+                int end = isConnected(positions, i - 1, i) ? i + 1 : i;
+                addPath(pathsByChunk, lastChunk, positions, colors, start, end);
+
+                start = i;
+                lastChunk = chunk;
+            }
+        }
+
+        if (sampleCount > 0) {
+            addPath(pathsByChunk, lastChunk, positions, colors, start, sampleCount);
+        }
+
+        return pathsByChunk;
+    }
+
+    private static void addPath(
+            Long2ObjectMap<List<LootrunModel.ColoredPath>> pathsByChunk,
+            long chunk,
+            float[] positions,
+            int[] colors,
+            int start,
+            int end) {
+        LootrunModel.ColoredPath path = new LootrunModel.ColoredPath(
+                Arrays.copyOfRange(positions, start * 3, end * 3), Arrays.copyOfRange(colors, start, end));
+        pathsByChunk.computeIfAbsent(chunk, k -> new ArrayList<>()).add(path);
+    }
+
+    private static boolean isConnected(float[] positions, int first, int second) {
+        float dx = positions[second * 3] - positions[first * 3];
+        float dy = positions[second * 3 + 1] - positions[first * 3 + 1];
+        float dz = positions[second * 3 + 2] - positions[first * 3 + 2];
+        return dx * dx + dy * dy + dz * dz < MAX_POINT_DISTANCE * MAX_POINT_DISTANCE;
+    }
+
+    private static int getColor(PathStyle style, int sample) {
+        if (!style.rainbow()) return style.color();
+
+        int cycle = 10 * Math.max(1, style.cycleDistance());
+        int currentColor = COLORS[(sample / cycle) % COLORS.length];
+        int nextColor = COLORS[(sample / cycle + 1) % COLORS.length];
+        float done = (float) (sample % cycle) / (float) cycle;
+
+        float differenceRed = FastColor.ARGB32.red(nextColor) - FastColor.ARGB32.red(currentColor);
+        float differenceGreen = FastColor.ARGB32.green(nextColor) - FastColor.ARGB32.green(currentColor);
+        float differenceBlue = FastColor.ARGB32.blue(nextColor) - FastColor.ARGB32.blue(currentColor);
+
+        int color = currentColor;
+        color += 0x010000 * (int) (differenceRed * done);
+        color += 0x000100 * (int) (differenceGreen * done);
+        color += (int) (differenceBlue * done);
+        return color | 0xff000000;
+    }
+
+    /**
+     * @param rainbow whether the path cycles through the lootrun colors instead of using a single color
+     * @param cycleDistance the length of a color cycle in blocks, if rainbow
+     * @param color the color of the path, if not rainbow
+     */
+    record PathStyle(boolean rainbow, int cycleDistance, int color) {}
+
+    /**
+     * The points of a path, as spline knots. Each run of connected points is a separate spline, with its own
+     * distance along the path; runs follow each other directly in the arrays.
+     */
+    private static final class Knots {
+        private int size;
+
+        // Distance from the start of the run
+        private final float[] location;
+        private final float[] x;
+        private final float[] y;
+        private final float[] z;
+        private final float[] slopeX;
+        private final float[] slopeY;
+        private final float[] slopeZ;
+
+        // Index of the first sample at or after this knot. Samples between knots i and i + 1 are
+        // [firstSample[i], firstSample[i + 1]), so there are none between the last knot of a run and the next run.
+        private final int[] firstSample;
+        // The sample index within the run of firstSample
+        private final int[] firstRunSample;
+
+        private Knots(int capacity) {
+            location = new float[capacity];
+            x = new float[capacity];
+            y = new float[capacity];
+            z = new float[capacity];
+            slopeX = new float[capacity];
+            slopeY = new float[capacity];
+            slopeZ = new float[capacity];
+            firstSample = new int[capacity];
+            firstRunSample = new int[capacity];
+        }
+
+        private static Knots of(List<Vec3> points) {
+            Knots knots = new Knots(Math.max(1, points.size()));
+
+            int runStart = 0;
+            int runBase = 0;
+            float distance = 0f;
+            Vec3 last = null;
+            for (Vec3 point : points) {
+                if (last != null) {
+                    double step = last.distanceTo(point);
+
+                    // Splines need strictly increasing locations, so repeated points are skipped
+                    if (step == 0) continue;
+
+                    if (step >= MAX_POINT_DISTANCE) {
+                        runBase = knots.endRun(runStart, runBase);
+                        runStart = knots.size;
+                        distance = 0f;
+                    } else {
+                        distance += step;
+                    }
+                }
+
+                int i = knots.size++;
+                knots.location[i] = distance;
+                knots.x[i] = (float) point.x;
+                knots.y[i] = (float) point.y;
+                knots.z[i] = (float) point.z;
+                last = point;
+            }
+
+            knots.endRun(runStart, runBase);
+            return knots;
+        }
+
+        // Fills in slopes and sample indices of a finished run, and returns the first sample index of the next one.
+        // The last point of a run keeps a slope of 0, and its first sample is the first one after the run.
+        private int endRun(int runStart, int runBase) {
+            if (size == runStart) return runBase;
+
+            for (int i = runStart; i < size; i++) {
+                firstRunSample[i] = (int) Math.ceil(location[i] * SAMPLE_RATE);
+                firstSample[i] = runBase + firstRunSample[i];
+
+                if (i < size - 1) {
+                    double dx = x[i + 1] - x[i];
+                    double dy = y[i + 1] - y[i];
+                    double dz = z[i + 1] - z[i];
+                    double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                    slopeX[i] = (float) (dx / distance);
+                    slopeY[i] = (float) (dy / distance);
+                    slopeZ[i] = (float) (dz / distance);
+                }
+            }
+
+            return firstSample[size - 1];
+        }
+    }
+
+    private static final class SampleTask extends RecursiveAction {
+        private final Knots knots;
+        private final PathStyle style;
+        private final float[] positions;
+        private final int[] colors;
+
+        // Samples the segments between knots [from, to] inclusive
+        private final int from;
+        private final int to;
+
+        private SampleTask(Knots knots, PathStyle style, float[] positions, int[] colors, int from, int to) {
+            this.knots = knots;
+            this.style = style;
+            this.positions = positions;
+            this.colors = colors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEGMENTS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    sampleSegment(i);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new SampleTask(knots, style, positions, colors, from, middle),
+                    new SampleTask(knots, style, positions, colors, middle, to));
+        }
+
+        private void sampleSegment(int i) {
+            float start = knots.location[i];
+            float length = knots.location[i + 1] - start;
+
+            for (int sample = knots.firstSample[i]; sample < knots.firstSample[i + 1]; sample++) {
+                float location = (knots.firstRunSample[i] + (sample - knots.firstSample[i])) / SAMPLE_RATE;
+                float t = (location - start) / length;
+
+                positions[sample * 3] = interpolate(t, length, knots.x, knots.slopeX, i);
+                positions[sample * 3 + 1] = interpolate(t, length, knots.y, knots.slopeY, i);
+                positions[sample * 3 + 2] = interpolate(t, length, knots.z, knots.slopeZ, i);
+                colors[sample] = getColor(style, sample);
+            }
+        }
+
+        // Cubic Hermite interpolation between knots i and i + 1, matching CubicSpline.Multipoint
+        private static float interpolate(float t, float length, float[] values, float[] slopes, int i) {
+            float value = values[i];
+            float nextValue = values[i + 1];
+            float p = slopes[i] * length - (nextValue - value);
+            float q = -slopes[i + 1] * length + (nextValue - value);
+            return Mth.lerp(t, value, nextValue) + t * (1f - t) * Mth.lerp(t, p, q);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.wynn.model.lootrun;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * A compact binary form of lootrun files, meant to be memory-mapped.
+ *
+ * JSON stays the format lootruns are saved and shared in. The binary form is a cache of a JSON file, and records
+ * the modification time and length of the file it was made from, so it is only used while that file is unchanged.
+ *
+ * Layout, big endian:
+ * <pre>
+ * header: magic, version, source last modified, source length, name, point/chest/note counts, bounds, start, end
+ * body:   points as 3 doubles, chests as 3 ints, notes as 3 doubles followed by their component as JSON
+ * </pre>
+ */
+final class LootrunFileFormat {
+    private static final int MAGIC = 0x574C524E; // "WLRN"
+    private static final int VERSION = 1;
+
+    private LootrunFileFormat() {}
+
+    /**
+     * Reads only the header of a binary lootrun file.
+     * Returns null if the file is missing or corrupt, or was not made from the current version of the source.
+     */
+    static LootrunHeader readHeader(File file, File source) {
+        if (!file.exists()) return null;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return readHeader(buffer, source);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a binary lootrun file. Returns null under the same conditions as {@link #readHeader(File, File)}.
+     */
+    static LootrunModel.LootrunUncompiled read(File file, File source) {
+        if (!file.exists()) return null;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            LootrunHeader header = readHeader(buffer, source);
+            if (header == null) return null;
+
+            List<Vec3> points = new ArrayList<>(header.pointCount());
+            for (int i = 0; i < header.pointCount(); i++) {
+                points.add(readVec3(buffer));
+            }
+
+            Set<BlockPos> chests = new HashSet<>();
+            for (int i = 0; i < header.chestCount(); i++) {
+                chests.add(new BlockPos(buffer.getInt(), buffer.getInt(), buffer.getInt()));
+            }
+
+            List<LootrunModel.Note> notes = new ArrayList<>(header.noteCount());
+            for (int i = 0; i < header.noteCount(); i++) {
+                Vec3 position = readVec3(buffer);
+                Component component = Component.Serializer.fromJson(readString(buffer));
+                notes.add(new LootrunModel.Note(position, component));
+            }
+
+            return new LootrunModel.LootrunUncompiled(new LootrunModel.Path(points), chests, notes, source);
+        } catch (IOException | RuntimeException e) {
+            // Corrupt or truncated files can fail in many ways; they are just a cache, so treat them as missing
+            return null;
+        }
+    }
+
+    static LootrunHeader createHeader(String name, LootrunModel.LootrunUncompiled lootrun) {
+        List<Vec3> points = lootrun.path().points();
+        if (points.isEmpty()) {
+            return new LootrunHeader(name, 0, lootrun.chests().size(), lootrun.notes().size(), null, null, null);
+        }
+
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        double maxZ = -Double.MAX_VALUE;
+        for (Vec3 point : points) {
+            minX = Math.min(minX, point.x);
+            minY = Math.min(minY, point.y);
+            minZ = Math.min(minZ, point.z);
+            maxX = Math.max(maxX, point.x);
+            maxY = Math.max(maxY, point.y);
+            maxZ = Math.max(maxZ, point.z);
+        }
+
+        return new LootrunHeader(
+                name,
+                points.size(),
+                lootrun.chests().size(),
+                lootrun.notes().size(),
+                new AABB(minX, minY, minZ, maxX, maxY, maxZ),
+                points.get(0),
+                points.get(points.size() - 1));
+    }
+
+    /**
+     * Writes the binary form of a lootrun read from, or saved to, the given source file.
+     * The file is replaced atomically, so readers never see a partially written file.
+     */
+    static void write(File file, File source, LootrunHeader header, LootrunModel.LootrunUncompiled lootrun)
+            throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(source.lastModified());
+            out.writeLong(source.length());
+            writeString(out, header.name());
+            out.writeInt(header.pointCount());
+            out.writeInt(header.chestCount());
+            out.writeInt(header.noteCount());
+
+            AABB bounds = header.bounds() != null ? header.bounds() : new AABB(0, 0, 0, 0, 0, 0);
+            writeVec3(out, new Vec3(bounds.minX, bounds.minY, bounds.minZ));
+            writeVec3(out, new Vec3(bounds.maxX, bounds.maxY, bounds.maxZ));
+            writeVec3(out, header.start() != null ? header.start() : Vec3.ZERO);
+            writeVec3(out, header.end() != null ? header.end() : Vec3.ZERO);
+
+            for (Vec3 point : lootrun.path().points()) {
+                writeVec3(out, point);
+            }
+
+            for (BlockPos chest : lootrun.chests()) {
+                out.writeInt(chest.getX());
+                out.writeInt(chest.getY());
+                out.writeInt(chest.getZ());
+            }
+
+            for (LootrunModel.Note note : lootrun.notes()) {
+                writeVec3(out, note.position());
+                writeString(out, Component.Serializer.toJson(note.component()));
+            }
+        }
+
+        Files.move(
+                tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static LootrunHeader readHeader(ByteBuffer buffer, File source) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null;
+
+        long sourceLastModified = buffer.getLong();
+        long sourceLength = buffer.getLong();
+        if (sourceLastModified != source.lastModified() || sourceLength != source.length()) return null;
+
+        String name = readString(buffer);
+        int pointCount = buffer.getInt();
+        int chestCount = buffer.getInt();
+        int noteCount = buffer.getInt();
+        Vec3 min = readVec3(buffer);
+        Vec3 max = readVec3(buffer);
+        Vec3 start = readVec3(buffer);
+        Vec3 end = readVec3(buffer);
+
+        if (pointCount == 0) {
+            return new LootrunHeader(name, 0, chestCount, noteCount, null, null, null);
+        }
+
+        return new LootrunHeader(name, pointCount, chestCount, noteCount, new AABB(min, max), start, end);
+    }
+
+    private static Vec3 readVec3(ByteBuffer buffer) {
+        return new Vec3(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+    }
+
+    private static void writeVec3(DataOutputStream out, Vec3 vec3) throws IOException {
+        out.writeDouble(vec3.x);
+        out.writeDouble(vec3.y);
+        out.writeDouble(vec3.z);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,15 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.wynn.model.lootrun;
+
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * The summary of a lootrun file, which is all that is needed to list lootruns without loading them.
+ * Bounds, start and end are null for lootruns without any points.
+ */
+public record LootrunHeader(
+        String name, int pointCount, int chestCount, int noteCount, AABB bounds, Vec3 start, Vec3 end) {}
@@ -2,7 +2,7 @@
  * Copyright © Wynntils 2022.
  * This file is released under AGPLv3. See LICENSE for full license details.
  */
-package com.wynntils.wynn.model;
+package com.wynntils.wynn.model.lootrun;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -13,11 +13,14 @@ import com.mojang.blaze3d.vertex.VertexConsumer;
 import com.wynntils.core.WynntilsMod;
 import com.wynntils.core.components.Model;
 import com.wynntils.features.statemanaged.LootrunFeature;
-import com.wynntils.gui.render.CustomRenderType;
+import com.wynntils.mc.event.ChunkEvent;
 import com.wynntils.mc.utils.McUtils;
 import com.wynntils.wynn.event.LootrunCacheRefreshEvent;
+import com.wynntils.wynn.event.WorldStateEvent;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
@@ -27,11 +30,11 @@ import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
-import net.minecraft.ChatFormatting;
+import java.util.concurrent.CompletableFuture;
+import net.minecraft.Util;
 import net.minecraft.client.Camera;
 import net.minecraft.client.gui.Font;
 import net.minecraft.client.multiplayer.ClientLevel;
@@ -41,33 +44,23 @@ import net.minecraft.client.renderer.MultiBufferSource;
 import net.minecraft.client.renderer.RenderType;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
-import net.minecraft.util.CubicSpline;
 import net.minecraft.util.FastColor;
 import net.minecraft.util.FormattedCharSequence;
-import net.minecraft.util.Mth;
-import net.minecraft.util.ToFloatFunction;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.level.ChunkPos;
-import net.minecraft.world.level.Level;
-import net.minecraft.world.level.block.Blocks;
-import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.AABB;
 import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
 import org.joml.Matrix4f;
 
 public final class LootrunModel extends Model {
     public static final File LOOTRUNS = WynntilsMod.getModStorageDir("lootruns");
 
-    private static final List<Integer> COLORS = List.of(
-            ChatFormatting.RED.getColor(),
-            ChatFormatting.GOLD.getColor(),
-            ChatFormatting.YELLOW.getColor(),
-            ChatFormatting.GREEN.getColor(),
-            ChatFormatting.BLUE.getColor(),
-            0x3f00ff,
-            ChatFormatting.DARK_PURPLE.getColor());
+    // Binary forms of the JSON lootrun files, see LootrunFileFormat
+    private static final File LOOTRUN_CACHE = WynntilsMod.getModStorageDir("lootruncache");
+    private static final String LOOTRUN_CACHE_EXTENSION = ".wlr";
 
-    private static List<LootrunInstance> LOOTRUN_INSTANCE_CACHE = new ArrayList<>();
+    private static List<LootrunHeader> LOOTRUN_HEADER_CACHE = new ArrayList<>();
 
     private LootrunState state = LootrunState.DISABLED;
 
@@ -78,16 +71,58 @@ public final class LootrunModel extends Model {
 
     private RecordingInformation recordingInformation = null;
 
+    // Incremented whenever the compiled lootrun is replaced, so stale background compilations are dropped
+    private int compileGeneration = 0;
+
+    private final BlockValidityCache blockValidity = new BlockValidityCache();
+    private final LootrunPathBuffers lootrunBuffers = new LootrunPathBuffers(blockValidity);
+    private final LootrunPathBuffers recordingBuffers = new LootrunPathBuffers(blockValidity);
+
     public LootrunState getState() {
         return state;
     }
 
     public void render(PoseStack poseStack) {
-        renderLootrun(poseStack, lootrun, LootrunFeature.INSTANCE.activePathColor.asInt());
-        renderLootrun(poseStack, recordingCompiled, LootrunFeature.INSTANCE.recordingPathColor.asInt());
+        renderLootrun(poseStack, lootrun, lootrunBuffers, LootrunFeature.INSTANCE.activePathColor.asInt());
+        renderLootrun(
+                poseStack, recordingCompiled, recordingBuffers, LootrunFeature.INSTANCE.recordingPathColor.asInt());
+    }
+
+    @SubscribeEvent
+    public void onWorldStateChange(WorldStateEvent event) {
+        // The buffers were built for the blocks of the old world, they are built again when drawn
+        lootrunBuffers.close();
+        recordingBuffers.close();
+    }
+
+    @SubscribeEvent
+    public void onChunkLoad(ChunkEvent.Load event) {
+        invalidateChunk(event.getChunkPos());
+    }
+
+    @SubscribeEvent
+    public void onChunkUnload(ChunkEvent.Unload event) {
+        invalidateChunk(event.getChunkPos());
+    }
+
+    @SubscribeEvent
+    public void onBlocksChanged(ChunkEvent.BlocksChanged event) {
+        invalidateChunk(event.getChunkPos());
+    }
+
+    private void invalidateChunk(ChunkPos chunkPos) {
+        // Points near the border of a chunk check blocks in the neighbouring chunks too
+        for (int x = -1; x <= 1; x++) {
+            for (int z = -1; z <= 1; z++) {
+                long chunk = ChunkPos.asLong(chunkPos.x + x, chunkPos.z + z);
+                blockValidity.invalidate(chunk);
+                lootrunBuffers.invalidate(chunk);
+                recordingBuffers.invalidate(chunk);
+            }
+        }
     }
 
-    private void renderLootrun(PoseStack poseStack, LootrunInstance lootrun, int color) {
+    private void renderLootrun(PoseStack poseStack, LootrunInstance lootrun, LootrunPathBuffers buffers, int color) {
         if (lootrun == null) {
             return;
         }
@@ -105,33 +140,32 @@ public final class LootrunModel extends Model {
         poseStack.translate(-camera.getPosition().x, -camera.getPosition().y, -camera.getPosition().z);
 
         MultiBufferSource.BufferSource source = McUtils.mc().renderBuffers().bufferSource();
-        var points = lootrun.points();
         int renderDistance = McUtils.options().renderDistance().get();
         BlockPos pos = camera.getBlockPosition();
         ChunkPos origin = new ChunkPos(pos);
 
+        LongList chunks = new LongArrayList();
         for (int i = 0; i <= renderDistance; i++) {
             for (int j = 0; j <= renderDistance; j++) {
                 int x = j + origin.x - (renderDistance / 2);
                 int z = i + origin.z - (renderDistance / 2);
-                ChunkPos chunk = new ChunkPos(x, z);
-                if (!level.hasChunk(chunk.x, chunk.z)) {
-                    continue;
+                if (level.hasChunk(x, z)) {
+                    chunks.add(ChunkPos.asLong(x, z));
                 }
+            }
+        }
 
-                long chunkLong = chunk.toLong();
+        buffers.draw(poseStack, lootrun, level, chunks);
 
-                if (points.containsKey(chunkLong)) {
-                    renderPoints(poseStack, source, points, chunkLong);
-                }
+        for (int i = 0; i < chunks.size(); i++) {
+            long chunkLong = chunks.getLong(i);
 
-                if (lootrun.chests().containsKey(chunkLong)) {
-                    renderChests(poseStack, lootrun, color, source, chunkLong);
-                }
+            if (lootrun.chests().containsKey(chunkLong)) {
+                renderChests(poseStack, lootrun, color, source, chunkLong);
+            }
 
-                if (LootrunFeature.INSTANCE.showNotes && lootrun.notes().containsKey(chunkLong)) {
-                    renderNotes(poseStack, lootrun, color, source, chunkLong);
-                }
+            if (LootrunFeature.INSTANCE.showNotes && lootrun.notes().containsKey(chunkLong)) {
+                renderNotes(poseStack, lootrun, color, source, chunkLong);
             }
         }
 
@@ -182,118 +216,6 @@ public final class LootrunModel extends Model {
         source.endBatch();
     }
 
-    private void renderPoints(
-            PoseStack poseStack,
-            MultiBufferSource.BufferSource source,
-            Long2ObjectMap<List<ColoredPath>> points,
-            long chunkLong) {
-        List<ColoredPath> locations = points.get(chunkLong);
-
-        Level level = McUtils.mc().level;
-        if (level == null) return;
-
-        renderNonTexturedLootrunPoints(poseStack, source, locations, level, CustomRenderType.LOOTRUN_LINE);
-    }
-
-    private void renderNonTexturedLootrunPoints(
-            PoseStack poseStack,
-            MultiBufferSource.BufferSource source,
-            List<ColoredPath> locations,
-            Level level,
-            RenderType renderType) {
-        for (ColoredPath locationsInRoute : locations) {
-            VertexConsumer consumer = source.getBuffer(renderType);
-            Matrix4f lastMatrix = poseStack.last().pose();
-            boolean sourceBatchEnded = false;
-
-            ColoredPath toRender = new ColoredPath(new ArrayList<>());
-
-            boolean pauseDraw = false;
-            BlockPos lastBlockPos = null;
-
-            for (ColoredPoint point : locationsInRoute.points()) {
-                BlockPos blockPos = new BlockPos(point.vec3());
-
-                if (blockPos.equals(lastBlockPos)) { // Do not recalculate block validness
-                    if (!toRender.points().isEmpty()) {
-                        toRender.points().add(point);
-                    }
-                } else {
-                    BlockValidness blockValidness = checkBlockValidness(level, point);
-
-                    if (blockValidness == BlockValidness.VALID) {
-                        pauseDraw = false;
-                        if (sourceBatchEnded) {
-                            consumer = source.getBuffer(renderType);
-                            sourceBatchEnded = false;
-                        }
-                        renderQueuedPoints(consumer, lastMatrix, toRender);
-                        toRender.points().clear();
-                    } else if (blockValidness == BlockValidness.HAS_BARRIER) {
-                        pauseDraw = true;
-                        toRender.points().clear();
-                    } else {
-                        pauseDraw = false;
-                        toRender.points().add(point);
-                        continue;
-                    }
-                }
-
-                lastBlockPos = blockPos;
-
-                if (!pauseDraw) {
-                    renderPoint(consumer, lastMatrix, point);
-                } else if (!sourceBatchEnded) {
-                    source.endBatch();
-                    sourceBatchEnded = true;
-                }
-            }
-            if (!sourceBatchEnded) {
-                renderQueuedPoints(consumer, lastMatrix, toRender);
-                source.endBatch();
-            }
-        }
-    }
-
-    private void renderQueuedPoints(VertexConsumer consumer, Matrix4f lastMatrix, ColoredPath toRender) {
-        for (ColoredPoint location : toRender.points()) {
-            renderPoint(consumer, lastMatrix, location);
-        }
-    }
-
-    private void renderPoint(VertexConsumer consumer, Matrix4f lastMatrix, ColoredPoint location) {
-        Vec3 rawLocation = location.vec3();
-        int pathColor = location.color();
-        consumer.vertex(lastMatrix, (float) rawLocation.x, (float) rawLocation.y, (float) rawLocation.z)
-                .color(pathColor)
-                .normal(0, 0, 1)
-                .endVertex();
-    }
-
-    private BlockValidness checkBlockValidness(Level level, ColoredPoint point) {
-        BlockValidness state = BlockValidness.INVALID;
-        Iterable<BlockPos> blocks = getBlocksForPoint(point);
-
-        for (BlockPos blockInArea : blocks) {
-            BlockState blockStateInArea = level.getBlockState(blockInArea);
-            if (blockStateInArea.is(Blocks.BARRIER)) {
-                state = BlockValidness.HAS_BARRIER;
-            } else if (blockStateInArea.getCollisionShape(level, blockInArea) != null) {
-                state = BlockValidness.VALID;
-                return state;
-            }
-        }
-
-        return state;
-    }
-
-    private Iterable<BlockPos> getBlocksForPoint(ColoredPoint loc) {
-        BlockPos minPos = new BlockPos(loc.vec3().x - 0.3D, loc.vec3().y - 1D, loc.vec3().z - 0.3D);
-        BlockPos maxPos = new BlockPos(loc.vec3().x + 0.3D, loc.vec3().y - 1D, loc.vec3().z + 0.3D);
-
-        return BlockPos.betweenClosed(minPos, maxPos);
-    }
-
     public int addNote(Component text) {
         Entity root = McUtils.player().getRootVehicle();
 
@@ -321,7 +243,8 @@ public final class LootrunModel extends Model {
         if (recording != null) {
             recordingInformation.setDirty(true);
         } else if (uncompiled != null) {
-            lootrun = compile(uncompiled, false);
+            // The current path stays visible until the new one is compiled
+            compileLootrun(uncompiled);
             if (saveToFile && uncompiled.file() != null) {
                 LootrunSaveResult lootrunSaveResult =
                         trySaveCurrentLootrun(uncompiled.file().getName().replace(".json", ""));
@@ -343,8 +266,63 @@ public final class LootrunModel extends Model {
         return 1;
     }
 
-    private LootrunInstance compile(LootrunUncompiled uncompiled, boolean recording) {
-        Long2ObjectMap<List<ColoredPath>> points = generatePointsByChunk(uncompiled.path(), recording);
+    private void compileLootrun(LootrunUncompiled toCompile) {
+        int generation = ++compileGeneration;
+        LootrunUncompiled snapshot = toCompile.snapshot();
+        LootrunCompiler.PathStyle style = getPathStyle(false);
+
+        CompletableFuture.supplyAsync(() -> compile(snapshot, false, style), Util.backgroundExecutor())
+                .thenAcceptAsync(
+                        compiled -> {
+                            // Dropped if another lootrun was loaded, or this one recompiled, in the meantime
+                            if (generation == compileGeneration) {
+                                setLootrun(compiled);
+                            }
+                        },
+                        McUtils.mc())
+                .exceptionally(e -> {
+                    WynntilsMod.error("Error when trying to compile lootrun " + getLootrunName(snapshot, false), e);
+                    return null;
+                });
+    }
+
+    private void compileRecording() {
+        LootrunUncompiled currentRecording = recording;
+        RecordingInformation information = recordingInformation;
+        LootrunUncompiled snapshot = currentRecording.snapshot();
+        LootrunCompiler.PathStyle style = getPathStyle(true);
+
+        information.setCompiling(true);
+        CompletableFuture.supplyAsync(() -> compile(snapshot, true, style), Util.backgroundExecutor())
+                .whenCompleteAsync(
+                        (compiled, e) -> {
+                            information.setCompiling(false);
+                            if (e != null) {
+                                WynntilsMod.error("Error when trying to compile the lootrun recording", e);
+                                return;
+                            }
+
+                            if (recording == currentRecording) {
+                                setRecordingCompiled(compiled);
+                            }
+                        },
+                        McUtils.mc());
+    }
+
+    // Read on the main thread, so compiling doesn't touch the config
+    private LootrunCompiler.PathStyle getPathStyle(boolean recording) {
+        if (recording) {
+            return new LootrunCompiler.PathStyle(false, 0, LootrunFeature.INSTANCE.recordingPathColor.asInt());
+        }
+
+        return new LootrunCompiler.PathStyle(
+                LootrunFeature.INSTANCE.rainbowLootRun,
+                LootrunFeature.INSTANCE.cycleDistance,
+                LootrunFeature.INSTANCE.activePathColor.asInt());
+    }
+
+    private LootrunInstance compile(LootrunUncompiled uncompiled, boolean recording, LootrunCompiler.PathStyle style) {
+        Long2ObjectMap<List<ColoredPath>> points = LootrunCompiler.compile(uncompiled.path().points(), style);
         Long2ObjectMap<Set<BlockPos>> chests = getChests(uncompiled.chests());
         Long2ObjectMap<List<Note>> notes = getNotes(uncompiled.notes());
 
@@ -359,142 +337,6 @@ public final class LootrunModel extends Model {
         return uncompiled.file().getName().replace(".json", "");
     }
 
-    private List<Path> sample(Path raw, float sampleRate) {
-        List<Path> vec3s = new ArrayList<>();
-        Path currentVec3s = new Path(new ArrayList<>());
-        vec3s.add(currentVec3s);
-        for (Vec3 element : raw.points()) {
-            if (!currentVec3s.points().isEmpty()
-                    && currentVec3s
-                                    .points()
-                                    .get(currentVec3s.points().size() - 1)
-                                    .distanceTo(element)
-                            >= 32) {
-                currentVec3s = new Path(new ArrayList<>());
-                vec3s.add(currentVec3s);
-            }
-            currentVec3s.points().add(element);
-        }
-
-        List<Path> result = new ArrayList<>();
-        for (Path current : vec3s) {
-            float distance = 0f;
-            CubicSpline.Builder<Float, ToFloatFunction<Float>> builderX = CubicSpline.builder(ToFloatFunction.IDENTITY);
-            CubicSpline.Builder<Float, ToFloatFunction<Float>> builderY = CubicSpline.builder(ToFloatFunction.IDENTITY);
-            CubicSpline.Builder<Float, ToFloatFunction<Float>> builderZ = CubicSpline.builder(ToFloatFunction.IDENTITY);
-            for (int i = 0; i < current.points().size(); i++) {
-                Vec3 vec3 = current.points().get(i);
-                if (i > 0) {
-                    distance += current.points().get(i - 1).distanceTo(vec3);
-                }
-
-                float slopeX = 0f;
-                float slopeY = 0f;
-                float slopeZ = 0f;
-                if (i < current.points().size() - 1) {
-                    Vec3 next = current.points().get(i + 1);
-                    slopeX = (float) ((next.x - vec3.x) / vec3.distanceTo(next));
-                    slopeY = (float) ((next.y - vec3.y) / vec3.distanceTo(next));
-                    slopeZ = (float) ((next.z - vec3.z) / vec3.distanceTo(next));
-                }
-                builderX.addPoint(distance, (float) vec3.x, slopeX);
-                builderY.addPoint(distance, (float) vec3.y, slopeY);
-                builderZ.addPoint(distance, (float) vec3.z, slopeZ);
-            }
-            CubicSpline<Float, ToFloatFunction<Float>> splineX = builderX.build();
-            CubicSpline<Float, ToFloatFunction<Float>> splineY = builderY.build();
-            CubicSpline<Float, ToFloatFunction<Float>> splineZ = builderZ.build();
-
-            Path newResult = new Path(new ArrayList<>());
-            for (float i = 0f; i < distance; i += (1f / sampleRate)) {
-                newResult.points().add(new Vec3(splineX.apply(i), splineY.apply(i), splineZ.apply(i)));
-            }
-            result.add(newResult);
-        }
-        return result;
-    }
-
-    private Long2ObjectMap<List<ColoredPath>> generatePointsByChunk(Path raw, boolean recording) {
-        float sampleRate = 10f;
-
-        List<List<Vec3>> sampled =
-                sample(raw, sampleRate).stream().map(Path::points).toList();
-        List<Vec3> vec3s = sampled.stream().flatMap(List::stream).toList();
-
-        ColoredPath locationsList = new ColoredPath(new ArrayList<>());
-
-        Iterator<Integer> colorIterator = COLORS.iterator();
-        Integer nextColor = colorIterator.next();
-        Integer currentColor = nextColor;
-
-        float differenceRed = 0;
-        float differenceGreen = 0;
-        float differenceBlue = 0;
-
-        for (int i = 0; i < vec3s.size(); i++) {
-            Vec3 location = vec3s.get(i);
-
-            if (LootrunFeature.INSTANCE.rainbowLootRun && !recording) {
-                int cycleDistance = LootrunFeature.INSTANCE.cycleDistance;
-                int cycle = 10 * cycleDistance;
-                int parts = i % cycle;
-                float done = (float) parts / (float) cycle;
-
-                int usedColor;
-                if (parts == 0) {
-                    currentColor = nextColor;
-                    if (!colorIterator.hasNext()) {
-                        colorIterator = COLORS.iterator();
-                    }
-                    nextColor = colorIterator.next();
-                    differenceRed = (float) (FastColor.ARGB32.red(nextColor) - FastColor.ARGB32.red(currentColor));
-                    differenceGreen =
-                            (float) (FastColor.ARGB32.green(nextColor) - FastColor.ARGB32.green(currentColor));
-                    differenceBlue = (float) (FastColor.ARGB32.blue(nextColor) - FastColor.ARGB32.blue(currentColor));
-                    usedColor = currentColor;
-                } else {
-                    usedColor = currentColor;
-                    usedColor += (0x010000) * (int) (differenceRed * done);
-                    usedColor += (0x000100) * (int) (differenceGreen * done);
-                    usedColor += (int) (differenceBlue * done);
-                }
-
-                locationsList.points().add(new ColoredPoint(location, usedColor | 0xff000000));
-            } else {
-                locationsList
-                        .points()
-                        .add(new ColoredPoint(
-                                location,
-                                recording
-                                        ? LootrunFeature.INSTANCE.recordingPathColor.asInt()
-                                        : LootrunFeature.INSTANCE.activePathColor.asInt()));
-            }
-        }
-
-        ColoredPath lastLocationList = null;
-        Long2ObjectMap<List<ColoredPath>> sampleByChunk = new Long2ObjectOpenHashMap<>();
-        ChunkPos lastChunkPos = null;
-        for (int i = 0; i < locationsList.points().size(); i++) {
-            Vec3 location = locationsList.points().get(i).vec3();
-            ChunkPos currentChunkPos = new ChunkPos(Mth.fastFloor(location.x()) >> 4, Mth.fastFloor(location.z()) >> 4);
-            if (!currentChunkPos.equals(lastChunkPos)) {
-                if (lastChunkPos != null
-                        && location.distanceTo(locationsList.points().get(i - 1).vec3()) < 32) {
-                    lastLocationList.points().add(locationsList.points().get(i));
-                }
-
-                lastChunkPos = currentChunkPos;
-                sampleByChunk.putIfAbsent(ChunkPos.asLong(currentChunkPos.x, currentChunkPos.z), new ArrayList<>());
-                lastLocationList = new ColoredPath(new ArrayList<>());
-                sampleByChunk
-                        .get(ChunkPos.asLong(currentChunkPos.x, currentChunkPos.z))
-                        .add(lastLocationList);
-            }
-            lastLocationList.points().add(locationsList.points().get(i));
-        }
-        return sampleByChunk;
-    }
-
     private Long2ObjectMap<Set<BlockPos>> getChests(Set<BlockPos> chests) {
         Long2ObjectMap<Set<BlockPos>> result = new Long2ObjectOpenHashMap<>();
         for (BlockPos pos : chests) {
@@ -565,20 +407,39 @@ public final class LootrunModel extends Model {
     public void clearCurrentLootrun() {
         LootrunFeature.INSTANCE.disable();
         state = LootrunState.DISABLED;
-        lootrun = null;
+        compileGeneration++;
+        setLootrun(null);
         uncompiled = null;
         recording = null;
-        recordingCompiled = null;
+        setRecordingCompiled(null);
         recordingInformation = null;
+        blockValidity.clear();
+    }
+
+    // The buffers of a compiled lootrun are freed as soon as it is replaced, as it might never be drawn again
+    private void setLootrun(LootrunInstance lootrun) {
+        if (lootrun != this.lootrun) {
+            lootrunBuffers.close();
+        }
+        this.lootrun = lootrun;
+    }
+
+    private void setRecordingCompiled(LootrunInstance recordingCompiled) {
+        if (recordingCompiled != this.recordingCompiled) {
+            recordingBuffers.close();
+        }
+        this.recordingCompiled = recordingCompiled;
     }
 
     public void stopRecording() {
         // At this point, we already have LootrunFeature registered to the event bus
         state = LootrunState.LOADED;
-        lootrun = compile(recording, false);
+        // Keep showing the recorded path until the lootrun is compiled
+        setLootrun(recordingCompiled);
+        compileLootrun(recording);
         uncompiled = recording;
         recording = null;
-        recordingCompiled = null;
+        setRecordingCompiled(null);
         recordingInformation = null;
     }
 
@@ -589,50 +450,93 @@ public final class LootrunModel extends Model {
         LootrunFeature.INSTANCE.enable();
     }
 
-    public List<LootrunInstance> getLootruns() {
-        return LOOTRUN_INSTANCE_CACHE;
+    public List<LootrunHeader> getLootruns() {
+        return LOOTRUN_HEADER_CACHE;
     }
 
     public void refreshLootrunCache() {
-        List<LootrunInstance> lootruns = new ArrayList<>();
+        List<LootrunHeader> lootruns = new ArrayList<>();
+        Set<String> cacheFileNames = new HashSet<>();
 
         File[] files = LOOTRUNS.listFiles();
         for (File file : files != null ? files : new File[0]) {
-            if (file.getName().endsWith(".json")) {
-                try {
-                    FileReader reader = new FileReader(file, StandardCharsets.UTF_8);
-                    JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
-                    LootrunUncompiled uncompiled = readJson(file, json);
-                    lootruns.add(compile(uncompiled, false));
-                } catch (Exception e) {
-                    WynntilsMod.warn("Could not parse lootrun file.", e);
-                }
+            if (!file.getName().endsWith(".json")) continue;
+
+            String name = file.getName().replace(".json", "");
+            File cacheFile = getCacheFile(name);
+            cacheFileNames.add(cacheFile.getName());
+
+            // Only the header of up-to-date binary files is read, the rest is loaded on demand
+            LootrunHeader header = LootrunFileFormat.readHeader(cacheFile, file);
+            if (header == null) {
+                LootrunUncompiled uncompiled = readJsonFile(file);
+                if (uncompiled == null) continue;
+
+                header = writeCacheFile(name, uncompiled);
+            }
+
+            lootruns.add(header);
+        }
+
+        // Remove binary files of lootruns that have been deleted or renamed
+        File[] cacheFiles = LOOTRUN_CACHE.listFiles();
+        for (File cacheFile : cacheFiles != null ? cacheFiles : new File[0]) {
+            if (!cacheFileNames.contains(cacheFile.getName())) {
+                cacheFile.delete();
             }
         }
 
-        LOOTRUN_INSTANCE_CACHE = lootruns;
+        LOOTRUN_HEADER_CACHE = lootruns;
         WynntilsMod.postEvent(new LootrunCacheRefreshEvent());
     }
 
     public boolean tryLoadFile(String fileName) {
         String lootrunFileName = fileName + ".json";
         File lootrunFile = new File(LOOTRUNS, lootrunFileName);
-        if (lootrunFile.exists()) {
-            try {
-                FileReader file = new FileReader(lootrunFile, StandardCharsets.UTF_8);
-                JsonObject json = JsonParser.parseReader(file).getAsJsonObject();
-                uncompiled = readJson(lootrunFile, json);
-                lootrun = compile(uncompiled, false);
-                state = LootrunState.LOADED;
-                LootrunFeature.INSTANCE.enable();
-                file.close();
-                return true;
-            } catch (Exception e) {
-                WynntilsMod.error("Error when trying to load lootrun file.", e);
-                return false;
-            }
+        if (!lootrunFile.exists()) return false;
+
+        LootrunUncompiled loaded = LootrunFileFormat.read(getCacheFile(fileName), lootrunFile);
+        if (loaded == null) {
+            loaded = readJsonFile(lootrunFile);
+            if (loaded == null) return false;
+
+            writeCacheFile(fileName, loaded);
+        }
+
+        uncompiled = loaded;
+        setLootrun(null);
+        state = LootrunState.LOADED;
+        LootrunFeature.INSTANCE.enable();
+
+        // Compiling long lootruns takes a while, so don't hold up the caller; the path shows up once it's done
+        compileLootrun(loaded);
+
+        return true;
+    }
+
+    private LootrunUncompiled readJsonFile(File file) {
+        try (FileReader reader = new FileReader(file, StandardCharsets.UTF_8)) {
+            JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+            return readJson(file, json);
+        } catch (Exception e) {
+            WynntilsMod.warn("Could not parse lootrun file " + file.getName(), e);
+            return null;
+        }
+    }
+
+    private static File getCacheFile(String name) {
+        return new File(LOOTRUN_CACHE, name + LOOTRUN_CACHE_EXTENSION);
+    }
+
+    private static LootrunHeader writeCacheFile(String name, LootrunUncompiled lootrun) {
+        LootrunHeader header = LootrunFileFormat.createHeader(name, lootrun);
+        try {
+            LootrunFileFormat.write(getCacheFile(name), lootrun.file(), header, lootrun);
+        } catch (IOException e) {
+            // Not fatal, the JSON file will just be parsed again next time
+            WynntilsMod.warn("Could not write binary lootrun file for " + name, e);
         }
-        return false;
+        return header;
     }
 
     public LootrunUndoResult tryUndo() {
@@ -740,8 +644,9 @@ public final class LootrunModel extends Model {
                 recordingInformation.setDirty(true);
             }
 
-            if (recordingInformation.isDirty()) {
-                recordingCompiled = compile(recording, true);
+            // Only one compilation at a time, changes made in the meantime are picked up by the next one
+            if (recordingInformation.isDirty() && !recordingInformation.isCompiling()) {
+                compileRecording();
                 recordingInformation.setDirty(false);
             }
         }
@@ -800,12 +705,11 @@ public final class LootrunModel extends Model {
             Long2ObjectMap<Set<BlockPos>> chests,
             Long2ObjectMap<List<Note>> notes) {}
 
-    private record ColoredPoint(Vec3 vec3, int color) {}
-
     private static class RecordingInformation {
         private Vec3 lastLocation;
         private BlockPos lastChest;
         private boolean dirty;
+        private boolean compiling;
 
         protected Vec3 getLastLocation() {
             return lastLocation;
@@ -830,14 +734,28 @@ public final class LootrunModel extends Model {
         protected void setDirty(boolean dirty) {
             this.dirty = dirty;
         }
+
+        protected boolean isCompiling() {
+            return compiling;
+        }
+
+        protected void setCompiling(boolean compiling) {
+            this.compiling = compiling;
+        }
     }
 
-    private record LootrunUncompiled(Path path, Set<BlockPos> chests, List<Note> notes, File file) {
+    record LootrunUncompiled(Path path, Set<BlockPos> chests, List<Note> notes, File file) {
 
         private LootrunUncompiled(LootrunUncompiled old, File file) {
             this(old.path, old.chests, old.notes, file);
         }
 
+        // A copy that can be compiled on another thread while this one is still being changed
+        private LootrunUncompiled snapshot() {
+            return new LootrunUncompiled(
+                    new Path(new ArrayList<>(path.points())), new HashSet<>(chests), new ArrayList<>(notes), file);
+        }
+
         private LootrunSaveResult saveLootrun(String name) {
             try {
                 File file = new File(LOOTRUNS, name + ".json");
@@ -890,9 +808,11 @@ public final class LootrunModel extends Model {
                         "date",
                         DateFormat.getDateTimeInstance(DateFormat.DEFAULT, DateFormat.DEFAULT, Locale.US)
                                 .format(new Date()));
-                FileWriter writer = new FileWriter(file, StandardCharsets.UTF_8);
-                WynntilsMod.GSON.toJson(json, writer);
-                writer.close();
+                try (FileWriter writer = new FileWriter(file, StandardCharsets.UTF_8)) {
+                    WynntilsMod.GSON.toJson(json, writer);
+                }
+
+                writeCacheFile(name, uncompiled);
                 return LootrunSaveResult.SAVED;
             } catch (IOException ex) {
                 return LootrunSaveResult.ERROR_SAVING;
@@ -902,7 +822,27 @@ public final class LootrunModel extends Model {
 
     public record Note(Vec3 position, Component component) {}
 
-    public record ColoredPath(List<ColoredPoint> points) {}
+    /**
+     * A part of a compiled lootrun path within a single chunk, as vertex data.
+     * Positions are stored as consecutive x, y, z triples, with a color for each point.
+     */
+    public record ColoredPath(float[] positions, int[] colors) {
+        public int size() {
+            return colors.length;
+        }
+
+        public float getX(int point) {
+            return positions[point * 3];
+        }
+
+        public float getY(int point) {
+            return positions[point * 3 + 1];
+        }
+
+        public float getZ(int point) {
+            return positions[point * 3 + 2];
+        }
+    }
 
     public record Path(List<Vec3> points) {}
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.wynn.model.lootrun;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.DefaultVertexFormat;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexBuffer;
+import com.mojang.blaze3d.vertex.VertexFormat;
+import com.wynntils.gui.render.CustomRenderType;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongList;
+import java.util.List;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+import org.joml.Matrix4f;
+
+/**
+ * The path of a compiled lootrun, uploaded to the GPU as one vertex buffer per chunk.
+ *
+ * Which parts of the path are drawn depends on the blocks under it, so a chunk's buffer is rebuilt when the blocks in
+ * or next to it change. Otherwise drawing a chunk is a single draw call. Must only be used on the render thread.
+ */
+final class LootrunPathBuffers {
+    private final BlockValidityCache blockValidity;
+    private final BufferBuilder builder = new BufferBuilder(256);
+
+    // Chunks without anything to draw are kept as null, so they are not rebuilt every frame
+    private final Long2ObjectMap<VertexBuffer> buffers = new Long2ObjectOpenHashMap<>();
+    private LootrunModel.LootrunInstance lootrun = null;
+    private Level level = null;
+
+    LootrunPathBuffers(BlockValidityCache blockValidity) {
+        this.blockValidity = blockValidity;
+    }
+
+    void draw(PoseStack poseStack, LootrunModel.LootrunInstance lootrun, Level level, LongList chunks) {
+        if (lootrun != this.lootrun || level != this.level) {
+            close();
+            this.lootrun = lootrun;
+            this.level = level;
+        }
+
+        RenderType renderType = CustomRenderType.LOOTRUN_LINE;
+        Matrix4f pose = poseStack.last().pose();
+        boolean renderStateSet = false;
+
+        for (int i = 0; i < chunks.size(); i++) {
+            VertexBuffer buffer = getBuffer(chunks.getLong(i));
+            if (buffer == null) continue;
+
+            if (!renderStateSet) {
+                renderType.setupRenderState();
+                renderStateSet = true;
+            }
+
+            buffer.bind();
+            buffer.drawWithShader(pose, RenderSystem.getProjectionMatrix(), RenderSystem.getShader());
+        }
+
+        if (renderStateSet) {
+            VertexBuffer.unbind();
+            renderType.clearRenderState();
+        }
+    }
+
+    void invalidate(long chunk) {
+        VertexBuffer buffer = buffers.remove(chunk);
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+
+    void close() {
+        for (VertexBuffer buffer : buffers.values()) {
+            if (buffer != null) {
+                buffer.close();
+            }
+        }
+
+        buffers.clear();
+        lootrun = null;
+        level = null;
+    }
+
+    private VertexBuffer getBuffer(long chunk) {
+        if (buffers.containsKey(chunk)) return buffers.get(chunk);
+
+        List<LootrunModel.ColoredPath> paths = lootrun.points().get(chunk);
+        VertexBuffer buffer = paths != null ? build(paths) : null;
+        buffers.put(chunk, buffer);
+        return buffer;
+    }
+
+    private VertexBuffer build(List<LootrunModel.ColoredPath> paths) {
+        // Lines instead of a line strip, so the separate parts of the path can share a buffer
+        builder.begin(VertexFormat.Mode.LINES, DefaultVertexFormat.POSITION_COLOR_NORMAL);
+
+        LineWriter writer = new LineWriter(builder);
+        for (LootrunModel.ColoredPath path : paths) {
+            writePath(writer, path);
+        }
+
+        BufferBuilder.RenderedBuffer renderedBuffer = builder.end();
+        if (writer.lines == 0) {
+            renderedBuffer.release();
+            return null;
+        }
+
+        VertexBuffer buffer = new VertexBuffer();
+        buffer.bind();
+        buffer.upload(renderedBuffer);
+        VertexBuffer.unbind();
+        return buffer;
+    }
+
+    // Points over invalid blocks are only drawn once the path reaches valid ground again,
+    // and barriers stop the path until then
+    private void writePath(LineWriter writer, LootrunModel.ColoredPath path) {
+        writer.startStrip(path);
+
+        IntList toRender = new IntArrayList();
+        boolean pauseDraw = false;
+        BlockPos lastBlockPos = null;
+
+        for (int point = 0; point < path.size(); point++) {
+            BlockPos blockPos = new BlockPos(path.getX(point), path.getY(point), path.getZ(point));
+
+            if (blockPos.equals(lastBlockPos)) { // Do not recalculate block validness
+                if (!toRender.isEmpty()) {
+                    toRender.add(point);
+                }
+            } else {
+                LootrunModel.BlockValidness blockValidness =
+                        blockValidity.get(level, blockPos, path.getX(point), path.getY(point), path.getZ(point));
+
+                if (blockValidness == LootrunModel.BlockValidness.VALID) {
+                    pauseDraw = false;
+                    if (!writer.isInStrip()) {
+                        writer.startStrip(path);
+                    }
+                    writer.addAll(toRender);
+                    toRender.clear();
+                } else if (blockValidness == LootrunModel.BlockValidness.HAS_BARRIER) {
+                    pauseDraw = true;
+                    toRender.clear();
+                } else {
+                    pauseDraw = false;
+                    toRender.add(point);
+                    continue;
+                }
+            }
+
+            lastBlockPos = blockPos;
+
+            if (!pauseDraw) {
+                writer.add(point);
+            } else {
+                writer.endStrip();
+            }
+        }
+
+        writer.addAll(toRender);
+        writer.endStrip();
+    }
+
+    // Writes consecutive points of a strip as separate lines
+    private static final class LineWriter {
+        private final BufferBuilder builder;
+        private LootrunModel.ColoredPath path = null;
+        private int lastPoint = -1;
+        private int lines = 0;
+
+        private LineWriter(BufferBuilder builder) {
+            this.builder = builder;
+        }
+
+        private void startStrip(LootrunModel.ColoredPath path) {
+            this.path = path;
+            lastPoint = -1;
+        }
+
+        private boolean isInStrip() {
+            return path != null;
+        }
+
+        private void endStrip() {
+            path = null;
+        }
+
+        private void addAll(IntList points) {
+            for (int i = 0; i < points.size(); i++) {
+                add(points.getInt(i));
+            }
+        }
+
+        private void add(int point) {
+            if (path == null) return;
+
+            if (lastPoint >= 0) {
+                addVertex(lastPoint);
+                addVertex(point);
+                lines++;
+            }
+
+            lastPoint = point;
+        }
+
+        private void addVertex(int point) {
+            builder.vertex(path.getX(point), path.getY(point), path.getZ(point))
+                    .color(path.colors()[point])
+                    .normal(0, 0, 1)
+                    .endVertex();
+        }
+    }
+}
@@ -5,7 +5,6 @@
 package com.wynntils.wynn.model.map;
 
 import com.google.common.reflect.TypeToken;
-import com.mojang.blaze3d.platform.NativeImage;
 import com.wynntils.core.WynntilsMod;
 import com.wynntils.core.components.Managers;
 import com.wynntils.core.components.Model;
@@ -16,10 +15,11 @@ import com.wynntils.wynn.model.map.poi.CombatKind;
 import com.wynntils.wynn.model.map.poi.CombatPoi;
 import com.wynntils.wynn.model.map.poi.Label;
 import com.wynntils.wynn.model.map.poi.LabelPoi;
+import com.wynntils.wynn.model.map.poi.Poi;
+import com.wynntils.wynn.model.map.poi.PoiIndex;
 import com.wynntils.wynn.model.map.poi.PoiLocation;
 import com.wynntils.wynn.model.map.poi.ServiceKind;
 import com.wynntils.wynn.model.map.poi.ServicePoi;
-import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.util.HashSet;
@@ -28,10 +28,16 @@ import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 public final class MapModel extends Model {
+    private final MapTileManager tileManager = new MapTileManager();
     private final List<MapTexture> maps = new CopyOnWriteArrayList<>();
-    private final Set<LabelPoi> labelPois = new HashSet<>();
-    private final Set<ServicePoi> servicePois = new HashSet<>();
-    private final Set<CombatPoi> combatPois = new HashSet<>();
+    // Replaced as a whole when a file is loaded again, so nothing downloaded before is left behind
+    private volatile Set<LabelPoi> labelPois = Set.of();
+    private volatile Set<ServicePoi> servicePois = Set.of();
+    private volatile Set<CombatPoi> combatPois = Set.of();
+
+    // Spatial indices over the static POIs above, used to cull what is rendered on the maps
+    private volatile PoiIndex<Poi> iconPoiIndex = new PoiIndex<>();
+    private volatile PoiIndex<LabelPoi> labelPoiIndex = new PoiIndex<>();
 
     @Override
     public void init() {
@@ -61,12 +67,31 @@ public final class MapModel extends Model {
         return combatPois;
     }
 
-    public List<MapTexture> getMapsForBoundingBox(BoundingBox box) {
-        return maps.stream().filter(map -> box.intersects(map.getBox())).toList();
+    /**
+     * Returns the static service and combat POIs, and optionally the labels, that may be visible in the given area.
+     * The returned list is mutable, so callers can add their dynamic POIs before sorting it.
+     */
+    public List<Poi> getPoisInArea(BoundingBox area, float mapZoom, float scale, boolean includeLabels) {
+        List<Poi> pois = iconPoiIndex.query(area, mapZoom, scale);
+        if (includeLabels) {
+            pois.addAll(labelPoiIndex.query(area, mapZoom, scale));
+        }
+        return pois;
+    }
+
+    /**
+     * Returns the map parts intersecting the given area, at the resolution best suited for the given zoom.
+     */
+    public List<MapTexture> getMapsForBoundingBox(BoundingBox box, float zoom) {
+        return maps.stream()
+                .filter(map -> box.intersects(map.getBox()))
+                .map(map -> map.forZoom(zoom))
+                .toList();
     }
 
     private void loadMaps() {
         maps.clear();
+        tileManager.releaseAll();
 
         Download dl = Managers.Net.download(UrlId.DATA_STATIC_MAPS);
         dl.handleReader(reader -> {
@@ -75,19 +100,19 @@ public final class MapModel extends Model {
             List<MapPartProfile> mapPartList = WynntilsMod.GSON.fromJson(reader, type);
             for (MapPartProfile mapPart : mapPartList) {
                 String fileName = mapPart.md5 + ".png";
+                String localFileName = "maps/" + fileName;
 
-                Download dlPart = Managers.Net.download(URI.create(mapPart.url), "maps/" + fileName, mapPart.md5);
+                // Only make sure the map part is in the cache here; it is decoded once it comes into view
+                Download dlPart = Managers.Net.download(URI.create(mapPart.url), localFileName, mapPart.md5);
                 dlPart.handleInputStream(
-                        inputStream -> {
-                            try {
-                                NativeImage nativeImage = NativeImage.read(inputStream);
-                                MapTexture mapPartImage = new MapTexture(
-                                        fileName, nativeImage, mapPart.x1, mapPart.z1, mapPart.x2, mapPart.z2);
-                                maps.add(mapPartImage);
-                            } catch (IOException e) {
-                                WynntilsMod.warn("IOException occurred while loading map image of " + mapPart.name, e);
-                            }
-                        },
+                        inputStream -> maps.add(new MapTexture(
+                                tileManager,
+                                fileName,
+                                Managers.Net.getCacheFile(localFileName),
+                                mapPart.x1,
+                                mapPart.z1,
+                                mapPart.x2,
+                                mapPart.z2)),
                         onError -> WynntilsMod.warn(
                                 "Error occurred while download map image of " + mapPart.name, onError));
             }
@@ -95,53 +120,83 @@ public final class MapModel extends Model {
     }
 
     private void loadPlaces() {
-        Download dl = Managers.Net.download(UrlId.DATA_STATIC_PLACES);
+        Download dl = Managers.Net.download(UrlId.DATA_STATIC_PLACES).revalidateInBackground();
         dl.handleReader(reader -> {
             PlacesProfile places = WynntilsMod.GSON.fromJson(reader, PlacesProfile.class);
+            Set<LabelPoi> newLabelPois = new HashSet<>();
+            PoiIndex<LabelPoi> newLabelPoiIndex = new PoiIndex<>();
             for (Label label : places.labels) {
-                labelPois.add(new LabelPoi(label));
+                LabelPoi labelPoi = new LabelPoi(label);
+                if (newLabelPois.add(labelPoi)) {
+                    newLabelPoiIndex.add(labelPoi);
+                }
+            }
+
+            synchronized (this) {
+                labelPois = newLabelPois;
+                labelPoiIndex = newLabelPoiIndex;
             }
         });
     }
 
     private void loadServices() {
-        Download dl = Managers.Net.download(UrlId.DATA_STATIC_SERVICES);
+        Download dl = Managers.Net.download(UrlId.DATA_STATIC_SERVICES).revalidateInBackground();
         dl.handleReader(reader -> {
             Type type = new TypeToken<List<ServiceProfile>>() {}.getType();
 
             List<ServiceProfile> serviceList = WynntilsMod.GSON.fromJson(reader, type);
+            Set<ServicePoi> newServicePois = new HashSet<>();
             for (var service : serviceList) {
                 ServiceKind kind = ServiceKind.fromString(service.type);
                 if (kind != null) {
                     for (PoiLocation location : service.locations) {
-                        servicePois.add(new ServicePoi(location, kind));
+                        newServicePois.add(new ServicePoi(location, kind));
                     }
                 } else {
                     WynntilsMod.warn("Unknown service type in services.json: " + service.type);
                 }
             }
+
+            synchronized (this) {
+                servicePois = newServicePois;
+                rebuildIconPoiIndex();
+            }
         });
     }
 
     private void loadCombat() {
-        Download dl = Managers.Net.download(UrlId.DATA_STATIC_COMBAT_LOCATIONS);
+        Download dl = Managers.Net.download(UrlId.DATA_STATIC_COMBAT_LOCATIONS).revalidateInBackground();
         dl.handleReader(reader -> {
             Type type = new TypeToken<List<CombatProfileList>>() {}.getType();
 
             List<CombatProfileList> combatProfileLists = WynntilsMod.GSON.fromJson(reader, type);
+            Set<CombatPoi> newCombatPois = new HashSet<>();
             for (var combatList : combatProfileLists) {
                 CombatKind kind = CombatKind.fromString(combatList.type);
                 if (kind != null) {
                     for (CombatProfileList.CombatProfile profile : combatList.locations) {
-                        combatPois.add(new CombatPoi(profile.coordinates, profile.name, kind));
+                        newCombatPois.add(new CombatPoi(profile.coordinates, profile.name, kind));
                     }
                 } else {
                     WynntilsMod.warn("Unknown combat type in combat.json: " + combatList.type);
                 }
             }
+
+            synchronized (this) {
+                combatPois = newCombatPois;
+                rebuildIconPoiIndex();
+            }
         });
     }
 
+    // Services and combat locations share an index, so it is built again when either of them is replaced
+    private void rebuildIconPoiIndex() {
+        PoiIndex<Poi> newIconPoiIndex = new PoiIndex<>();
+        servicePois.forEach(newIconPoiIndex::add);
+        combatPois.forEach(newIconPoiIndex::add);
+        iconPoiIndex = newIconPoiIndex;
+    }
+
     private static class PlacesProfile {
         List<Label> labels;
     }
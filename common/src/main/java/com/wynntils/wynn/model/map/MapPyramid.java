@@ -0,0 +1,119 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.wynn.model.map;
+
+import com.mojang.blaze3d.platform.NativeImage;
+import com.wynntils.core.WynntilsMod;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Builds the downscaled levels of map parts, and caches them on disk next to the full resolution image.
+ * The cached files are named after the md5 of the full resolution image, so they never go stale.
+ */
+final class MapPyramid {
+    private MapPyramid() {}
+
+    /**
+     * Reads the image for the given level of a map part, building and caching it (and any missing levels
+     * above it) from the closest level available on disk if needed. Not to be called on the render thread.
+     */
+    static NativeImage loadLevel(MapTexture tile) throws IOException {
+        if (tile.getLevel() == 0 || tile.getFile().exists()) {
+            return read(tile.getFile());
+        }
+
+        MapTexture[] levels = tile.getLevels();
+
+        // Levels of the same map part share their source images, so don't build them concurrently
+        synchronized (levels) {
+            if (tile.getFile().exists()) {
+                return read(tile.getFile());
+            }
+
+            int sourceLevel = tile.getLevel() - 1;
+            while (sourceLevel > 0 && !levels[sourceLevel].getFile().exists()) {
+                sourceLevel--;
+            }
+
+            NativeImage image = read(levels[sourceLevel].getFile());
+            for (int level = sourceLevel + 1; level <= tile.getLevel(); level++) {
+                NativeImage downscaled = downscale(image);
+                image.close();
+                image = downscaled;
+
+                write(image, levels[level].getFile());
+            }
+
+            return image;
+        }
+    }
+
+    private static NativeImage read(File file) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            return NativeImage.read(inputStream);
+        }
+    }
+
+    private static void write(NativeImage image, File file) {
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            image.writeToFile(tempFile);
+            Files.move(
+                    tempFile.toPath(),
+                    file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Not fatal, we will just have to build this level again next time
+            WynntilsMod.warn("Failed to cache downscaled map image " + file, e);
+        }
+    }
+
+    // Halves the image in both directions, averaging each 2x2 block of pixels
+    private static NativeImage downscale(NativeImage source) {
+        int sourceWidth = source.getWidth();
+        int sourceHeight = source.getHeight();
+        int width = (sourceWidth + 1) / 2;
+        int height = (sourceHeight + 1) / 2;
+
+        NativeImage target = new NativeImage(width, height, false);
+        for (int y = 0; y < height; y++) {
+            int y0 = y * 2;
+            int y1 = Math.min(y0 + 1, sourceHeight - 1);
+
+            for (int x = 0; x < width; x++) {
+                int x0 = x * 2;
+                int x1 = Math.min(x0 + 1, sourceWidth - 1);
+
+                target.setPixelRGBA(
+                        x,
+                        y,
+                        average(
+                                source.getPixelRGBA(x0, y0),
+                                source.getPixelRGBA(x1, y0),
+                                source.getPixelRGBA(x0, y1),
+                                source.getPixelRGBA(x1, y1)));
+            }
+        }
+
+        return target;
+    }
+
+    private static int average(int a, int b, int c, int d) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int sum = ((a >>> shift) & 0xFF)
+                    + ((b >>> shift) & 0xFF)
+                    + ((c >>> shift) & 0xFF)
+                    + ((d >>> shift) & 0xFF);
+            result |= ((sum + 2) / 4) << shift;
+        }
+        return result;
+    }
+}
@@ -5,47 +5,98 @@
 package com.wynntils.wynn.model.map;
 
 import com.mojang.blaze3d.platform.NativeImage;
-import com.wynntils.mc.utils.McUtils;
 import com.wynntils.utils.BoundingBox;
+import com.wynntils.utils.MathUtils;
+import java.io.File;
 import net.minecraft.client.renderer.texture.DynamicTexture;
 import net.minecraft.resources.ResourceLocation;
+import org.apache.commons.io.FilenameUtils;
 
 public class MapTexture {
-    private final NativeImage texture;
+    // Level n is downscaled by 2^n in both directions
+    public static final int MAX_LEVEL = 3;
+
+    private final MapTileManager tileManager;
+    private final File file;
     private final ResourceLocation mapResource;
 
-    private boolean registered = false;
+    private final MapTexture base;
+    private final int level;
+    private final MapTexture[] levels;
 
     private final int x1;
     private final int z1;
     private final int x2;
     private final int z2;
 
+    // The size of the map part in blocks, which is also the size of the full resolution image
     private final int textureWidth;
     private final int textureHeight;
 
-    public MapTexture(String name, NativeImage texture, int x1, int z1, int x2, int z2) {
-        this.texture = texture;
+    // These are owned by MapTileManager
+    volatile TileState state = TileState.UNLOADED;
+    NativeImage image = null;
+    DynamicTexture texture = null;
+    long lastUsed = 0;
+    long failedAt = 0;
+    int failures = 0;
+
+    public MapTexture(MapTileManager tileManager, String name, File file, int x1, int z1, int x2, int z2) {
+        this.tileManager = tileManager;
+        this.file = file;
+        this.base = this;
+        this.level = 0;
         this.x1 = x1;
         this.z1 = z1;
         this.x2 = x2;
         this.z2 = z2;
-        this.textureWidth = texture.getWidth();
-        this.textureHeight = texture.getHeight();
+        this.textureWidth = x2 - x1 + 1;
+        this.textureHeight = z2 - z1 + 1;
 
         this.mapResource = new ResourceLocation("wynntils", "/maps/" + name);
 
-        assert (x2 - x1 + 1 == textureWidth);
-        assert (z2 - z1 + 1 == textureHeight);
+        this.levels = new MapTexture[MAX_LEVEL + 1];
+        this.levels[0] = this;
+        for (int i = 1; i <= MAX_LEVEL; i++) {
+            this.levels[i] = new MapTexture(this, i);
+        }
     }
 
-    public ResourceLocation resource() {
-        if (!registered) {
-            registered = true;
-            McUtils.mc().getTextureManager().register(mapResource, new DynamicTexture(texture));
-        }
+    private MapTexture(MapTexture base, int level) {
+        String name = FilenameUtils.getBaseName(base.file.getName()) + "_" + level + ".png";
+
+        this.tileManager = base.tileManager;
+        this.file = new File(base.file.getParentFile(), name);
+        this.base = base;
+        this.level = level;
+        this.levels = base.levels;
+        this.x1 = base.x1;
+        this.z1 = base.z1;
+        this.x2 = base.x2;
+        this.z2 = base.z2;
+        this.textureWidth = base.textureWidth;
+        this.textureHeight = base.textureHeight;
 
-        return mapResource;
+        this.mapResource = new ResourceLocation("wynntils", "/maps/" + name);
+    }
+
+    /**
+     * Returns the level of this map part to render, or null if none is resident on the GPU yet.
+     * Calling this marks the map part as in view, so it will be loaded if needed. Must be called on the render thread.
+     *
+     * If this level is still loading, another level of the same map part may be returned instead.
+     */
+    public MapTexture getResidentLevel() {
+        return tileManager.acquire(this);
+    }
+
+    /**
+     * Returns this map part at the resolution best suited for rendering with the given zoom,
+     * where zoom is the number of screen pixels per block.
+     */
+    public MapTexture forZoom(float zoom) {
+        int level = (int) Math.floor(-Math.log(zoom) / Math.log(2));
+        return levels[MathUtils.clamp(level, 0, MAX_LEVEL)];
     }
 
     public float getTextureXPosition(double posX) {
@@ -91,4 +142,50 @@ public class MapTexture {
     public int getTextureWidth() {
         return textureWidth;
     }
+
+    File getFile() {
+        return file;
+    }
+
+    MapTexture getBase() {
+        return base;
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    MapTexture[] getLevels() {
+        return levels;
+    }
+
+    // Each level rounds up, so the last pixel of a row may cover less than 2^level blocks
+    int getImageWidth() {
+        return (textureWidth + (1 << level) - 1) >> level;
+    }
+
+    int getImageHeight() {
+        return (textureHeight + (1 << level) - 1) >> level;
+    }
+
+    public ResourceLocation getMapResource() {
+        return mapResource;
+    }
+
+    // The number of blocks the texture of this level spans, which is a little more than the map part if it was rounded
+    public int getTextureSpanWidth() {
+        return getImageWidth() << level;
+    }
+
+    public int getTextureSpanHeight() {
+        return getImageHeight() << level;
+    }
+
+    enum TileState {
+        UNLOADED,
+        DECODING,
+        DECODED,
+        UPLOADED,
+        FAILED
+    }
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.wynn.model.map;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.blaze3d.platform.NativeImage;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.wynntils.core.WynntilsMod;
+import com.wynntils.features.user.map.MapFeature;
+import com.wynntils.mc.mixin.accessors.TextureManagerAccessor;
+import com.wynntils.mc.utils.McUtils;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import net.minecraft.Util;
+import net.minecraft.client.renderer.texture.DynamicTexture;
+
+/**
+ * Keeps map parts resident only while they are being looked at.
+ *
+ * Map parts are decoded from the disk cache on a worker pool the first time they come into view, uploaded to the
+ * GPU on the render thread once decoded, and evicted (both the native image and the GPU texture) in least recently
+ * used order when the resident map parts exceed the budget set in {@link MapFeature}.
+ *
+ * Each level of a map part is handled separately, see {@link MapTexture#forZoom(float)}.
+ */
+public final class MapTileManager {
+    private static final int DECODE_THREADS = 2;
+    private static final long DEFAULT_BUDGET_MB = 256;
+
+    // Map parts used this recently are never evicted, even when over budget, so visible parts can't thrash
+    private static final long MIN_RESIDENT_MILLIS = 1000;
+
+    // Map parts that failed to load are tried again after this, doubling with every failure up to the maximum
+    private static final long RETRY_DELAY_MILLIS = 2000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 60000;
+
+    private final ExecutorService decodeExecutor = Executors.newFixedThreadPool(
+            DECODE_THREADS,
+            new ThreadFactoryBuilder()
+                    .setNameFormat("wynntils-map-decoder-%d")
+                    .setDaemon(true)
+                    .build());
+
+    // Access ordered, so iteration starts with the least recently used map part. Only touched on the render thread.
+    private final Map<MapTexture, MapTexture> residentTiles = new LinkedHashMap<>(16, 0.75f, true);
+    private long residentBytes = 0;
+
+    MapTexture acquire(MapTexture tile) {
+        RenderSystem.assertOnRenderThread();
+
+        tile.lastUsed = Util.getMillis();
+        residentTiles.get(tile);
+
+        switch (tile.state) {
+            case UNLOADED -> {
+                requestDecode(tile);
+                return getFallbackLevel(tile);
+            }
+            case DECODED -> {
+                upload(tile);
+                return tile;
+            }
+            case UPLOADED -> {
+                return tile;
+            }
+            case FAILED -> {
+                if (residentTiles.remove(tile) != null) {
+                    residentBytes -= getMemorySize(tile);
+                }
+
+                if (tile.lastUsed - tile.failedAt >= getRetryDelay(tile)) {
+                    requestDecode(tile);
+                }
+                return getFallbackLevel(tile);
+            }
+            default -> {
+                return getFallbackLevel(tile);
+            }
+        }
+    }
+
+    // While a level is loading, render any other level of the same map part that is already on the GPU
+    private MapTexture getFallbackLevel(MapTexture tile) {
+        for (MapTexture other : tile.getLevels()) {
+            if (other != tile && other.state == MapTexture.TileState.UPLOADED) {
+                other.lastUsed = tile.lastUsed;
+                residentTiles.get(other);
+                return other;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Evicts every resident map part. Safe to call from any thread.
+     */
+    public void releaseAll() {
+        RenderSystem.recordRenderCall(() -> {
+            for (MapTexture tile : residentTiles.keySet()) {
+                evict(tile);
+            }
+            residentTiles.clear();
+            residentBytes = 0;
+        });
+    }
+
+    private void requestDecode(MapTexture tile) {
+        tile.state = MapTexture.TileState.DECODING;
+        residentTiles.put(tile, tile);
+        residentBytes += getMemorySize(tile);
+
+        CompletableFuture.runAsync(
+                () -> {
+                    try {
+                        NativeImage image = MapPyramid.loadLevel(tile);
+                        synchronized (tile) {
+                            // The tile was evicted while we were decoding it
+                            if (tile.state != MapTexture.TileState.DECODING) {
+                                image.close();
+                                return;
+                            }
+
+                            tile.image = image;
+                            tile.failures = 0;
+                            tile.state = MapTexture.TileState.DECODED;
+                        }
+                    } catch (IOException e) {
+                        WynntilsMod.warn("IOException occurred while loading map image " + tile.getFile(), e);
+                        synchronized (tile) {
+                            tile.failedAt = Util.getMillis();
+                            tile.failures++;
+                            tile.state = MapTexture.TileState.FAILED;
+                        }
+                    }
+                },
+                decodeExecutor);
+    }
+
+    private void upload(MapTexture tile) {
+        // The DynamicTexture takes ownership of the native image, and frees it when closed
+        tile.texture = new DynamicTexture(tile.image);
+        tile.image = null;
+        McUtils.mc().getTextureManager().register(tile.getMapResource(), tile.texture);
+        tile.state = MapTexture.TileState.UPLOADED;
+
+        enforceBudget();
+    }
+
+    private void enforceBudget() {
+        long budget = getBudgetBytes();
+        long now = Util.getMillis();
+
+        Iterator<MapTexture> iterator = residentTiles.keySet().iterator();
+        while (residentBytes > budget && iterator.hasNext()) {
+            MapTexture tile = iterator.next();
+
+            // Everything after this has been used even more recently
+            if (now - tile.lastUsed < MIN_RESIDENT_MILLIS) break;
+
+            // Decoding can't be cancelled, we will get to it once it's done
+            if (tile.state == MapTexture.TileState.DECODING) continue;
+
+            evict(tile);
+            iterator.remove();
+            residentBytes -= getMemorySize(tile);
+        }
+    }
+
+    private void evict(MapTexture tile) {
+        synchronized (tile) {
+            if (tile.state == MapTexture.TileState.DECODED) {
+                tile.image.close();
+                tile.image = null;
+            } else if (tile.state == MapTexture.TileState.UPLOADED) {
+                // Release only frees the texture and would leave it registered, so unregister it and free it once
+                ((TextureManagerAccessor) McUtils.mc().getTextureManager()).getByPath().remove(tile.getMapResource());
+                tile.texture.close();
+                tile.texture = null;
+            }
+
+            // A decode that is still running will notice this and throw its result away
+            tile.state = MapTexture.TileState.UNLOADED;
+        }
+    }
+
+    private static long getRetryDelay(MapTexture tile) {
+        int doublings = Math.min(tile.failures - 1, 5);
+        return Math.min(RETRY_DELAY_MILLIS << Math.max(doublings, 0), MAX_RETRY_DELAY_MILLIS);
+    }
+
+    private static long getMemorySize(MapTexture tile) {
+        // The native image and its GPU copy, both RGBA
+        return (long) tile.getImageWidth() * tile.getImageHeight() * 4 * 2;
+    }
+
+    private static long getBudgetBytes() {
+        long budgetMb = MapFeature.INSTANCE != null ? MapFeature.INSTANCE.textureMemoryBudget : DEFAULT_BUDGET_MB;
+        return budgetMb * 1024 * 1024;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright © Wynntils 2022.
+ * This file is released under AGPLv3. See LICENSE for full license details.
+ */
+package com.wynntils.wynn.model.map.poi;
+
+import com.wynntils.utils.BoundingBox;
+import it.unimi.dsi.fastutil.ints.Int2IntRBTreeMap;
+import it.unimi.dsi.fastutil.ints.Int2IntSortedMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A uniform grid over the X/Z plane of {@link PoiLocation}, partitioned by {@link DisplayPriority}.
+ * Range queries only visit the grid cells overlapping the queried area, so their cost scales with
+ * the number of POIs on screen, not with the number of POIs in the whole world.
+ *
+ * This is meant for POIs that do not move. Dynamic POIs (players, compass) should be merged in by the caller.
+ */
+public class PoiIndex<T extends Poi> {
+    private static final int CELL_SHIFT = 8; // 256 blocks per cell
+
+    // Iterated from lowest to highest priority, which is the order POIs must be rendered in
+    private static final DisplayPriority[] RENDER_ORDER = reversedPriorities();
+
+    private final Map<DisplayPriority, Partition<T>> partitions = new EnumMap<>(DisplayPriority.class);
+
+    // The extent of every POI, or null if it has not been measured yet
+    private final Map<T, Extent> pois = new HashMap<>();
+    // POIs are often added off the render thread, where measuring labels isn't safe, so they are measured on query
+    private final Set<T> unmeasuredPois = new HashSet<>();
+
+    public synchronized boolean add(T poi) {
+        if (pois.containsKey(poi)) return false;
+
+        pois.put(poi, null);
+        unmeasuredPois.add(poi);
+        partitions
+                .computeIfAbsent(poi.getDisplayPriority(), k -> new Partition<>())
+                .cells
+                .computeIfAbsent(cellKey(poi.getLocation()), k -> new ArrayList<>())
+                .add(poi);
+        return true;
+    }
+
+    public synchronized boolean remove(T poi) {
+        if (!pois.containsKey(poi)) return false;
+
+        Extent extent = pois.remove(poi);
+        Partition<T> partition = partitions.get(poi.getDisplayPriority());
+        if (extent == null) {
+            unmeasuredPois.remove(poi);
+        } else {
+            partition.removeExtent(extent);
+        }
+
+        long key = cellKey(poi.getLocation());
+        List<T> cell = partition.cells.get(key);
+        cell.remove(poi);
+        if (cell.isEmpty()) {
+            partition.cells.remove(key);
+        }
+        return true;
+    }
+
+    public synchronized void clear() {
+        pois.clear();
+        unmeasuredPois.clear();
+        partitions.clear();
+    }
+
+    public synchronized int size() {
+        return pois.size();
+    }
+
+    /**
+     * Returns all POIs that may be visible in the given area, ordered from the lowest to the highest
+     * {@link DisplayPriority}. The result is a superset of the visible POIs; callers are still expected
+     * to do their exact bounding box checks on it.
+     */
+    public synchronized List<T> query(BoundingBox area, float mapZoom, float scale) {
+        List<T> result = new ArrayList<>();
+        if (pois.isEmpty()) return result;
+
+        measurePois();
+
+        for (DisplayPriority priority : RENDER_ORDER) {
+            Partition<T> partition = partitions.get(priority);
+            if (partition == null) continue;
+
+            Long2ObjectMap<List<T>> cells = partition.cells;
+            float queryMargin = partition.getMargin(mapZoom, scale);
+            int minCellX = toCell(area.x1 - queryMargin);
+            int maxCellX = toCell(area.x2 + queryMargin);
+            int minCellZ = toCell(area.z1 - queryMargin);
+            int maxCellZ = toCell(area.z2 + queryMargin);
+
+            // When zoomed out far enough, walking the populated cells is cheaper than walking the grid
+            long gridCells = (long) (maxCellX - minCellX + 1) * (maxCellZ - minCellZ + 1);
+            if (gridCells > cells.size()) {
+                for (Long2ObjectMap.Entry<List<T>> entry : cells.long2ObjectEntrySet()) {
+                    long key = entry.getLongKey();
+                    int cellX = (int) (key >> 32);
+                    int cellZ = (int) key;
+                    if (cellX >= minCellX && cellX <= maxCellX && cellZ >= minCellZ && cellZ <= maxCellZ) {
+                        result.addAll(entry.getValue());
+                    }
+                }
+            } else {
+                for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                    for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                        List<T> cell = cells.get(cellKey(cellX, cellZ));
+                        if (cell != null) {
+                            result.addAll(cell);
+                        }
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private void measurePois() {
+        if (unmeasuredPois.isEmpty()) return;
+
+        for (T poi : unmeasuredPois) {
+            Extent extent = Extent.of(poi);
+            pois.put(poi, extent);
+            partitions.get(poi.getDisplayPriority()).addExtent(extent);
+        }
+        unmeasuredPois.clear();
+    }
+
+    private static int toCell(float coordinate) {
+        return (int) Math.floor(coordinate) >> CELL_SHIFT;
+    }
+
+    private static long cellKey(PoiLocation location) {
+        return cellKey(location.getX() >> CELL_SHIFT, location.getZ() >> CELL_SHIFT);
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * How far a POI reaches out from its location, as a part that is fixed and parts that grow with zoom and scale.
+     * Together these bound its size for any zoom and scale, so the largest of them give the query margin without
+     * measuring every POI again when zooming.
+     */
+    private record Extent(int fixed, int perZoom, int perScale) {
+        private static Extent of(Poi poi) {
+            int fixed = Math.max(poi.getWidth(0, 0), poi.getHeight(0, 0));
+            int perZoom = Math.max(poi.getWidth(1, 0), poi.getHeight(1, 0)) - fixed;
+            int perScale = Math.max(poi.getWidth(0, 1), poi.getHeight(0, 1)) - fixed;
+            return new Extent(fixed, Math.max(0, perZoom), Math.max(0, perScale));
+        }
+    }
+
+    private static final class Partition<T> {
+        private final Long2ObjectMap<List<T>> cells = new Long2ObjectOpenHashMap<>();
+
+        // Counts of each extent part, so the largest one is still known after a POI is removed
+        private final Int2IntSortedMap fixedExtents = new Int2IntRBTreeMap();
+        private final Int2IntSortedMap zoomExtents = new Int2IntRBTreeMap();
+        private final Int2IntSortedMap scaleExtents = new Int2IntRBTreeMap();
+
+        private void addExtent(Extent extent) {
+            fixedExtents.mergeInt(extent.fixed(), 1, Integer::sum);
+            zoomExtents.mergeInt(extent.perZoom(), 1, Integer::sum);
+            scaleExtents.mergeInt(extent.perScale(), 1, Integer::sum);
+        }
+
+        private void removeExtent(Extent extent) {
+            decrement(fixedExtents, extent.fixed());
+            decrement(zoomExtents, extent.perZoom());
+            decrement(scaleExtents, extent.perScale());
+        }
+
+        private float getMargin(float mapZoom, float scale) {
+            if (fixedExtents.isEmpty()) return 1;
+
+            float maxExtent = fixedExtents.lastIntKey()
+                    + zoomExtents.lastIntKey() * mapZoom
+                    + scaleExtents.lastIntKey() * scale;
+            return maxExtent / 2f + 1;
+        }
+
+        private static void decrement(Int2IntSortedMap counts, int extent) {
+            int count = counts.get(extent);
+            if (count <= 1) {
+                counts.remove(extent);
+            } else {
+                counts.put(extent, count - 1);
+            }
+        }
+    }
+
+    private static DisplayPriority[] reversedPriorities() {
+        DisplayPriority[] values = DisplayPriority.values();
+        DisplayPriority[] reversed = new DisplayPriority[values.length];
+        for (int i = 0; i < values.length; i++) {
+            reversed[i] = values[values.length - 1 - i];
+        }
+        return reversed;
+    }
+}
@@ -9,18 +9,24 @@ import com.wynntils.wynn.objects.profiles.item.IdentificationProfile;
 import com.wynntils.wynn.objects.profiles.item.ItemProfile;
 import net.minecraft.network.chat.Component;
 
+/**
+ * An identification rolled on an item. The lore lines showing it are built from this when a tooltip needs them, see
+ * {@link com.wynntils.wynn.utils.WynnItemUtils#getPercentLoreLine}.
+ *
+ * @param idName the in-game name of the identification
+ * @param rawLoreLine the lore line the identification was read from, or the line describing it on an item guide
+ *     item; null if it was created from a value
+ */
 public record ItemIdentificationContainer(
         ItemProfile item,
         IdentificationProfile identification,
         IdentificationModifier modifier,
+        String idName,
         String shortIdName,
         int value,
         int stars,
         float percent,
-        Component rawLoreLine,
-        Component percentLoreLine,
-        Component rangeLoreLine,
-        Component rerollLoreLine) {
+        Component rawLoreLine) {
 
     public boolean isNew() {
         return (identification == null || identification.isInvalidValue(value));
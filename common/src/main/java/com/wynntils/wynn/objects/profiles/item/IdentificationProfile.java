@@ -7,22 +7,29 @@ package com.wynntils.wynn.objects.profiles.item;
 import com.wynntils.core.WynntilsMod;
 import com.wynntils.utils.StringUtils;
 import com.wynntils.wynn.item.IdentificationOrderer;
-import java.util.HashMap;
+import com.wynntils.wynn.objects.profiles.DerivedField;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This code is largely based off info provided in
  * https://forums.wynncraft.com/threads/how-identifications-are-calculated.128923/
  */
 public class IdentificationProfile {
-    private static final Map<String, IdentificationModifier> typeMap = new HashMap<>();
+    // Filled in while item profiles are loaded in the background
+    private static final Map<String, IdentificationModifier> typeMap = new ConcurrentHashMap<>();
 
     private final IdentificationModifier type;
     private final int baseValue;
     private final boolean isFixed;
+    @DerivedField
     private transient boolean isInverted;
+
+    @DerivedField
     private transient int min;
+
+    @DerivedField
     private transient int max;
 
     public IdentificationProfile(IdentificationModifier type, int baseValue, boolean isFixed) {
@@ -46,8 +53,9 @@ public class IdentificationProfile {
     }
 
     public void registerIdType(String name) {
-        if (typeMap.containsKey(name)) return;
-        typeMap.put(name, type);
+        if (type == null) return;
+
+        typeMap.putIfAbsent(name, type);
     }
 
     public IdentificationModifier getType() {
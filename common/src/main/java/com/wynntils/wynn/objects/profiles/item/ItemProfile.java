@@ -5,6 +5,7 @@
 package com.wynntils.wynn.objects.profiles.item;
 
 import com.wynntils.wynn.objects.ClassType;
+import com.wynntils.wynn.objects.profiles.DerivedField;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
@@ -31,6 +32,7 @@ public class ItemProfile {
     private final String restriction;
     private String lore;
 
+    @DerivedField
     private transient List<MajorIdentification> majorIdentifications = new ArrayList<>();
 
     private transient Map<RequirementType, String> parsedRequirements = null;
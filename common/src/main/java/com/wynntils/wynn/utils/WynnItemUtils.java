@@ -101,65 +101,96 @@ public final class WynnItemUtils {
     public static ItemIdentificationContainer identificationFromValue(
             Component lore, ItemProfile item, String idName, String shortIdName, int value, int starCount) {
         IdentificationProfile idProfile = item.getStatuses().get(shortIdName);
-        boolean isInverted =
-                idProfile != null ? idProfile.isInverted() : IdentificationOrderer.INSTANCE.isInverted(shortIdName);
         IdentificationModifier type =
                 idProfile != null ? idProfile.getType() : IdentificationProfile.getTypeFromName(shortIdName);
         if (type == null) return null; // not a valid id
 
-        MutableComponent percentLine = Component.literal("");
+        boolean isNew = idProfile == null || idProfile.isInvalidValue(value);
 
-        MutableComponent statInfo = Component.literal((value > 0 ? "+" : "") + value + type.getInGame(shortIdName));
-        statInfo.setStyle(Style.EMPTY.withColor(isInverted ^ (value > 0) ? ChatFormatting.GREEN : ChatFormatting.RED));
+        float percentage = -1;
+        if (!isNew && !idProfile.hasConstantValue()) {
+            percentage = MathUtils.inverseLerp(idProfile.getMin(), idProfile.getMax(), value) * 100;
+        }
 
-        percentLine.append(statInfo);
+        // create container, the lore lines shown for it are only built once they are needed
+        return new ItemIdentificationContainer(
+                item, idProfile, type, idName, shortIdName, value, starCount, percentage, lore);
+    }
 
-        if (ItemStatInfoFeature.INSTANCE.showStars)
-            percentLine.append(Component.literal("***".substring(3 - starCount)).withStyle(ChatFormatting.DARK_GREEN));
+    /**
+     * Create the lore line of an item ID, with its roll percentage
+     *
+     * @param id the ID, as parsed from lore or a value
+     * @return the styled lore line
+     */
+    public static Component getPercentLoreLine(ItemIdentificationContainer id) {
+        MutableComponent percentLine = getBaseLoreLine(id);
+        if (hasRollRange(id)) {
+            percentLine.append(getPercentageTextComponent(id.percent()));
+        }
+        return percentLine;
+    }
 
-        percentLine.append(Component.literal(" " + idName).withStyle(ChatFormatting.GRAY));
+    /**
+     * Create the lore line of an item ID, with the range it can roll in
+     *
+     * @param id the ID, as parsed from lore or a value
+     * @return the styled lore line
+     */
+    public static Component getRangeLoreLine(ItemIdentificationContainer id) {
+        MutableComponent rangeLine = getBaseLoreLine(id);
+        if (hasRollRange(id)) {
+            IdentificationProfile idProfile = id.identification();
+            rangeLine.append(getRangeTextComponent(idProfile.getMin(), idProfile.getMax()));
+        }
+        return rangeLine;
+    }
 
-        boolean isNew = idProfile == null || idProfile.isInvalidValue(value);
+    /**
+     * Create the lore line of an item ID, with the chances of rolling it better or worse
+     *
+     * @param id the ID, as parsed from lore or a value
+     * @return the styled lore line
+     */
+    public static Component getRerollLoreLine(ItemIdentificationContainer id) {
+        MutableComponent rerollLine = getBaseLoreLine(id);
+        if (hasRollRange(id)) {
+            IdentificationProfile idProfile = id.identification();
+            IdentificationProfile.ReidentificationChances chances = idProfile.getChances(id.value(), id.stars());
 
-        if (isNew) percentLine.append(Component.literal(" [NEW]").withStyle(ChatFormatting.GOLD));
+            rerollLine.append(getRerollChancesComponent(
+                    idProfile.getPerfectChance(), chances.increase(), chances.decrease()));
+        }
+        return rerollLine;
+    }
 
-        MutableComponent rangeLine = percentLine.copy();
-        MutableComponent rerollLine = percentLine.copy();
+    private static boolean hasRollRange(ItemIdentificationContainer id) {
+        return !id.isNew() && !id.identification().hasConstantValue();
+    }
 
-        float percentage = -1;
-        if (!isNew && !idProfile.hasConstantValue()) {
-            // calculate percent/range/reroll chances, append to lines
-            int min = idProfile.getMin();
-            int max = idProfile.getMax();
+    private static MutableComponent getBaseLoreLine(ItemIdentificationContainer id) {
+        int value = id.value();
+        String shortIdName = id.shortIdName();
+        IdentificationProfile idProfile = id.identification();
+        boolean isInverted =
+                idProfile != null ? idProfile.isInverted() : IdentificationOrderer.INSTANCE.isInverted(shortIdName);
 
-            percentage = MathUtils.inverseLerp(min, max, value) * 100;
+        MutableComponent line = Component.literal("");
 
-            IdentificationProfile.ReidentificationChances chances = idProfile.getChances(value, starCount);
+        MutableComponent statInfo =
+                Component.literal((value > 0 ? "+" : "") + value + id.modifier().getInGame(shortIdName));
+        statInfo.setStyle(Style.EMPTY.withColor(isInverted ^ (value > 0) ? ChatFormatting.GREEN : ChatFormatting.RED));
 
-            percentLine.append(WynnItemUtils.getPercentageTextComponent(percentage));
+        line.append(statInfo);
 
-            rangeLine.append(WynnItemUtils.getRangeTextComponent(min, max));
+        if (ItemStatInfoFeature.INSTANCE.showStars)
+            line.append(Component.literal("***".substring(3 - id.stars())).withStyle(ChatFormatting.DARK_GREEN));
 
-            rerollLine.append(WynnItemUtils.getRerollChancesComponent(
-                    idProfile.getPerfectChance(), chances.increase(), chances.decrease()));
-        }
+        line.append(Component.literal(" " + id.idName()).withStyle(ChatFormatting.GRAY));
 
-        // lore might be null if this ID is not being created from a lore line
-        if (lore == null) lore = percentLine;
+        if (id.isNew()) line.append(Component.literal(" [NEW]").withStyle(ChatFormatting.GOLD));
 
-        // create container
-        return new ItemIdentificationContainer(
-                item,
-                idProfile,
-                type,
-                shortIdName,
-                value,
-                starCount,
-                percentage,
-                lore,
-                percentLine,
-                rangeLine,
-                rerollLine);
+        return line;
     }
 
     /**
@@ -197,8 +228,8 @@ public final class WynnItemUtils {
             line.append(Component.literal(" " + IdentificationProfile.getAsLongName(idName))
                     .withStyle(ChatFormatting.GRAY));
 
-            ItemIdentificationContainer id =
-                    new ItemIdentificationContainer(item, idProfile, type, idName, 0, 0, -1, line, line, line, line);
+            ItemIdentificationContainer id = new ItemIdentificationContainer(
+                    item, idProfile, type, IdentificationProfile.getAsLongName(idName), idName, 0, 0, -1, line);
             ids.add(id);
         }
 